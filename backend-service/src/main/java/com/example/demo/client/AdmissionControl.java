@@ -0,0 +1,311 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.Course;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.context.Context;
+
+/**
+ * Admission control for the expensive Python calls (uploads, flash card generation, chat). At most
+ * {@code global-limit} calls run at once and at most {@code per-user-limit} per course owner; the
+ * rest wait in one queue served in weighted-fair order across courses (start-time fair queueing,
+ * so a course with weight 2 is served twice as often as a course with weight 1 while both wait).
+ *
+ * A call is refused with {@link AdmissionRejectedException} when the queue or the owner's share of
+ * it is full, or when it waited longer than {@code max-wait-ms}. Callers name the course through
+ * the Reactor context ({@link #forCourse}); calls without one share a single anonymous flow.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final String CALLER_KEY = AdmissionControl.class.getName() + ".caller";
+    private static final Caller ANONYMOUS = new Caller("anonymous", null);
+
+    public enum Operation { UPLOAD, FLASH_CARDS, CHAT }
+
+    private final boolean enabled;
+    private final int globalLimit;
+    private final int perUserLimit;
+    private final int queueCapacity;
+    private final int perUserQueueLimit;
+    private final Duration maxWait;
+    private final Map<Long, Double> courseWeights;
+    private final MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final List<Waiter> queue = new LinkedList<>();
+    private final Map<String, Integer> activeByUser = new HashMap<>();
+    private final Map<String, Integer> queuedByUser = new HashMap<>();
+    private final Map<Long, Double> lastFinish = new HashMap<>();
+    private int active;
+    private double virtualTime;
+    private long sequence;
+    private double averageHoldMillis = 1000;
+
+    public AdmissionControl(@Value("${app.admission.enabled:true}") boolean enabled,
+                            @Value("${app.admission.global-limit:16}") int globalLimit,
+                            @Value("${app.admission.per-user-limit:4}") int perUserLimit,
+                            @Value("${app.admission.queue-capacity:200}") int queueCapacity,
+                            @Value("${app.admission.per-user-queue-limit:20}") int perUserQueueLimit,
+                            @Value("${app.admission.max-wait-ms:30000}") long maxWaitMs,
+                            @Value("${app.admission.course-weights:}") String courseWeights,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.globalLimit = globalLimit;
+        this.perUserLimit = perUserLimit;
+        this.queueCapacity = queueCapacity;
+        this.perUserQueueLimit = perUserQueueLimit;
+        this.maxWait = Duration.ofMillis(maxWaitMs);
+        this.courseWeights = parseWeights(courseWeights);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.queue.depth", this, AdmissionControl::queueDepth)
+                .description("Python calls waiting for admission")
+                .register(meterRegistry);
+        Gauge.builder("admission.active", this, AdmissionControl::activeCalls)
+                .description("Python calls currently admitted")
+                .register(meterRegistry);
+    }
+
+    /** Context for {@code contextWrite}: the calls below are made on behalf of this course and its owner. */
+    public static Function<Context, Context> forCourse(Course course) {
+        String user = course.getOwner() != null && course.getOwner().getId() != null
+                ? "user:" + course.getOwner().getId()
+                : "course:" + course.getId();
+        Caller caller = new Caller(user, course.getId());
+        return context -> context.put(CALLER_KEY, caller);
+    }
+
+    /** Runs {@code call} once admitted; the slot is held until it completes, fails or is cancelled. */
+    public <T> Mono<T> admit(Operation operation, Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.deferContextual(context -> {
+            Caller caller = context.getOrDefault(CALLER_KEY, ANONYMOUS);
+            return Mono.usingWhen(acquire(caller, operation), permit -> call,
+                    this::release, (permit, error) -> release(permit), this::release);
+        });
+    }
+
+    /** As {@link #admit(Operation, Mono)} for a streamed call: the slot is held until the stream ends. */
+    public <T> Flux<T> admit(Operation operation, Flux<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Flux.deferContextual(context -> {
+            Caller caller = context.getOrDefault(CALLER_KEY, ANONYMOUS);
+            return Flux.usingWhen(acquire(caller, operation), permit -> call,
+                    this::release, (permit, error) -> release(permit), this::release);
+        });
+    }
+
+    public synchronized int queueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int activeCalls() {
+        return active;
+    }
+
+    private Mono<Permit> acquire(Caller caller, Operation operation) {
+        return Mono.<Permit>create(sink -> {
+                    Waiter waiter = new Waiter(caller, operation, sink);
+                    String refusal;
+                    List<Waiter> granted;
+                    synchronized (this) {
+                        refusal = refusalFor(caller);
+                        if (refusal == null) {
+                            enqueue(waiter);
+                        }
+                        granted = dispatch();
+                    }
+                    if (refusal != null) {
+                        sink.error(reject(refusal, operation));
+                        return;
+                    }
+                    sink.onCancel(() -> abandon(waiter));
+                    deliver(granted);
+                })
+                .timeout(maxWait, Mono.error(() -> reject("timeout", operation)));
+    }
+
+    private String refusalFor(Caller caller) {
+        if (queue.size() >= queueCapacity) {
+            return "queue_full";
+        }
+        if (queuedByUser.getOrDefault(caller.user, 0) >= perUserQueueLimit) {
+            return "user_queue_full";
+        }
+        return null;
+    }
+
+    private void enqueue(Waiter waiter) {
+        Long courseId = waiter.caller.courseId;
+        double weight = courseId != null ? courseWeights.getOrDefault(courseId, 1.0) : 1.0;
+        waiter.start = Math.max(virtualTime, lastFinish.getOrDefault(courseId, virtualTime));
+        waiter.finish = waiter.start + 1.0 / weight;
+        waiter.sequence = sequence++;
+        lastFinish.put(courseId, waiter.finish);
+        queue.add(waiter);
+        queuedByUser.merge(waiter.caller.user, 1, Integer::sum);
+    }
+
+    // Grants free slots to the waiters with the smallest finish tag whose owner is under its limit
+    private List<Waiter> dispatch() {
+        List<Waiter> granted = new ArrayList<>();
+        while (active < globalLimit) {
+            Waiter next = null;
+            for (Waiter waiter : queue) {
+                if (activeByUser.getOrDefault(waiter.caller.user, 0) < perUserLimit
+                        && (next == null || waiter.finish < next.finish
+                                || (waiter.finish == next.finish && waiter.sequence < next.sequence))) {
+                    next = waiter;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            queue.remove(next);
+            queuedByUser.computeIfPresent(next.caller.user, (user, count) -> count > 1 ? count - 1 : null);
+            virtualTime = Math.max(virtualTime, next.start);
+            active++;
+            activeByUser.merge(next.caller.user, 1, Integer::sum);
+            next.permit = new Permit(next.caller);
+            granted.add(next);
+        }
+        // Courses with nothing left ahead of the virtual clock start over from it
+        lastFinish.values().removeIf(finish -> finish <= virtualTime);
+        return granted;
+    }
+
+    private void deliver(List<Waiter> granted) {
+        for (Waiter waiter : granted) {
+            Timer.builder("admission.wait")
+                    .description("Time Python calls spent waiting for admission")
+                    .tag("operation", waiter.operation.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(waiter.permit.admittedAt - waiter.enqueuedAt));
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    // Timed out or cancelled: leave the queue, or hand back a slot granted but never delivered
+    private void abandon(Waiter waiter) {
+        boolean queued;
+        synchronized (this) {
+            queued = queue.remove(waiter);
+            if (queued) {
+                queuedByUser.computeIfPresent(waiter.caller.user, (user, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        if (!queued && waiter.permit != null) {
+            release(waiter.permit).subscribe();
+        }
+    }
+
+    private Mono<Void> release(Permit permit) {
+        return Mono.fromRunnable(() -> {
+            if (!permit.released.compareAndSet(false, true)) {
+                return;
+            }
+            List<Waiter> granted;
+            synchronized (this) {
+                active--;
+                activeByUser.computeIfPresent(permit.caller.user, (user, count) -> count > 1 ? count - 1 : null);
+                long heldMillis = (System.nanoTime() - permit.admittedAt) / 1_000_000;
+                averageHoldMillis = 0.8 * averageHoldMillis + 0.2 * heldMillis;
+                granted = dispatch();
+            }
+            deliver(granted);
+        });
+    }
+
+    private AdmissionRejectedException reject(String reason, Operation operation) {
+        Duration retryAfter;
+        synchronized (this) {
+            // Time for the slots to work through the current queue, at the recent average hold time
+            double seconds = (queue.size() + 1) * averageHoldMillis / globalLimit / 1000;
+            retryAfter = Duration.ofSeconds(Math.max(1, Math.min(60, (long) Math.ceil(seconds))));
+        }
+        meterRegistry.counter("admission.rejected", "reason", reason,
+                "operation", operation.name().toLowerCase(Locale.ROOT)).increment();
+        logger.warn("Rejected {} call to the Python service ({}), retry after {}s",
+                operation, reason, retryAfter.toSeconds());
+        return new AdmissionRejectedException("Too many requests in progress, try again later", retryAfter);
+    }
+
+    // "12:2,40:0.5" -> course 12 gets twice the default share, course 40 half of it
+    private static Map<Long, Double> parseWeights(String spec) {
+        Map<Long, Double> weights = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return weights;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid app.admission.course-weights entry: " + entry);
+            }
+            weights.put(Long.parseLong(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static final class Caller {
+        private final String user;
+        private final Long courseId;
+
+        private Caller(String user, Long courseId) {
+            this.user = user;
+            this.courseId = courseId;
+        }
+    }
+
+    private static final class Waiter {
+        private final Caller caller;
+        private final Operation operation;
+        private final MonoSink<Permit> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private double start;
+        private double finish;
+        private long sequence;
+        private Permit permit;
+
+        private Waiter(Caller caller, Operation operation, MonoSink<Permit> sink) {
+            this.caller = caller;
+            this.operation = operation;
+            this.sink = sink;
+        }
+    }
+
+    private static final class Permit {
+        private final Caller caller;
+        private final long admittedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Caller caller) {
+            this.caller = caller;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A call to the Python service was refused before it was sent, by {@link AdmissionControl} or
+ * {@link ModelRateLimiter}. Surfaces as 429 with a {@code Retry-After} header in the web layer.
+ */
+public class AdmissionRejectedException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String reason, Duration retryAfter) {
+        super(HttpStatus.TOO_MANY_REQUESTS, reason);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()));
+        return headers;
+    }
+}
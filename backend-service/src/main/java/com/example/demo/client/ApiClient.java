@@ -1,56 +1,97 @@
 package com.example.demo.client;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.example.demo.dto.ChatStreamEventDto;
 import com.example.demo.dto.FlashCardRequestDto;
 import com.example.demo.dto.ProcessAiRequestDto;
 import com.example.demo.dto.ProcessAiResponseDto;
 import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.dto.TaskStatusBatchRequestDto;
+import com.example.demo.dto.TaskStatusBatchResponseDto;
 import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.dto.VideoDto;
 import com.example.demo.dto.VideoUriRequestDto;
 import com.example.demo.dto.VideoUriResponseDto;
 import com.example.demo.dto.AnswerEvaluationRequestDto;
 import com.example.demo.dto.AnswerEvaluationResponseDto;
+import com.example.demo.client.PythonEndpoints.Group;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 
+import io.netty.buffer.Unpooled;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 import org.springframework.core.ParameterizedTypeReference;
 
 @Component
 public class ApiClient {
-    private final WebClient webClient;
+    // Gemini bills video at roughly this many tokens per second of footage (frames plus audio)
+    private static final long VIDEO_TOKENS_PER_SECOND = 300;
+
+    // One WebClient per endpoint group, each on its group's pool and timeouts
+    private final Map<Group, WebClient> webClients = new EnumMap<>(Group.class);
+    // Upload group's client; used where the body is written straight from a file
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
     private final String apiKey;
     private final String modelName;
     private final String modelProvider;
+    // Uploads, flash card generation and chat wait here for a slot before they reach Python
+    private final AdmissionControl admissionControl;
+    private final ModelRateLimiter rateLimiter;
+    private final PythonEndpoints endpoints;
     
     public ApiClient(
             @Value("${api.base-url}") String baseUrl,
             @Value("${api.key}") String apiKey,
             @Value("${api.model-name}") String modelName,
-            @Value("${api.model-provider}") String modelProvider) {
+            @Value("${api.model-provider}") String modelProvider,
+            AdmissionControl admissionControl,
+            ModelRateLimiter rateLimiter,
+            PythonEndpoints endpoints) {
         
         this.apiKey = apiKey;
+        this.admissionControl = admissionControl;
+        this.rateLimiter = rateLimiter;
+        this.endpoints = endpoints;
         this.modelName = modelName;
         this.modelProvider = modelProvider;
     
         // Create ObjectMapper with snake_case property naming
-        ObjectMapper objectMapper = new ObjectMapper()
+        this.objectMapper = new ObjectMapper()
                 .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         
@@ -65,17 +106,41 @@ public class ApiClient {
                 })
                 .build();
         
-        this.webClient = WebClient.builder()
-                .baseUrl(baseUrl)
-                .exchangeStrategies(exchangeStrategies)
-                .build();
+        for (Group group : Group.values()) {
+            webClients.put(group, WebClient.builder()
+                    .baseUrl(baseUrl)
+                    .clientConnector(new ReactorClientHttpConnector(endpoints.httpClient(group)))
+                    .exchangeStrategies(exchangeStrategies)
+                    .build());
+        }
+        this.httpClient = endpoints.httpClient(Group.UPLOAD).baseUrl(baseUrl);
                 }
     
     public Mono<TaskResponseDto> getTaskStatus(String taskId) {
-        return webClient.get()
+        return endpoints.read(Group.STATUS, webClients.get(Group.STATUS).get()
                 .uri("/api/task-status/{taskId}", taskId)
                 .retrieve()
-                .bodyToMono(TaskResponseDto.class);
+                .bodyToMono(TaskResponseDto.class));
+    }
+
+    // One round trip for several task ids; the result is keyed by task id. A POST, but it only reads,
+    // so it is retried like the single status GET
+    public Mono<Map<String, TaskResponseDto>> getTaskStatuses(Collection<String> taskIds) {
+        TaskStatusBatchRequestDto request = new TaskStatusBatchRequestDto();
+        request.setTaskIds(new ArrayList<>(taskIds));
+        return endpoints.read(Group.STATUS, webClients.get(Group.STATUS).post()
+                .uri("/api/task-statuses")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(TaskStatusBatchResponseDto.class))
+                .map(response -> {
+                    Map<String, TaskResponseDto> statuses = new HashMap<>();
+                    if (response.getTasks() != null) {
+                        response.getTasks().forEach(status -> statuses.put(status.getTaskId(), status));
+                    }
+                    return statuses;
+                });
     }
 
         public Mono<AnswerEvaluationResponseDto> evaluateFlashCardAnswer(
@@ -89,22 +154,26 @@ public class ApiClient {
                         body.put("collection_name", collectionName);
                 }
 
-                return webClient.post()
+                return endpoints.call(Group.OTHER, webClients.get(Group.OTHER).post()
                                 .uri("/api/evaluate_flash_card_answer")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .bodyValue(body)
                                 .retrieve()
-                                .bodyToMono(AnswerEvaluationResponseDto.class);
+                                .bodyToMono(AnswerEvaluationResponseDto.class));
         }
-    
-        public Mono<UploadResponseDto> uploadPdfFile(MultipartFile file, String collectionName) {
+
+    // PDF, DOCX or PPTX (Python tells them apart by content type); flash cards can be skipped for known re-uploads
+    public Mono<UploadResponseDto> uploadDocument(MultipartFile file, String collectionName, boolean generateFlashCards) {
         MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
         parts.add("file", file.getResource());
-                if (collectionName != null) {
-                        parts.add("collection_name", collectionName);
-                }
-        
-        return webClient.post()
+        if (collectionName != null) {
+            parts.add("collection_name", collectionName);
+        }
+        if (!generateFlashCards) {
+            parts.add("generate_flash_cards", "false");
+        }
+
+        return guardUpload(file.getOriginalFilename(), file.getSize(), generateFlashCards, webClients.get(Group.UPLOAD).post()
                 .uri(uriBuilder -> uriBuilder
                         .path("/api/upload/")
                         .queryParam("api_key", apiKey)
@@ -112,55 +181,155 @@ public class ApiClient {
                 .contentType(MediaType.MULTIPART_FORM_DATA)
                 .bodyValue(parts)
                 .retrieve()
-                .bodyToMono(UploadResponseDto.class);
+                .bodyToMono(UploadResponseDto.class));
     }
     
-        public Mono<UploadResponseDto> uploadDocxFile(MultipartFile file, String collectionName) {
+        public Mono<UploadResponseDto> uploadVideo(MultipartFile file) {
         MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
         parts.add("file", file.getResource());
-                if (collectionName != null) {
-                        parts.add("collection_name", collectionName);
-                }
         
-        return webClient.post()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/upload/")
-                        .queryParam("api_key", apiKey)
-                        .build())
+        return guard(AdmissionControl.Operation.UPLOAD, modelProvider, modelName, 1, 0, webClients.get(Group.UPLOAD).post()
+                .uri("/api/upload/")
                 .contentType(MediaType.MULTIPART_FORM_DATA)
                 .bodyValue(parts)
                 .retrieve()
-                .bodyToMono(UploadResponseDto.class);
+                .bodyToMono(UploadResponseDto.class));
     }
 
-        public Mono<UploadResponseDto> uploadPptxFile(MultipartFile file, String collectionName) {
-        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
-        parts.add("file", file.getResource());
-                if (collectionName != null) {
-                        parts.add("collection_name", collectionName);
-                }
-
-        return webClient.post()
+    // Same /api/upload/ request, but the file part is written from the buffers as they arrive
+    public Mono<UploadResponseDto> uploadFileStream(Flux<DataBuffer> content, long contentLength, String filename,
+                                                    String collectionName) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        // Python picks the pipeline from the part's content type, as it would for a MultipartFile
+        builder.asyncPart("file", content, DataBuffer.class)
+                .filename(filename)
+                .contentType(MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM));
+        if (collectionName != null) {
+            builder.part("collection_name", collectionName);
+        }
+        return guardUpload(filename, contentLength, true, webClients.get(Group.UPLOAD).post()
                 .uri(uriBuilder -> uriBuilder
                         .path("/api/upload/")
                         .queryParam("api_key", apiKey)
                         .build())
                 .contentType(MediaType.MULTIPART_FORM_DATA)
-                .bodyValue(parts)
+                .body(BodyInserters.fromMultipartData(builder.build()))
                 .retrieve()
-                .bodyToMono(UploadResponseDto.class);
+                .bodyToMono(UploadResponseDto.class));
     }
-    
-        public Mono<UploadResponseDto> uploadVideo(MultipartFile file) {
-        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
-        parts.add("file", file.getResource());
-        
-        return webClient.post()
-                .uri("/api/upload/")
-                .contentType(MediaType.MULTIPART_FORM_DATA)
-                .bodyValue(parts)
-                .retrieve()
-                .bodyToMono(UploadResponseDto.class);
+
+    /**
+     * Sends a staged file to /api/upload/ as the multipart "file" part. The part headers and closing
+     * boundary are written as small buffers around {@code sendFile}, which Netty turns into a
+     * {@code FileRegion} (transferTo from the page cache) on plain-text connections.
+     */
+    public Mono<UploadResponseDto> uploadFile(Path file, String filename, String collectionName, boolean generateFlashCards) {
+        String boundary = UUID.randomUUID().toString();
+        StringBuilder head = new StringBuilder();
+        if (collectionName != null) {
+            appendField(head, boundary, "collection_name", collectionName);
+        }
+        if (!generateFlashCards) {
+            appendField(head, boundary, "generate_flash_cards", "false");
+        }
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"")
+                .append(filename.replace("\"", "%22")).append("\"\r\n")
+                .append("Content-Type: ")
+                .append(MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .append("\r\n\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] tailBytes = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        long fileSize;
+        try {
+            fileSize = Files.size(file);
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+        String uri = UriComponentsBuilder.fromPath("/api/upload/").queryParam("api_key", apiKey).encode().toUriString();
+
+        return guardUpload(filename, fileSize, generateFlashCards, httpClient
+                .headers(headers -> headers
+                        .set(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary)
+                        .set(HttpHeaders.CONTENT_LENGTH, headBytes.length + fileSize + tailBytes.length))
+                .post()
+                .uri(uri)
+                // Each piece is sent on the outbound itself, and as a Flux: a Mono send would be taken as
+                // the complete request body and end the request before the file goes out
+                .send((request, outbound) -> outbound.sendObject(Flux.just(Unpooled.wrappedBuffer(headBytes)))
+                        .then(outbound.sendFile(file))
+                        .then(outbound.sendObject(Flux.just(Unpooled.wrappedBuffer(tailBytes)))))
+                .responseSingle((response, body) -> body.asByteArray()
+                        .defaultIfEmpty(new byte[0])
+                        .flatMap(bytes -> {
+                            int status = response.status().code();
+                            if (status >= 400) {
+                                return Mono.error(WebClientResponseException.create(status,
+                                        response.status().reasonPhrase(), null, bytes, StandardCharsets.UTF_8));
+                            }
+                            try {
+                                return Mono.just(objectMapper.readValue(bytes, UploadResponseDto.class));
+                            } catch (IOException e) {
+                                return Mono.error(e);
+                            }
+                        })));
+    }
+
+    // Model quota first (delayed or shed), then an admission slot, so waiting out the quota holds no slot
+    private <T> Mono<T> guard(AdmissionControl.Operation operation, String provider, String model,
+                              int requests, long promptTokens, Mono<T> call) {
+        return rateLimiter.limit(provider, model, requests, promptTokens,
+                admissionControl.admit(operation, endpoints.call(group(operation), call)));
+    }
+
+    private static Group group(AdmissionControl.Operation operation) {
+        switch (operation) {
+            case UPLOAD:
+                return Group.UPLOAD;
+            case FLASH_CARDS:
+                return Group.FLASH_CARDS;
+            default:
+                return Group.CHAT;
+        }
+    }
+
+    // Documents are summarised and (unless skipped) turned into flash cards: one or two model calls over
+    // their text. Video bytes go to the file API; their tokens are counted when flash cards are made
+    private <T> Mono<T> guardUpload(String filename, long size, boolean generateFlashCards, Mono<T> call) {
+        boolean video = filename != null && MediaTypeFactory.getMediaType(filename)
+                .map(type -> "video".equals(type.getType()))
+                .orElse(false);
+        if (video) {
+            return guard(AdmissionControl.Operation.UPLOAD, modelProvider, modelName, 1, 0, call);
+        }
+        return guard(AdmissionControl.Operation.UPLOAD, modelProvider, modelName, generateFlashCards ? 2 : 1,
+                rateLimiter.tokensForBytes(size), call);
+    }
+
+    private static long promptCharacters(ProcessAiRequestDto request) {
+        long characters = request.getSystemInstructionText() != null ? request.getSystemInstructionText().length() : 0;
+        if (request.getConversationHistory() != null && request.getConversationHistory().getMessages() != null) {
+            characters += request.getConversationHistory().getMessages().stream()
+                    .mapToLong(message -> message.getContent() != null ? message.getContent().length() : 0)
+                    .sum();
+        }
+        return characters;
+    }
+
+    private static long videoTokens(VideoDto video) {
+        if (video == null || video.getDuration() == null) {
+            return 0;
+        }
+        VideoDto.DurationDto duration = video.getDuration();
+        long seconds = (duration.getMinutes() != null ? duration.getMinutes() * 60L : 0)
+                + (duration.getSeconds() != null ? duration.getSeconds() : 0);
+        return seconds * VIDEO_TOKENS_PER_SECOND;
+    }
+
+    private static void appendField(StringBuilder body, String boundary, String name, String value) {
+        body.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n");
     }
 
     public Mono<UploadResponseDto> uploadXmlFile(MultipartFile file, String collectionName) {
@@ -169,7 +338,7 @@ public class ApiClient {
         if (collectionName != null) {
             parts.add("collection_name", collectionName);
         }
-        return webClient.post()
+        return guardUpload(file.getOriginalFilename(), file.getSize(), true, webClients.get(Group.UPLOAD).post()
                 .uri(uriBuilder -> uriBuilder
                         .path("/api/upload/")
                         .queryParam("api_key", apiKey)
@@ -177,30 +346,30 @@ public class ApiClient {
                 .contentType(MediaType.MULTIPART_FORM_DATA)
                 .bodyValue(parts)
                 .retrieve()
-                .bodyToMono(UploadResponseDto.class);
+                .bodyToMono(UploadResponseDto.class));
     }
 
                         public Mono<Map<String, Object>> deleteFileFromCollection(String collectionName, String fileId) {
                 MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
                 parts.add("collection_name", collectionName);
                 parts.add("file_id", fileId);
-                return webClient.post()
+                return endpoints.call(Group.OTHER, webClients.get(Group.OTHER).post()
                                 .uri("/api/delete_file_from_collection")
                                 .contentType(MediaType.MULTIPART_FORM_DATA)
                                 .bodyValue(parts)
                                 .retrieve()
-                        .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {});
+                        .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {}));
         }
 
         public Mono<Map<String, Object>> deleteCollection(String collectionName) {
                 MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
                 parts.add("collection_name", collectionName);
-                return webClient.post()
+                return endpoints.call(Group.OTHER, webClients.get(Group.OTHER).post()
                                 .uri("/api/delete_collection")
                                 .contentType(MediaType.MULTIPART_FORM_DATA)
                                 .bodyValue(parts)
                                 .retrieve()
-                                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {});
+                                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {}));
         }
     
     public Mono<VideoUriResponseDto> getVideoUri(VideoUriRequestDto request) {
@@ -221,17 +390,64 @@ public class ApiClient {
         
         System.out.println("Sending getVideoUri request with: " + requestMap);
         
-        return webClient.post()
+        return endpoints.call(Group.OTHER, webClients.get(Group.OTHER).post()
                 .uri("/api/get_video_uri")
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(requestMap)
                 .retrieve()
-                .bodyToMono(VideoUriResponseDto.class)
+                .bodyToMono(VideoUriResponseDto.class))
                 .doOnNext(response -> System.out.println("Received getVideoUri response: " + response))
                 .doOnError(error -> System.err.println("Error in getVideoUri: " + error.getMessage()));
         }
     
     public Mono<ProcessAiResponseDto> processAi(ProcessAiRequestDto request) {
+        String provider = request.getModelProvider() != null ? request.getModelProvider() : modelProvider;
+        String model = request.getModelName() != null ? request.getModelName() : modelName;
+        Map<String, Object> requestMap = processAiBody(request);
+        
+        System.out.println("Sending process-ai request: " + requestMap);
+        
+        return guard(AdmissionControl.Operation.CHAT, provider, model, 1, rateLimiter.tokensForText(promptCharacters(request)), webClients.get(Group.CHAT).post()
+                .uri("/api/process-ai")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestMap)
+                .retrieve()
+                .bodyToMono(ProcessAiResponseDto.class)
+                .doOnNext(response -> System.out.println("Received process-ai response: " + response))
+                .doOnError(error -> {
+                        System.err.println("Error in processAi: " + error.getMessage());
+                        if (error instanceof WebClientResponseException) {
+                        WebClientResponseException wcre = (WebClientResponseException) error;
+                        System.err.println("Response body: " + wcre.getResponseBodyAsString());
+                        }
+                }));
+        }
+    
+    /**
+     * Streams the reply to a chat turn from /api/process-ai/stream: "token" events with text as the
+     * model produces it, then "done" with the whole reply, or "error". Same guards as {@link #processAi}.
+     */
+    public Flux<ChatStreamEventDto> streamAi(ProcessAiRequestDto request) {
+        String provider = request.getModelProvider() != null ? request.getModelProvider() : modelProvider;
+        String model = request.getModelName() != null ? request.getModelName() : modelName;
+        Flux<ChatStreamEventDto> events = webClients.get(Group.CHAT).post()
+                .uri("/api/process-ai/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(processAiBody(request))
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<ChatStreamEventDto>>() {})
+                .filter(event -> event.event() != null && event.data() != null)
+                .map(event -> {
+                    ChatStreamEventDto data = event.data();
+                    data.setEvent(event.event());
+                    return data;
+                });
+        return rateLimiter.limit(provider, model, 1, rateLimiter.tokensForText(promptCharacters(request)),
+                admissionControl.admit(AdmissionControl.Operation.CHAT, endpoints.stream(Group.CHAT, events)));
+    }
+
+    private Map<String, Object> processAiBody(ProcessAiRequestDto request) {
         // Create a map for the request body
         Map<String, Object> requestMap = new HashMap<>();
         
@@ -270,7 +486,6 @@ public class ApiClient {
                 requestMap.put("conversation_history", conversationMap);
         }
         
-        // Rest of your existing code...
         // Add PDF or DOCX collection name if available
         if (request.getPdfCollectionName() != null) {
                 requestMap.put("pdf_collection_name", request.getPdfCollectionName());
@@ -302,23 +517,8 @@ public class ApiClient {
                 requestMap.put("video", videoMap);
         }
         
-        System.out.println("Sending process-ai request: " + requestMap);
-        
-        return webClient.post()
-                .uri("/api/process-ai")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(requestMap)
-                .retrieve()
-                .bodyToMono(ProcessAiResponseDto.class)
-                .doOnNext(response -> System.out.println("Received process-ai response: " + response))
-                .doOnError(error -> {
-                        System.err.println("Error in processAi: " + error.getMessage());
-                        if (error instanceof WebClientResponseException) {
-                        WebClientResponseException wcre = (WebClientResponseException) error;
-                        System.err.println("Response body: " + wcre.getResponseBodyAsString());
-                        }
-                });
-        }
+        return requestMap;
+    }
     
     public Mono<TaskResponseDto> createFlashCards(FlashCardRequestDto request) {
         // Create a map for the request body
@@ -374,7 +574,7 @@ public class ApiClient {
         System.out.println("Sending flash card request: " + requestMap);
         
         // API key is sent as a query parameter, not in the body
-        return webClient.post()
+        return guard(AdmissionControl.Operation.FLASH_CARDS, modelProvider, modelName, 1, videoTokens(request.getVideo()), webClients.get(Group.FLASH_CARDS).post()
                 .uri(uriBuilder -> uriBuilder
                         .path("/api/create_flash_cards")
                         .queryParam("api_key", apiKey)
@@ -390,7 +590,7 @@ public class ApiClient {
                         WebClientResponseException wcre = (WebClientResponseException) error;
                         System.err.println("Response body: " + wcre.getResponseBodyAsString());
                         }
-                });
+                }));
         }
 
     public Mono<TaskResponseDto> exportQuizFromQuestions(java.util.List<java.util.Map<String, Object>> questions,
@@ -399,20 +599,20 @@ public class ApiClient {
         body.put("questions", questions);
         body.put("collection_name", collectionName);
         body.put("api_key", apiKey);
-        return webClient.post()
+        return endpoints.call(Group.OTHER, webClients.get(Group.OTHER).post()
                 .uri("/api/export_quiz")
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(body)
                 .retrieve()
-                .bodyToMono(TaskResponseDto.class);
+                .bodyToMono(TaskResponseDto.class));
     }
 
     public Mono<byte[]> downloadExportedQuiz(String taskId) {
-        return webClient.get()
+        return endpoints.read(Group.OTHER, webClients.get(Group.OTHER).get()
                 .uri("/api/export_quiz/{taskId}/download", taskId)
                 .accept(MediaType.APPLICATION_XML)
                 .retrieve()
-                .bodyToMono(byte[].class);
+                .bodyToMono(byte[].class));
     }
 
     
@@ -0,0 +1,205 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Count-based circuit breaker for one Python endpoint group. It opens once at least
+ * {@code minimumCalls} of the last {@code windowSize} calls were recorded and the failure rate
+ * reaches the threshold, fails calls fast while open, and after {@code openDuration} lets
+ * {@code halfOpenCalls} trial calls through: all succeed and it closes, any fails and it opens again.
+ *
+ * The state is published as the {@code python.breaker.state} gauge (0 closed, 1 open, 2 half-open)
+ * and every transition is counted and logged.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final boolean[] outcomes;
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.halfOpenCalls = halfOpenCalls;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+        Gauge.builder("python.breaker.state", this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state per Python endpoint group (0 closed, 1 open, 2 half-open)")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} if the breaker lets it through and records its outcome; errors matching
+     * {@code isFailure} count against the endpoint, other errors (4xx answers) show it is responsive.
+     */
+    public <T> Mono<T> protect(Mono<T> call, Predicate<Throwable> isFailure) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(unavailable());
+            }
+            AtomicBoolean recordedOutcome = new AtomicBoolean();
+            return call
+                    .doOnSuccess(value -> {
+                        if (recordedOutcome.compareAndSet(false, true)) {
+                            onResult(false);
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (recordedOutcome.compareAndSet(false, true)) {
+                            onResult(isFailure.test(error));
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recordedOutcome.compareAndSet(false, true)) {
+                            onCancel();
+                        }
+                    });
+        });
+    }
+
+    /** As {@link #protect(Mono, Predicate)} for a streamed call, which succeeds once it completes. */
+    public <T> Flux<T> protect(Flux<T> call, Predicate<Throwable> isFailure) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(unavailable());
+            }
+            AtomicBoolean recordedOutcome = new AtomicBoolean();
+            return call
+                    .doOnComplete(() -> {
+                        if (recordedOutcome.compareAndSet(false, true)) {
+                            onResult(false);
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (recordedOutcome.compareAndSet(false, true)) {
+                            onResult(isFailure.test(error));
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recordedOutcome.compareAndSet(false, true)) {
+                            onCancel();
+                        }
+                    });
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenStarted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenStarted++;
+        }
+        return true;
+    }
+
+    synchronized void onResult(boolean failed) {
+        if (state == State.HALF_OPEN) {
+            if (failed) {
+                transition(State.OPEN);
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call admitted before the breaker opened; the window restarts when it closes
+            return;
+        }
+        if (recorded == windowSize && outcomes[position]) {
+            failures--;
+        }
+        outcomes[position] = failed;
+        position = (position + 1) % windowSize;
+        recorded = Math.min(recorded + 1, windowSize);
+        if (failed) {
+            failures++;
+        }
+        if (recorded >= minimumCalls && failures * 100.0 / recorded >= failureRateThreshold) {
+            transition(State.OPEN);
+        }
+    }
+
+    // A cancelled trial call gives its slot back without deciding anything
+    private synchronized void onCancel() {
+        if (state == State.HALF_OPEN && halfOpenStarted > halfOpenSucceeded) {
+            halfOpenStarted--;
+        }
+    }
+
+    private EndpointUnavailableException unavailable() {
+        return new EndpointUnavailableException("Python endpoint group " + name
+                + " is unavailable, try again later", Duration.ofMillis(remainingOpenMillis()));
+    }
+
+    private synchronized long remainingOpenMillis() {
+        return state == State.OPEN ? Math.max(0, openMillis - (clock.getAsLong() - openedAt)) : 0;
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        halfOpenStarted = 0;
+        halfOpenSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = clock.getAsLong();
+        }
+        meterRegistry.counter("python.breaker.transitions", "endpoint", name,
+                "state", next.name().toLowerCase(Locale.ROOT)).increment();
+        if (next == State.OPEN) {
+            logger.warn("Circuit breaker for Python endpoint group {} opened (was {})", name, previous);
+        } else {
+            logger.info("Circuit breaker for Python endpoint group {} is now {} (was {})", name, next, previous);
+        }
+    }
+}
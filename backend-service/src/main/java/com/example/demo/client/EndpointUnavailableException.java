@@ -0,0 +1,32 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A Python endpoint group is not taking calls: its circuit breaker is open or its connection pool
+ * is saturated. Surfaces as 503 with a {@code Retry-After} header in the web layer.
+ */
+public class EndpointUnavailableException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public EndpointUnavailableException(String reason, Duration retryAfter) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.client;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.resolver.AddressResolverGroup;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.TransportConfig;
+
+/**
+ * Connection pool for one Python endpoint group that publishes its state: active, idle, pending and
+ * allocated connections as {@code python.pool.*} gauges, and the time a request waits for a
+ * connection as the {@code python.pool.acquire} timer, all tagged with the pool name.
+ */
+final class MeteredConnectionProvider implements ConnectionProvider {
+
+    private final ConnectionProvider pool;
+    private final String poolName;
+    private final MeterRegistry meterRegistry;
+    private final Timer acquireTimer;
+    private final List<Meter> gauges = new CopyOnWriteArrayList<>();
+
+    MeteredConnectionProvider(ConnectionProvider.Builder builder, String poolName, MeterRegistry meterRegistry) {
+        this.poolName = poolName;
+        this.meterRegistry = meterRegistry;
+        this.acquireTimer = Timer.builder("python.pool.acquire")
+                .description("Time a request waited for a connection from the pool")
+                .tag("pool", poolName)
+                .register(meterRegistry);
+        this.pool = builder.metrics(true, () -> new Registrar()).build();
+    }
+
+    @Override
+    public Mono<? extends Connection> acquire(TransportConfig config, ConnectionObserver observer,
+                                              Supplier<? extends SocketAddress> remoteAddress,
+                                              AddressResolverGroup<?> resolverGroup) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return pool.acquire(config, observer, remoteAddress, resolverGroup)
+                    .doOnSuccess(connection -> sample.stop(acquireTimer));
+        });
+    }
+
+    @Override
+    public void disposeWhen(SocketAddress address) {
+        pool.disposeWhen(address);
+    }
+
+    @Override
+    public Mono<Void> disposeLater() {
+        return pool.disposeLater();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pool.isDisposed();
+    }
+
+    @Override
+    public int maxConnections() {
+        return pool.maxConnections();
+    }
+
+    @Override
+    public Map<SocketAddress, Integer> maxConnectionsPerHost() {
+        return pool.maxConnectionsPerHost();
+    }
+
+    @Override
+    public Builder mutate() {
+        return pool.mutate();
+    }
+
+    @Override
+    public String name() {
+        return pool.name();
+    }
+
+    // Reactor Netty creates one pool per remote address; the Python service is a single address
+    private final class Registrar implements ConnectionProvider.MeterRegistrar {
+
+        @Override
+        public void registerMetrics(String name, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            gauge("python.pool.active", "Connections handed out to requests", metrics, ConnectionPoolMetrics::acquiredSize);
+            gauge("python.pool.idle", "Open connections waiting for a request", metrics, ConnectionPoolMetrics::idleSize);
+            gauge("python.pool.pending", "Requests waiting for a connection", metrics,
+                    ConnectionPoolMetrics::pendingAcquireSize);
+            gauge("python.pool.allocated", "Open connections, active or idle", metrics,
+                    ConnectionPoolMetrics::allocatedSize);
+            gauge("python.pool.max", "Most connections the pool will open", metrics,
+                    ConnectionPoolMetrics::maxAllocatedSize);
+        }
+
+        @Override
+        public void deRegisterMetrics(String name, String id, SocketAddress remoteAddress) {
+            gauges.forEach(meterRegistry::remove);
+            gauges.clear();
+        }
+
+        private void gauge(String name, String description, ConnectionPoolMetrics metrics,
+                           ToIntFunction<ConnectionPoolMetrics> value) {
+            gauges.add(Gauge.builder(name, metrics, pool -> value.applyAsInt(pool))
+                    .description(description)
+                    .tag("pool", poolName)
+                    .strongReference(true)
+                    .register(meterRegistry));
+        }
+    }
+}
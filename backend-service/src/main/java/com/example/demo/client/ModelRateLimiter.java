@@ -0,0 +1,237 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the work we send to Python inside the LLM quota of each provider/model. Every model has a
+ * requests-per-minute and a tokens-per-minute token bucket; a call reserves its estimated share of
+ * both and is delayed until the buckets cover it. When that delay would exceed {@code max-delay-ms}
+ * the call is shed with {@link AdmissionRejectedException} instead, so it fails here with a
+ * Retry-After rather than late inside a Celery task.
+ *
+ * Token counts are estimates ({@code chars-per-token} over text, file sizes over documents); a call
+ * estimated above a full bucket only waits for a full bucket.
+ */
+@Component
+public class ModelRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRateLimiter.class);
+
+    private final boolean enabled;
+    private final long defaultRequestsPerMinute;
+    private final long defaultTokensPerMinute;
+    private final Map<String, long[]> modelLimits;
+    private final Duration maxDelay;
+    private final int charsPerToken;
+    private final long responseTokens;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+    private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ModelRateLimiter(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${app.rate-limit.default-rpm:60}") long defaultRequestsPerMinute,
+                            @Value("${app.rate-limit.default-tpm:1000000}") long defaultTokensPerMinute,
+                            @Value("${app.rate-limit.models:}") String modelLimits,
+                            @Value("${app.rate-limit.max-delay-ms:10000}") long maxDelayMs,
+                            @Value("${app.rate-limit.chars-per-token:4}") int charsPerToken,
+                            @Value("${app.rate-limit.response-tokens:1024}") long responseTokens,
+                            MeterRegistry meterRegistry) {
+        this(enabled, defaultRequestsPerMinute, defaultTokensPerMinute, modelLimits, maxDelayMs, charsPerToken,
+                responseTokens, meterRegistry, System::currentTimeMillis);
+    }
+
+    ModelRateLimiter(boolean enabled, long defaultRequestsPerMinute, long defaultTokensPerMinute, String modelLimits,
+                     long maxDelayMs, int charsPerToken, long responseTokens, MeterRegistry meterRegistry,
+                     LongSupplier clock) {
+        this.enabled = enabled;
+        this.defaultRequestsPerMinute = defaultRequestsPerMinute;
+        this.defaultTokensPerMinute = defaultTokensPerMinute;
+        this.modelLimits = parseLimits(modelLimits);
+        this.maxDelay = Duration.ofMillis(maxDelayMs);
+        this.charsPerToken = Math.max(1, charsPerToken);
+        this.responseTokens = responseTokens;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs {@code call} once the model's buckets cover {@code requests} requests and {@code promptTokens}
+     * input tokens, plus {@code response-tokens} of output for each request.
+     */
+    public <T> Mono<T> limit(String provider, String model, int requests, long promptTokens, Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        long tokens = promptTokens + requests * responseTokens;
+        return reserve(provider, model, requests, tokens)
+                .flatMap(quota -> call.doOnError(ModelRateLimiter::refusedDownstream,
+                        error -> quota.refund(requests, tokens, clock.getAsLong())));
+    }
+
+    /** As {@link #limit(String, String, int, long, Mono)} for a streamed call. */
+    public <T> Flux<T> limit(String provider, String model, int requests, long promptTokens, Flux<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        long tokens = promptTokens + requests * responseTokens;
+        return reserve(provider, model, requests, tokens)
+                .flatMapMany(quota -> call.doOnError(ModelRateLimiter::refusedDownstream,
+                        error -> quota.refund(requests, tokens, clock.getAsLong())));
+    }
+
+    // Emits the quota once the call may go (at once or after a delay), or fails if it would wait too long
+    private Mono<Quota> reserve(String provider, String model, int requests, long tokens) {
+        return Mono.defer(() -> {
+            Quota quota = quota(provider, model);
+            long waitMillis = quota.reserve(requests, tokens, clock.getAsLong(), maxDelay.toMillis());
+            if (waitMillis < 0) {
+                long retryAfter = quota.waitFor(requests, tokens, clock.getAsLong());
+                meterRegistry.counter("ratelimit.shed", "model", quota.key).increment();
+                logger.warn("Shed call to {} ({} requests, ~{} tokens): quota exhausted for {}ms",
+                        quota.key, requests, tokens, retryAfter);
+                return Mono.error(new AdmissionRejectedException("Model quota for " + quota.key
+                        + " is exhausted, try again later", Duration.ofSeconds(Math.max(1, (retryAfter + 999) / 1000))));
+            }
+            meterRegistry.timer("ratelimit.delay", "model", quota.key).record(Duration.ofMillis(waitMillis));
+            return waitMillis > 0 ? Mono.delay(Duration.ofMillis(waitMillis)).thenReturn(quota) : Mono.just(quota);
+        });
+    }
+
+    // Calls refused further down never reached the model, so their share goes back
+    private static boolean refusedDownstream(Throwable error) {
+        return error instanceof AdmissionRejectedException || error instanceof EndpointUnavailableException;
+    }
+
+    public long tokensForText(long characters) {
+        return (characters + charsPerToken - 1) / charsPerToken;
+    }
+
+    public long tokensForBytes(long bytes) {
+        return bytes < 0 ? 0 : tokensForText(bytes);
+    }
+
+    private Quota quota(String provider, String model) {
+        String key = (provider == null ? "" : provider.toLowerCase(Locale.ROOT)) + ":"
+                + (model == null ? "" : model.toLowerCase(Locale.ROOT));
+        return quotas.computeIfAbsent(key, k -> {
+            long[] limits = modelLimits.getOrDefault(k, new long[] { defaultRequestsPerMinute, defaultTokensPerMinute });
+            Quota quota = new Quota(k, limits[0], limits[1], clock.getAsLong());
+            Gauge.builder("ratelimit.tokens.available", quota, q -> q.available(clock.getAsLong()))
+                    .description("Estimated LLM tokens left in the current minute")
+                    .tag("model", k)
+                    .register(meterRegistry);
+            return quota;
+        });
+    }
+
+    // "gemini:gemini-2.0-flash=2000/4000000" -> 2000 requests and 4M tokens per minute for that model
+    private static Map<String, long[]> parseLimits(String spec) {
+        Map<String, long[]> limits = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return limits;
+        }
+        for (String entry : spec.split(",")) {
+            String[] keyAndLimits = entry.trim().split("=");
+            String[] values = keyAndLimits.length == 2 ? keyAndLimits[1].split("/") : new String[0];
+            if (values.length != 2) {
+                throw new IllegalArgumentException("Invalid app.rate-limit.models entry: " + entry);
+            }
+            limits.put(keyAndLimits[0].trim().toLowerCase(Locale.ROOT),
+                    new long[] { Long.parseLong(values[0].trim()), Long.parseLong(values[1].trim()) });
+        }
+        return limits;
+    }
+
+    private static final class Quota {
+        private final String key;
+        private final Bucket requests;
+        private final Bucket tokens;
+
+        private Quota(String key, long requestsPerMinute, long tokensPerMinute, long now) {
+            this.key = key;
+            this.requests = new Bucket(requestsPerMinute, now);
+            this.tokens = new Bucket(tokensPerMinute, now);
+        }
+
+        // Takes the share now and returns how long to wait for it, or -1 (taking nothing) if over maxWait
+        synchronized long reserve(int requestCount, long tokenCount, long now, long maxWait) {
+            long wait = waitFor(requestCount, tokenCount, now);
+            if (wait > maxWait) {
+                return -1;
+            }
+            requests.take(requestCount);
+            tokens.take(tokenCount);
+            return wait;
+        }
+
+        synchronized long waitFor(int requestCount, long tokenCount, long now) {
+            requests.refill(now);
+            tokens.refill(now);
+            return Math.max(requests.waitMillis(requestCount), tokens.waitMillis(tokenCount));
+        }
+
+        synchronized void refund(int requestCount, long tokenCount, long now) {
+            requests.refill(now);
+            tokens.refill(now);
+            requests.give(requestCount);
+            tokens.give(tokenCount);
+        }
+
+        synchronized double available(long now) {
+            tokens.refill(now);
+            return tokens.available;
+        }
+    }
+
+    // Refills continuously at capacity per minute; a reservation may drive it negative (the debt is waited out)
+    private static final class Bucket {
+        private final double capacity;
+        private final double perMilli;
+        private double available;
+        private long updatedAt;
+
+        private Bucket(long perMinute, long now) {
+            this.capacity = perMinute;
+            this.perMilli = perMinute / 60_000.0;
+            this.available = perMinute;
+            this.updatedAt = now;
+        }
+
+        private void refill(long now) {
+            if (now > updatedAt) {
+                available = Math.min(capacity, available + (now - updatedAt) * perMilli);
+                updatedAt = now;
+            }
+        }
+
+        private long waitMillis(double amount) {
+            double needed = Math.min(amount, capacity) - available;
+            return needed <= 0 ? 0 : (long) Math.ceil(needed / perMilli);
+        }
+
+        private void take(double amount) {
+            available -= Math.min(amount, capacity);
+        }
+
+        private void give(double amount) {
+            available = Math.min(capacity, available + Math.min(amount, capacity));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquirePendingLimitException;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquireTimeoutException;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+/**
+ * Per-endpoint policies for calls to the Python service. Each {@link Group} gets its own connection
+ * pool (a bulkhead: a hung chat endpoint cannot take the connections status polls need), its own
+ * connect and response timeouts, and its own {@link CircuitBreaker}. Idempotent reads are retried
+ * with jittered backoff; everything else is tried once.
+ *
+ * Pooled connections are kept alive but closed before uvicorn's 5s keep-alive timeout would close
+ * them under a request, and recycled after a maximum lifetime. h2c can be switched on per group;
+ * the client then offers an upgrade and stays on HTTP/1.1 if the server declines it.
+ *
+ * Settings are read from {@code app.python.endpoints.<group>.<setting>}, falling back to
+ * {@code app.python.endpoints.default.<setting>} and then to the group's built-in default.
+ */
+@Component
+public class PythonEndpoints {
+
+    public enum Group {
+        STATUS("status", 10_000, 50, 2),
+        CHAT("chat", 30_000, 20, 0),
+        UPLOAD("upload", 300_000, 20, 0),
+        FLASH_CARDS("flash-cards", 30_000, 10, 0),
+        OTHER("other", 60_000, 10, 0);
+
+        private final String key;
+        private final long responseTimeoutMs;
+        private final int maxConnections;
+        private final int retries;
+
+        Group(String key, long responseTimeoutMs, int maxConnections, int retries) {
+            this.key = key;
+            this.responseTimeoutMs = responseTimeoutMs;
+            this.maxConnections = maxConnections;
+            this.retries = retries;
+        }
+    }
+
+    private final Map<Group, Endpoint> endpoints = new EnumMap<>(Group.class);
+
+    public PythonEndpoints(Environment environment, MeterRegistry meterRegistry) {
+        for (Group group : Group.values()) {
+            endpoints.put(group, new Endpoint(group, environment, meterRegistry));
+        }
+    }
+
+    /** HTTP client for the group: its own pool and timeouts. */
+    public HttpClient httpClient(Group group) {
+        return endpoints.get(group).httpClient;
+    }
+
+    /** One attempt, through the group's circuit breaker. */
+    public <T> Mono<T> call(Group group, Mono<T> request) {
+        Endpoint endpoint = endpoints.get(group);
+        return endpoint.breaker.protect(request, PythonEndpoints::isFailure)
+                .onErrorMap(PythonEndpoints::isPoolExhausted, error -> new EndpointUnavailableException(
+                        "Too many calls in progress to Python endpoint group " + group.key, Duration.ofSeconds(1)));
+    }
+
+    /** A streamed response through the group's circuit breaker; never retried, as tokens may already be out. */
+    public <T> Flux<T> stream(Group group, Flux<T> request) {
+        return endpoints.get(group).breaker.protect(request, PythonEndpoints::isFailure)
+                .onErrorMap(PythonEndpoints::isPoolExhausted, error -> new EndpointUnavailableException(
+                        "Too many calls in progress to Python endpoint group " + group.key, Duration.ofSeconds(1)));
+    }
+
+    /** Idempotent read: each attempt goes through the breaker, transient failures are retried with jitter. */
+    public <T> Mono<T> read(Group group, Mono<T> request) {
+        Endpoint endpoint = endpoints.get(group);
+        Mono<T> attempt = call(group, request);
+        if (endpoint.retries <= 0) {
+            return attempt;
+        }
+        return attempt.retryWhen(Retry.backoff(endpoint.retries, endpoint.retryBackoff)
+                .maxBackoff(endpoint.retryBackoff.multipliedBy(8))
+                .jitter(0.5)
+                .filter(PythonEndpoints::isFailure)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    public CircuitBreaker.State breakerState(Group group) {
+        return endpoints.get(group).breaker.getState();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        endpoints.values().forEach(endpoint -> endpoint.pool.dispose());
+    }
+
+    // Failures say something about the endpoint: no connection, no timely answer, or a 5xx
+    static boolean isFailure(Throwable error) {
+        if (error instanceof EndpointUnavailableException || isPoolExhausted(error)) {
+            return false;
+        }
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof IOException
+                || error instanceof TimeoutException
+                || error instanceof io.netty.handler.timeout.TimeoutException;
+    }
+
+    private static boolean isPoolExhausted(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PoolAcquirePendingLimitException || cause instanceof PoolAcquireTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Endpoint {
+        private final MeteredConnectionProvider pool;
+        private final HttpClient httpClient;
+        private final CircuitBreaker breaker;
+        private final int retries;
+        private final Duration retryBackoff;
+
+        private Endpoint(Group group, Environment environment, MeterRegistry meterRegistry) {
+            Settings settings = new Settings(environment, group.key);
+            int maxConnections = settings.getInt("max-connections", group.maxConnections);
+            ConnectionProvider.Builder builder = ConnectionProvider.builder("python-" + group.key)
+                    .maxConnections(maxConnections)
+                    .pendingAcquireMaxCount(settings.getInt("pending-acquire-max", maxConnections * 4))
+                    .pendingAcquireTimeout(Duration.ofMillis(settings.getLong("pending-acquire-timeout-ms", 10_000)))
+                    .maxIdleTime(Duration.ofMillis(settings.getLong("max-idle-time-ms", 4_000)))
+                    .maxLifeTime(Duration.ofMillis(settings.getLong("max-life-time-ms", 300_000)))
+                    .evictInBackground(Duration.ofMillis(settings.getLong("evict-in-background-ms", 30_000)));
+            this.pool = new MeteredConnectionProvider(builder, group.key, meterRegistry);
+            boolean keepAlive = settings.getBoolean("keep-alive", true);
+            HttpClient client = HttpClient.create(pool)
+                    .keepAlive(keepAlive)
+                    .option(ChannelOption.SO_KEEPALIVE, keepAlive)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.getInt("connect-timeout-ms", 5_000))
+                    .responseTimeout(Duration.ofMillis(settings.getLong("response-timeout-ms", group.responseTimeoutMs)));
+            this.httpClient = settings.getBoolean("h2c", false)
+                    ? client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+                    : client;
+            this.breaker = new CircuitBreaker(group.key,
+                    settings.getInt("breaker.window-size", 20),
+                    settings.getInt("breaker.minimum-calls", 10),
+                    settings.getDouble("breaker.failure-rate-threshold", 50),
+                    Duration.ofMillis(settings.getLong("breaker.open-ms", 30_000)),
+                    settings.getInt("breaker.half-open-calls", 3),
+                    meterRegistry, System::currentTimeMillis);
+            this.retries = settings.getInt("retries", group.retries);
+            this.retryBackoff = Duration.ofMillis(settings.getLong("retry-backoff-ms", 200));
+        }
+    }
+
+    private static final class Settings {
+        private final Environment environment;
+        private final String group;
+
+        private Settings(Environment environment, String group) {
+            this.environment = environment;
+            this.group = group;
+        }
+
+        private String get(String name) {
+            String value = environment.getProperty("app.python.endpoints." + group + "." + name);
+            return value != null ? value : environment.getProperty("app.python.endpoints.default." + name);
+        }
+
+        private int getInt(String name, int fallback) {
+            String value = get(name);
+            return value != null ? Integer.parseInt(value.trim()) : fallback;
+        }
+
+        private long getLong(String name, long fallback) {
+            String value = get(name);
+            return value != null ? Long.parseLong(value.trim()) : fallback;
+        }
+
+        private boolean getBoolean(String name, boolean fallback) {
+            String value = get(name);
+            return value != null ? Boolean.parseBoolean(value.trim()) : fallback;
+        }
+
+        private double getDouble(String name, double fallback) {
+            String value = get(name);
+            return value != null ? Double.parseDouble(value.trim()) : fallback;
+        }
+    }
+}
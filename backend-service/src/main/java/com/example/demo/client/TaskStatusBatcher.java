@@ -0,0 +1,116 @@
+package com.example.demo.client;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.example.demo.dto.TaskResponseDto;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Coalesces single task status lookups into calls to the bulk status endpoint. Lookups arriving
+ * within {@code flush-ms} of each other (or until {@code max-size} ids are collected) share one
+ * upstream request, so a sweep over hundreds of tasks costs a handful of round trips.
+ *
+ * Results are delivered on the HTTP client thread, same as {@link ApiClient#getTaskStatus}.
+ */
+@Component
+public class TaskStatusBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusBatcher.class);
+
+    private final ApiClient apiClient;
+    private final boolean enabled;
+    private final Sinks.Many<PendingLookup> lookups = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable flusher;
+
+    public TaskStatusBatcher(ApiClient apiClient,
+                             @Value("${app.tasks.status-batch.enabled:true}") boolean enabled,
+                             @Value("${app.tasks.status-batch.max-size:100}") int maxSize,
+                             @Value("${app.tasks.status-batch.flush-ms:5}") long flushMs,
+                             @Value("${app.tasks.status-batch.max-in-flight:4}") int maxInFlight) {
+        this.apiClient = apiClient;
+        this.enabled = enabled;
+        this.flusher = lookups.asFlux()
+                .bufferTimeout(maxSize, Duration.ofMillis(flushMs), true)
+                .flatMap(this::flush, maxInFlight)
+                .subscribe();
+    }
+
+    public Mono<TaskResponseDto> getTaskStatus(String taskId) {
+        if (!enabled) {
+            return apiClient.getTaskStatus(taskId);
+        }
+        // Lazy: every subscription (including retries) queues a fresh lookup
+        return Mono.create(sink -> lookups.emitNext(new PendingLookup(taskId, sink),
+                Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))));
+    }
+
+    public Mono<Map<String, TaskResponseDto>> getTaskStatuses(Collection<String> taskIds) {
+        return apiClient.getTaskStatuses(taskIds);
+    }
+
+    private Mono<Void> flush(List<PendingLookup> batch) {
+        Set<String> taskIds = new LinkedHashSet<>();
+        batch.forEach(lookup -> taskIds.add(lookup.taskId));
+
+        return fetch(taskIds)
+                .doOnNext(statuses -> batch.forEach(lookup -> {
+                    TaskResponseDto status = statuses.get(lookup.taskId);
+                    if (status != null) {
+                        lookup.sink.success(status);
+                    } else {
+                        lookup.sink.success();
+                    }
+                }))
+                .doOnError(error -> batch.forEach(lookup -> lookup.sink.error(error)))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private Mono<Map<String, TaskResponseDto>> fetch(Set<String> taskIds) {
+        if (taskIds.size() == 1) {
+            String taskId = taskIds.iterator().next();
+            return apiClient.getTaskStatus(taskId).map(status -> Map.of(taskId, status));
+        }
+        return apiClient.getTaskStatuses(taskIds)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    // Python service without the bulk endpoint; fall back to one call per id
+                    logger.warn("Bulk task status endpoint unavailable, querying {} tasks individually", taskIds.size());
+                    return Flux.fromIterable(taskIds)
+                            .flatMap(taskId -> apiClient.getTaskStatus(taskId)
+                                    .onErrorResume(error -> Mono.empty()))
+                            .collectMap(TaskResponseDto::getTaskId);
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.dispose();
+    }
+
+    private static final class PendingLookup {
+        private final String taskId;
+        private final MonoSink<TaskResponseDto> sink;
+
+        private PendingLookup(String taskId, MonoSink<TaskResponseDto> sink) {
+            this.taskId = taskId;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.example.demo.controller.ReactiveVariant;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Switches the long-waiting course endpoints (chat, uploads, task status) to
+ * {@link com.example.demo.controller.ReactiveCourseController}. Requests stay on the servlet
+ * stack, so security and the other controllers are unchanged, but those handlers return
+ * {@code Mono}s and release their container thread while Python is working.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.web.reactive.enabled", havingValue = "true")
+public class ReactiveWebConfig {
+
+    // JPA calls of the reactive handlers; sized like the JDBC pool so callers queue here, not on connections
+    @Bean(name = "jpaScheduler", destroyMethod = "dispose")
+    public Scheduler jpaScheduler(
+            @Value("${app.web.reactive.jpa-threads:10}") int threads,
+            @Value("${app.web.reactive.jpa-queue-capacity:10000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "jpa");
+    }
+
+    // Leaves the blocking handlers that have a reactive replacement unmapped, so the paths do not clash
+    @Bean
+    public WebMvcRegistrations reactiveVariantRegistrations() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new RequestMappingHandlerMapping() {
+                    @Override
+                    protected RequestMappingInfo getMappingForMethod(Method method, Class<?> handlerType) {
+                        if (AnnotatedElementUtils.hasAnnotation(method, ReactiveVariant.class)) {
+                            return null;
+                        }
+                        return super.getMappingForMethod(method, handlerType);
+                    }
+                };
+            }
+        };
+    }
+}
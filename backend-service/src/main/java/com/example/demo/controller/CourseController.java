@@ -1,15 +1,25 @@
 package com.example.demo.controller;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -22,11 +32,15 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.example.demo.client.AdmissionControl;
+import com.example.demo.client.AdmissionRejectedException;
+import com.example.demo.client.EndpointUnavailableException;
 import com.example.demo.client.ApiClient;
-import com.example.demo.dto.ConversationHistoryDto;
+import com.example.demo.dto.BatchUploadDto;
+import com.example.demo.dto.ChatTurnDto;
 import com.example.demo.dto.CourseDto;
+import com.example.demo.dto.CourseEventDto;
 import com.example.demo.dto.CourseQuestionDto;
-import com.example.demo.dto.FlashCardDto;
 import com.example.demo.dto.FlashCardRequestDto;
 import com.example.demo.dto.AnswerEvaluationRequestDto;
 import com.example.demo.dto.AnswerEvaluationResponseDto;
@@ -34,33 +48,49 @@ import com.example.demo.dto.MessageDto;
 import com.example.demo.dto.ProcessAiRequestDto;
 import com.example.demo.dto.ProcessAiResponseDto;
 import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.dto.UploadJobDto;
 import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.dto.UploadSessionDto;
 import com.example.demo.dto.VideoDto;
-import com.example.demo.dto.VideoUriRequestDto;
-import com.example.demo.dto.VideoUriResponseDto;
 import com.example.demo.model.Course;
 import com.example.demo.model.CourseQuestion;
 import com.example.demo.model.Duration;
-import com.example.demo.model.FlashCard;
 import com.example.demo.model.Message;
 import com.example.demo.model.Task;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.model.UploadSession;
+import com.example.demo.model.UploadedFile;
 import com.example.demo.model.Video;
 import com.example.demo.repository.FlashCardRepository;
+import com.example.demo.service.BatchUploadService;
+import com.example.demo.service.ChatService;
+import com.example.demo.service.ChunkedUploadService;
 import com.example.demo.service.CourseQuestionService;
+import com.example.demo.service.CourseEventHub;
 import com.example.demo.service.CourseService;
+import com.example.demo.service.IngestService;
+import com.example.demo.service.MaterialDedupService;
 import com.example.demo.service.MessageService;
+import com.example.demo.service.TaskCompletionEngine;
 import com.example.demo.service.TaskService;
+import com.example.demo.service.TaskStatusLookup;
+import com.example.demo.service.UploadStreamService;
 import com.example.demo.service.UploadedFileService;
 import com.example.demo.service.UserService;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.servlet.http.HttpServletRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 @RestController
 @RequestMapping("/api/courses")
 public class CourseController {
 
+    private static final Logger logger = LoggerFactory.getLogger(CourseController.class);
+
     private final CourseService courseService;
     private final UserService userService;
     private final ApiClient apiClient;
@@ -69,10 +99,31 @@ public class CourseController {
     private final UploadedFileService uploadedFileService;
     private final FlashCardRepository flashCardRepository;
     private final CourseQuestionService courseQuestionService;
+    private final IngestService ingestService;
+    private final TaskCompletionEngine completionEngine;
+    private final TaskStatusLookup statusLookup;
+    private final CourseEventHub eventHub;
+    private final ChatService chatService;
+    private final CourseDtoMapper dtoMapper;
+    private final UploadStreamService uploadStreamService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final MaterialDedupService dedupService;
+    private final BatchUploadService batchUploadService;
+
+    // Types accepted by the raw-body upload endpoints (/upload-stream and /uploads)
+    private static final List<String> RAW_UPLOAD_TYPES = List.of("PDF", "DOCX", "PPTX", "VIDEO");
+
+    // When true, uploads return 202 with a job handle unless the request says otherwise (?async=false)
+    @Value("${app.upload.async-default:false}")
+    private boolean asyncUploadsByDefault;
     
     @Autowired
     public CourseController(CourseService courseService, UserService userService, 
-                           ApiClient apiClient, TaskService taskService, MessageService messageService, UploadedFileService uploadedFileService, FlashCardRepository flashCardRepository, CourseQuestionService courseQuestionService) {
+                           ApiClient apiClient, TaskService taskService, MessageService messageService, UploadedFileService uploadedFileService, FlashCardRepository flashCardRepository, CourseQuestionService courseQuestionService,
+                           IngestService ingestService, TaskCompletionEngine completionEngine, TaskStatusLookup statusLookup,
+                           CourseEventHub eventHub, ChatService chatService, CourseDtoMapper dtoMapper,
+                           UploadStreamService uploadStreamService, ChunkedUploadService chunkedUploadService,
+                           MaterialDedupService dedupService, BatchUploadService batchUploadService) {
         this.courseService = courseService;
         this.userService = userService;
         this.apiClient = apiClient;
@@ -81,12 +132,22 @@ public class CourseController {
         this.uploadedFileService = uploadedFileService;
         this.flashCardRepository = flashCardRepository;
         this.courseQuestionService = courseQuestionService;
+        this.ingestService = ingestService;
+        this.completionEngine = completionEngine;
+        this.statusLookup = statusLookup;
+        this.eventHub = eventHub;
+        this.chatService = chatService;
+        this.dtoMapper = dtoMapper;
+        this.uploadStreamService = uploadStreamService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.dedupService = dedupService;
+        this.batchUploadService = batchUploadService;
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<CourseDto> getCourseById(@PathVariable Long id) {
         return courseService.getCourseById(id)
-                .map(this::convertToDto)
+                .map(dtoMapper::toDto)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -96,7 +157,7 @@ public class CourseController {
         return userService.getUserById(userId)
                 .map(user -> {
                     List<CourseDto> courses = courseService.getCoursesByOwner(user).stream()
-                            .map(this::convertToDto)
+                            .map(dtoMapper::toDto)
                             .collect(Collectors.toList());
                     return ResponseEntity.ok(courses);
                 })
@@ -110,7 +171,7 @@ public class CourseController {
                     Course course = new Course(courseDto.getTitle(), courseDto.getDescription());
                     course.setOwner(user);
                     Course savedCourse = courseService.createCourse(course);
-                    return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(savedCourse));
+                    return ResponseEntity.status(HttpStatus.CREATED).body(dtoMapper.toDto(savedCourse));
                 })
                 .orElse(ResponseEntity.badRequest().build());
     }
@@ -122,7 +183,7 @@ public class CourseController {
                     course.setTitle(courseDto.getTitle());
                     course.setDescription(courseDto.getDescription());
                     Course updatedCourse = courseService.updateCourse(course);
-                    return ResponseEntity.ok(convertToDto(updatedCourse));
+                    return ResponseEntity.ok(dtoMapper.toDto(updatedCourse));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -138,426 +199,274 @@ public class CourseController {
     }
     
     @PostMapping("/{id}/upload-pdf")
-    public ResponseEntity<CourseDto> uploadPdf(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
-        // Verify course exists
-        Course course = courseService.getCourseById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
-        
-        // Ensure a stable shared collection for ALL text materials (PDF + DOCX) for this course
-        String materialsCollection = course.getPdfCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) {
-            materialsCollection = course.getDocxCollectionName();
-        }
-        if (materialsCollection == null || materialsCollection.isEmpty()) {
-            materialsCollection = "course_" + id + "_materials";
-            // Set both PDF and DOCX collection names to the same shared value
-            courseService.setPdfCollectionName(id, materialsCollection);
-            courseService.setDocxCollectionName(id, materialsCollection);
-            courseService.setPptxCollectionName(id, materialsCollection);
-            course = courseService.getCourseById(id).orElse(course);
-        }
-
-    // Upload file and get initial response (pass the shared collection)
-    UploadResponseDto response = apiClient.uploadPdfFile(file, materialsCollection).block();
-        if (response == null || response.getTaskId() == null) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload PDF");
-        }
-        
-        // Create task for tracking (still useful for background processing)
-    // Track initial upload task (ignored variable)
-    taskService.createTask(response.getTaskId(), "PENDING", id);
-
-        // Early persist UploadedFile metadata with PENDING status
-        try {
-            com.example.demo.model.UploadedFile uf = new com.example.demo.model.UploadedFile();
-            uf.setCourse(course);
-            uf.setType("PDF");
-            uf.setFilename(response.getFilename());
-            uf.setFileId(response.getFileId());
-            uf.setCollectionName(materialsCollection);
-            // For PDFs, the long-running step is parse/summarise/ingest; prefer that task id
-            String processingTaskId = response.getParseSummariseIngestTaskId() != null ? response.getParseSummariseIngestTaskId() : response.getTaskId();
-            uf.setProcessingTaskId(processingTaskId);
-            uploadedFileService.save(uf);
-        } catch (Exception e) {
-            System.err.println("Failed early save of PDF metadata: " + e.getMessage());
-        }
-        
-        // Check for parse task and wait for it to complete
-        if (response.getParseSummariseIngestTaskId() != null) {
-            String parseTaskId = response.getParseSummariseIngestTaskId();
-            taskService.createTask(parseTaskId, "PENDING", id); // record parse task
-            
-            // Poll until the parse task completes (with timeout)
-            TaskResponseDto parseTaskResponse = waitForTaskCompletion(parseTaskId);
-            
-            if (parseTaskResponse != null && "SUCCESS".equals(parseTaskResponse.getStatus())) {
-                // Extract collection name and flash cards
-                Map<String, Object> resultMap = (Map<String, Object>) parseTaskResponse.getResult();
-                
-                // Update per-file metadata to READY; collection is already set to shared name
-                String collectionName = (String) resultMap.get("qdrant_collection_name");
-                try {
-                    uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                        if (existing.getCollectionName() == null && collectionName != null) {
-                            existing.setCollectionName(collectionName);
-                        }
-                        existing.setStatus("READY");
-                        uploadedFileService.save(existing);
-                    });
-                } catch (Exception e) {
-                    System.err.println("Failed to update PDF metadata to READY: " + e.getMessage());
-                }
-                
-                // Extract and add flash cards
-                List<Map<String, String>> flashCardsMap = (List<Map<String, String>>) resultMap.get("flash_cards");
-                if (flashCardsMap != null && !flashCardsMap.isEmpty()) {
-                    addFlashCardsToCourseWithSource(id, flashCardsMap, response.getFileId());
-                }
-            } else {
-                // Mark FAILED if parse task failed
-                uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                    existing.setStatus("FAILED");
-                    uploadedFileService.save(existing);
-                });
-            }
-        }
-        
-        // Return the updated course
-        return ResponseEntity.ok(convertToDto(courseService.getCourseById(id).get()));
+    @ReactiveVariant
+    public ResponseEntity<?> uploadPdf(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                       @RequestParam(value = "async", required = false) Boolean async) {
+        return uploadDocument(id, file, "PDF", async);
     }
 
     // XML uploads are handled by Python /api/upload/; frontend can call /upload-pdf style endpoint added separately if needed.
     @PostMapping("/{id}/upload-xml")
-    public ResponseEntity<CourseDto> uploadXml(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+    @ReactiveVariant
+    public ResponseEntity<?> uploadXml(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                       @RequestParam(value = "async", required = false) Boolean async) {
         Course course = courseService.getCourseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
 
         // Shared collection across course materials
-        String materialsCollection = course.getPdfCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) {
-            materialsCollection = course.getDocxCollectionName();
-        }
-        if (materialsCollection == null || materialsCollection.isEmpty()) {
-            materialsCollection = "course_" + id + "_materials";
-            courseService.setPdfCollectionName(id, materialsCollection);
-            courseService.setDocxCollectionName(id, materialsCollection);
-            course = courseService.getCourseById(id).orElse(course);
-        }
+        String materialsCollection = courseService.resolveMaterialsCollection(course);
+        course = courseService.getCourseById(id).orElse(course);
 
-        UploadResponseDto response = apiClient.uploadXmlFile(file, materialsCollection).block();
+        UploadResponseDto response = apiClient.uploadXmlFile(file, materialsCollection)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .block();
         if (response == null || response.getProcessXmlTaskId() == null) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to enqueue XML processing");
         }
 
-        taskService.createTask(response.getProcessXmlTaskId(), "PENDING", id);
+        taskService.createTask(response.getProcessXmlTaskId(), "PENDING", id, TaskTypes.PROCESS_XML,
+                response.getFileId());
+        uploadedFileService.register(course, "XML", response, materialsCollection, response.getProcessXmlTaskId());
 
-        try {
-            com.example.demo.model.UploadedFile uf = new com.example.demo.model.UploadedFile();
-            uf.setCourse(course);
-            uf.setType("XML");
-            uf.setFilename(response.getFilename());
-            uf.setFileId(response.getFileId());
-            uf.setCollectionName(materialsCollection);
-            uf.setProcessingTaskId(response.getProcessXmlTaskId());
-            uploadedFileService.save(uf);
-        } catch (Exception e) {
-            System.err.println("Failed early save of XML metadata: " + e.getMessage());
-        }
-
-        TaskResponseDto xmlTaskStatus = waitForTaskCompletion(response.getProcessXmlTaskId());
-        if (xmlTaskStatus != null && "SUCCESS".equals(xmlTaskStatus.getStatus())) {
-            Map<String, Object> resultMap = (Map<String, Object>) xmlTaskStatus.getResult();
-            Object questionsObj = resultMap.get("questions");
-            if (questionsObj instanceof List) {
-                List<Map<String, Object>> questionList = (List<Map<String, Object>>) questionsObj;
-                for (Map<String, Object> qMap : questionList) {
-                    try {
-                        CourseQuestion cq = new CourseQuestion();
-                        cq.setCourse(course);
-                        cq.setFileId(response.getFileId());
-                        cq.setQuestionText((String) qMap.get("question_text"));
-                        Object parsed = qMap.get("questions_parsed_and_answered");
-                        String answersJson = com.fasterxml.jackson.databind.json.JsonMapper.builder().build().writeValueAsString(parsed);
-                        cq.setAnswersJson(answersJson);
-                        // Extract images array if present
-                        Object imagesObj = qMap.get("question_images");
-                        if (imagesObj != null) {
-                            String imagesJson = com.fasterxml.jackson.databind.json.JsonMapper.builder().build().writeValueAsString(imagesObj);
-                            cq.setImagesJson(imagesJson);
-                        }
-                        courseQuestionService.save(cq);
-                    } catch (Exception e) {
-                        System.err.println("Failed to persist course question: " + e.getMessage());
-                    }
-                }
-            }
-            uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                existing.setStatus("READY");
-                uploadedFileService.save(existing);
-            });
-        } else {
-            uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                existing.setStatus("FAILED");
-                uploadedFileService.save(existing);
-            });
-        }
-
-        return ResponseEntity.ok(convertToDto(courseService.getCourseById(id).get()));
+        if (isAsync(async)) {
+            ingestService.finishXmlIngestAsync(id, response.getFileId(), response.getProcessXmlTaskId());
+            return acceptedUpload(id, "XML", response, response.getProcessXmlTaskId());
+        }
+        ingestService.finishXmlIngest(id, response.getFileId(), response.getProcessXmlTaskId());
+
+        return ResponseEntity.ok(dtoMapper.toDto(courseService.getCourseById(id).get()));
     }
 
     @PostMapping("/{id}/upload-docx")
-    public ResponseEntity<CourseDto> uploadDocx(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
-        Course course = courseService.getCourseById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
-        String materialsCollection = course.getPdfCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) materialsCollection = course.getDocxCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) materialsCollection = course.getPptxCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) {
-            materialsCollection = "course_" + id + "_materials";
-            courseService.setPdfCollectionName(id, materialsCollection);
-            courseService.setDocxCollectionName(id, materialsCollection);
-            courseService.setPptxCollectionName(id, materialsCollection);
-            course = courseService.getCourseById(id).orElse(course);
-        }
-        UploadResponseDto response = apiClient.uploadDocxFile(file, materialsCollection).block();
-        if (response == null || response.getTaskId() == null) throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload DOCX");
-        taskService.createTask(response.getTaskId(), "PENDING", id);
-        try {
-            com.example.demo.model.UploadedFile uf = new com.example.demo.model.UploadedFile();
-            uf.setCourse(course); uf.setType("DOCX"); uf.setFilename(response.getFilename()); uf.setFileId(response.getFileId()); uf.setCollectionName(materialsCollection);
-            uf.setProcessingTaskId(response.getParseSummariseIngestTaskId() != null ? response.getParseSummariseIngestTaskId() : response.getTaskId());
-            uploadedFileService.save(uf);
-        } catch (Exception e) { System.err.println("Failed early save of DOCX metadata: " + e.getMessage()); }
-        if (response.getParseSummariseIngestTaskId() != null) {
-            String parseTaskId = response.getParseSummariseIngestTaskId(); taskService.createTask(parseTaskId, "PENDING", id);
-            TaskResponseDto parseTaskResponse = waitForTaskCompletion(parseTaskId);
-            if (parseTaskResponse != null && "SUCCESS".equals(parseTaskResponse.getStatus())) {
-                Map<String,Object> resultMap = (Map<String,Object>) parseTaskResponse.getResult(); String collName = (String) resultMap.get("qdrant_collection_name");
-                try { uploadedFileService.findById(response.getFileId()).ifPresent(existing -> { if (existing.getCollectionName()==null && collName!=null) existing.setCollectionName(collName); existing.setStatus("READY"); uploadedFileService.save(existing); }); } catch (Exception e) { System.err.println("Failed to update DOCX metadata to READY: " + e.getMessage()); }
-                List<Map<String,String>> flashCardsMap = (List<Map<String,String>>) resultMap.get("flash_cards"); if (flashCardsMap!=null && !flashCardsMap.isEmpty()) addFlashCardsToCourseWithSource(id, flashCardsMap, response.getFileId());
-            } else { uploadedFileService.findById(response.getFileId()).ifPresent(existing -> { existing.setStatus("FAILED"); uploadedFileService.save(existing); }); }
-        }
-        return ResponseEntity.ok(convertToDto(courseService.getCourseById(id).get()));
+    @ReactiveVariant
+    public ResponseEntity<?> uploadDocx(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                        @RequestParam(value = "async", required = false) Boolean async) {
+        return uploadDocument(id, file, "DOCX", async);
     }
 
     @PostMapping("/{id}/upload-pptx")
-    public ResponseEntity<CourseDto> uploadPptx(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+    @ReactiveVariant
+    public ResponseEntity<?> uploadPptx(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                        @RequestParam(value = "async", required = false) Boolean async) {
+        return uploadDocument(id, file, "PPTX", async);
+    }
+
+    // PDF, DOCX and PPTX share one course collection and the same parse/summarise/ingest pipeline
+    private ResponseEntity<?> uploadDocument(Long id, MultipartFile file, String type, Boolean async) {
         Course course = courseService.getCourseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
-        String materialsCollection = course.getPdfCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) materialsCollection = course.getDocxCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) materialsCollection = course.getPptxCollectionName();
-        if (materialsCollection == null || materialsCollection.isEmpty()) {
-            materialsCollection = "course_" + id + "_materials";
-            courseService.setPdfCollectionName(id, materialsCollection);
-            courseService.setDocxCollectionName(id, materialsCollection);
-            courseService.setPptxCollectionName(id, materialsCollection);
-            course = courseService.getCourseById(id).orElse(course);
-        }
-        UploadResponseDto response = apiClient.uploadPptxFile(file, materialsCollection).block();
-        if (response == null || response.getTaskId() == null) throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload PPTX");
-        taskService.createTask(response.getTaskId(), "PENDING", id);
-        try {
-            com.example.demo.model.UploadedFile uf = new com.example.demo.model.UploadedFile();
-            uf.setCourse(course); uf.setType("PPTX"); uf.setFilename(response.getFilename()); uf.setFileId(response.getFileId()); uf.setCollectionName(materialsCollection);
-            uf.setProcessingTaskId(response.getParseSummariseIngestTaskId() != null ? response.getParseSummariseIngestTaskId() : response.getTaskId());
-            uploadedFileService.save(uf);
-        } catch (Exception e) { System.err.println("Failed early save of PPTX metadata: " + e.getMessage()); }
-        if (response.getParseSummariseIngestTaskId() != null) {
-            String parseTaskId = response.getParseSummariseIngestTaskId(); taskService.createTask(parseTaskId, "PENDING", id);
-            TaskResponseDto parseTaskResponse = waitForTaskCompletion(parseTaskId);
-            if (parseTaskResponse != null && "SUCCESS".equals(parseTaskResponse.getStatus())) {
-                Map<String,Object> resultMap = (Map<String,Object>) parseTaskResponse.getResult(); String collName = (String) resultMap.get("qdrant_collection_name");
-                try { uploadedFileService.findById(response.getFileId()).ifPresent(existing -> { if (existing.getCollectionName()==null && collName!=null) existing.setCollectionName(collName); existing.setStatus("READY"); uploadedFileService.save(existing); }); } catch (Exception e) { System.err.println("Failed to update PPTX metadata to READY: " + e.getMessage()); }
-                List<Map<String,String>> flashCardsMap = (List<Map<String,String>>) resultMap.get("flash_cards"); if (flashCardsMap!=null && !flashCardsMap.isEmpty()) addFlashCardsToCourseWithSource(id, flashCardsMap, response.getFileId());
-            } else { uploadedFileService.findById(response.getFileId()).ifPresent(existing -> { existing.setStatus("FAILED"); uploadedFileService.save(existing); }); }
-        }
-        return ResponseEntity.ok(convertToDto(courseService.getCourseById(id).get()));
+
+        String materialsCollection = courseService.resolveMaterialsCollection(course);
+        course = courseService.getCourseById(id).orElse(course);
+
+        // The multipart is already buffered by the container, and the hash decides whether Python sees it at all
+        String contentHash = dedupService.sha256(file);
+        Optional<UploadedFile> readyCopy = dedupService.findReadyCopy(contentHash, materialsCollection);
+        if (readyCopy.isPresent()) {
+            return alreadyIngested(id, readyCopy.get(), async);
+        }
+        boolean generateFlashCards = dedupService.findFlashCardSource(contentHash, null).isEmpty();
+        UploadResponseDto response = apiClient.uploadDocument(file, materialsCollection, generateFlashCards)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .block();
+        return finishDocumentUpload(id, course, type, response, materialsCollection, async, contentHash);
+    }
+
+    // Same bytes already READY in this collection: answer as if the upload had just finished
+    private ResponseEntity<?> alreadyIngested(Long id, UploadedFile existing, Boolean async) {
+        logger.info("Upload of {} matches ready file {} in course {}; skipping ingest",
+                existing.getFilename(), existing.getFileId(), id);
+        if (isAsync(async)) {
+            return ResponseEntity.ok(dtoMapper.toReadyJob(id, existing));
+        }
+        return ResponseEntity.ok(dtoMapper.toDto(courseService.getCourseById(id).get()));
+    }
+
+    private ResponseEntity<?> finishDocumentUpload(Long id, Course course, String type, UploadResponseDto response,
+                                                   String materialsCollection, Boolean async, String contentHash) {
+        if (response == null || response.getTaskId() == null) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload " + type);
+        }
+
+        taskService.createTask(response.getTaskId(), "PENDING", id, TaskTypes.DOCUMENT_UPLOAD, response.getFileId());
+
+        // The long-running step is parse/summarise/ingest; prefer that task id
+        String parseTaskId = response.getParseSummariseIngestTaskId();
+        String processingTaskId = parseTaskId != null ? parseTaskId : response.getTaskId();
+        uploadedFileService.register(course, type, response, materialsCollection, processingTaskId, contentHash);
+
+        if (parseTaskId != null) {
+            taskService.createTask(parseTaskId, "PENDING", id, TaskTypes.PARSE_INGEST, response.getFileId());
+        }
+
+        if (isAsync(async)) {
+            if (parseTaskId != null) {
+                ingestService.finishDocumentIngestAsync(id, response.getFileId(), parseTaskId);
+            }
+            return acceptedUpload(id, type, response, processingTaskId);
+        }
+        if (parseTaskId != null) {
+            ingestService.finishDocumentIngest(id, response.getFileId(), parseTaskId);
+        }
+
+        return ResponseEntity.ok(dtoMapper.toDto(courseService.getCourseById(id).get()));
     }
+
     @PostMapping("/{id}/upload-video")
-    public ResponseEntity<CourseDto> uploadVideo(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+    @ReactiveVariant
+    public ResponseEntity<?> uploadVideo(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                         @RequestParam(value = "async", required = false) Boolean async) {
         // Verify course exists
         Course course = courseService.getCourseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
-        
+
         // Upload file and get initial response
-        UploadResponseDto response = apiClient.uploadVideo(file).block();
+        UploadResponseDto response = apiClient.uploadVideo(file)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .block();
+        return finishVideoUpload(id, course, response, async, null);
+    }
+
+    private ResponseEntity<?> finishVideoUpload(Long id, Course course, UploadResponseDto response, Boolean async,
+                                                String contentHash) {
         if (response == null || response.getTaskId() == null) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload video");
         }
-        
-        // Create task for tracking
-        Task task = taskService.createTask(response.getTaskId(), "PENDING", id);
 
-        // Early persist video file metadata
-        try {
-            com.example.demo.model.UploadedFile uf = new com.example.demo.model.UploadedFile();
-            uf.setCourse(course);
-            uf.setType("FILE_VIDEO");
-            uf.setFilename(response.getFilename());
-            uf.setFileId(response.getFileId());
-            // Initially track the upload task; we'll update this id as subsequent tasks start
-            uf.setProcessingTaskId(response.getTaskId());
-            uploadedFileService.save(uf);
-        } catch (Exception e) {
-            System.err.println("Failed early save of VIDEO metadata: " + e.getMessage());
+        taskService.createTask(response.getTaskId(), "PENDING", id, TaskTypes.VIDEO_UPLOAD, response.getFileId());
+
+        // Initially track the upload task; the id is updated as the URI and flash card stages start
+        uploadedFileService.register(course, "FILE_VIDEO", response, null, response.getTaskId(), contentHash);
+
+        if (isAsync(async)) {
+            ingestService.finishVideoIngestAsync(id, response.getFileId(), response.getTaskId());
+            return acceptedUpload(id, "FILE_VIDEO", response, response.getTaskId());
         }
-        
-        // Wait for upload task to complete
-        TaskResponseDto uploadStatus = waitForTaskCompletion(response.getTaskId());
-        
-        if (uploadStatus != null && "SUCCESS".equals(uploadStatus.getStatus())) {
-            // Extract video path from result
-            String videoPath = extractVideoPath(uploadStatus);
-            
-            if (videoPath != null) {
-                try {
-                    // Create video URI request
-                    VideoUriRequestDto videoUriRequest = new VideoUriRequestDto();
-                    VideoDto video = new VideoDto();
-                    video.setType("FILE_VIDEO");
-                    video.setPath(videoPath);
-                    videoUriRequest.setVideo(video);
-                    videoUriRequest.setUriProvider("gemini_uri_provider");
-                    
-                    // Get video URI
-                    VideoUriResponseDto videoUriResponse = apiClient.getVideoUri(videoUriRequest).block();
-                    
-                    if (videoUriResponse != null && videoUriResponse.getTaskId() != null) {
-                        System.out.println("Received videoUriResponse with taskId: " + videoUriResponse.getTaskId());
-                        // Update processing task id to reflect the current long-running stage
-                        try {
-                            final String fid = response.getFileId();
-                            uploadedFileService.findById(fid).ifPresent(existing -> {
-                                existing.setProcessingTaskId(videoUriResponse.getTaskId());
-                                uploadedFileService.save(existing);
-                            });
-                        } catch (Exception ignore) {}
-                        
-                        // Poll with extended timeout
-                        TaskResponseDto uriTaskStatus = null;
-                        final int MAX_ATTEMPTS = 100000;
-                        final int POLLING_INTERVAL_MS = 5000;
-                        
-                        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
-                            try {
-                                TaskResponseDto status = apiClient.getTaskStatus(videoUriResponse.getTaskId()).block();
-                                
-                                if (status != null && 
-                                    ("SUCCESS".equals(status.getStatus()) || "FAILURE".equals(status.getStatus()))) {
-                                    uriTaskStatus = status;
-                                    System.out.println("Video URI task completed with status: " + status.getStatus());
-                                    break;
-                                }
-                                
-                                System.out.println("Waiting for video URI task to complete, attempt " + (attempt + 1));
-                                Thread.sleep(POLLING_INTERVAL_MS);
-                            } catch (Exception e) {
-                                System.err.println("Error polling task status: " + e.getMessage());
-                            }
-                        }
-                        
-                        if (uriTaskStatus != null && "SUCCESS".equals(uriTaskStatus.getStatus())) {
-                            // Create Video object from response
-                            Video video2 = createVideoFromResponse(uriTaskStatus);
-                            if (video2 != null) {
-                                course = courseService.setVideo(id, video2);
-                                System.out.println("Successfully set video for course: " + id);
-                                // Mark file READY now that processing completed
-                                try {
-                                    uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                                        existing.setStatus("READY");
-                                        uploadedFileService.save(existing);
-                                    });
-                                } catch (Exception e) {
-                                    System.err.println("Failed to update VIDEO metadata to READY: " + e.getMessage());
-                                }
-                                
-                                // Now generate flash cards for the video
-                                try {
-                                    FlashCardRequestDto flashCardRequest = new FlashCardRequestDto();
-                                    VideoDto videoDto = new VideoDto();
-                                    videoDto.setType(video2.getType());
-                                    videoDto.setUri(video2.getUri());
-                                    videoDto.setPath(video2.getPath());
-                                    
-                                    if (video2.getDuration() != null) {
-                                        VideoDto.DurationDto durationDto = new VideoDto.DurationDto();
-                                        durationDto.setMinutes(video2.getDuration().getMinutes());
-                                        durationDto.setSeconds(video2.getDuration().getSeconds());
-                                        videoDto.setDuration(durationDto);
-                                    }
-                                    flashCardRequest.setVideo(videoDto);
-                                    
-                                    System.out.println("Requesting flash cards for video: " + videoDto);
-                                    
-                                    // Call API to get flash cards
-                                    TaskResponseDto flashCardResponse = apiClient.createFlashCards(flashCardRequest).block();
-                                    
-                                    if (flashCardResponse != null && flashCardResponse.getTaskId() != null) {
-                                        System.out.println("Received flash card task ID: " + flashCardResponse.getTaskId());
-                                        // Update processing task id again to track flash card generation
-                                        try {
-                                            final String fid2 = response.getFileId();
-                                            uploadedFileService.findById(fid2).ifPresent(existing -> {
-                                                existing.setProcessingTaskId(flashCardResponse.getTaskId());
-                                                uploadedFileService.save(existing);
-                                            });
-                                        } catch (Exception ignore) {}
-                                        
-                                        // Wait for flash cards task to complete
-                                        TaskResponseDto flashCardTaskStatus = waitForTaskCompletion(flashCardResponse.getTaskId());
-                                        
-                                        if (flashCardTaskStatus != null && "SUCCESS".equals(flashCardTaskStatus.getStatus())) {
-                                            System.out.println("Flash card task completed successfully");
-                                            
-                                            // Extract and add flash cards
-                                            Map<String, Object> resultMap = (Map<String, Object>) flashCardTaskStatus.getResult();
-                                            List<Map<String, String>> flashCardsMap = (List<Map<String, String>>) resultMap.get("flash_cards");
-                                            
-                                            if (flashCardsMap != null && !flashCardsMap.isEmpty()) {
-                                                System.out.println("Found " + flashCardsMap.size() + " flash cards");
-                                                addFlashCardsToCourseWithSource(id, flashCardsMap, response.getFileId());
-                                            } else {
-                                                System.out.println("No flash cards found in response");
-                                            }
-                                        } else {
-                                            System.err.println("Flash card task failed or timed out: " + 
-                                                (flashCardTaskStatus != null ? flashCardTaskStatus.getStatus() : "null"));
-                                        }
-                                    } else {
-                                        System.err.println("Failed to get flash card task ID");
-                                    }
-                                } catch (Exception e) {
-                                    System.err.println("Error getting flash cards: " + e.getMessage());
-                                    e.printStackTrace();
-                                }
-                            }
-                        } else {
-                            System.err.println("URI task failed or timed out: " + 
-                                (uriTaskStatus != null ? uriTaskStatus.getStatus() : "null"));
-                            uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                                existing.setStatus("FAILED");
-                                uploadedFileService.save(existing);
-                            });
-                        }
-                    } else {
-                        System.err.println("Failed to get video URI task ID");
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error getting video URI: " + e.getMessage());
-                    e.printStackTrace();
-                    uploadedFileService.findById(response.getFileId()).ifPresent(existing -> {
-                        existing.setStatus("FAILED");
-                        uploadedFileService.save(existing);
-                    });
-                }
+        ingestService.finishVideoIngest(id, response.getFileId(), response.getTaskId());
+
+        // Return the updated course
+        return ResponseEntity.ok(dtoMapper.toDto(courseService.getCourseById(id).get()));
+    }
+
+    /**
+     * Raw-body upload for large files: the request body is relayed to Python in fixed-size buffers
+     * instead of being spooled by the multipart resolver first. Progress is published as "upload"
+     * events on the course event stream under the returned upload id.
+     */
+    @PostMapping(value = "/{id}/upload-stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadStream(@PathVariable Long id, @RequestParam("type") String type,
+                                          @RequestParam("filename") String filename,
+                                          @RequestParam(value = "async", required = false) Boolean async,
+                                          HttpServletRequest request) {
+        requireRawUploadType(type);
+        Course course = courseService.getCourseById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        String materialsCollection = rawUploadCollection(course, type);
+        course = courseService.getCourseById(id).orElse(course);
+
+        // The hash is only known once the bytes have gone out, so it is recorded for later uploads to match
+        String uploadId = UUID.randomUUID().toString();
+        MessageDigest digest = MaterialDedupService.newDigest();
+        UploadResponseDto response = apiClient.uploadFileStream(
+                uploadStreamService.read(id, uploadId, request::getInputStream, request.getContentLengthLong(), digest),
+                request.getContentLengthLong(), filename, materialsCollection)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .block();
+        String contentHash = MaterialDedupService.hex(digest);
+        logger.debug("Streamed upload {} ({}) for course {}", uploadId, filename, id);
+
+        if ("VIDEO".equals(type)) {
+            return finishVideoUpload(id, course, response, async, contentHash);
+        }
+        return finishDocumentUpload(id, course, type, response, materialsCollection, async, contentHash);
+    }
+
+    // Resumable uploads: open a session, PUT chunks at the reported offset, then complete
+    @PostMapping("/{id}/uploads")
+    public ResponseEntity<UploadSessionDto> openChunkedUpload(@PathVariable Long id, @RequestBody Map<String, Object> payload) {
+        String type = (String) payload.get("type");
+        String filename = (String) payload.get("filename");
+        if (filename == null || filename.isBlank() || !(payload.get("size") instanceof Number)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "type, filename and size are required");
+        }
+        requireRawUploadType(type);
+        courseService.getCourseById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        UploadSessionDto session = chunkedUploadService.open(id, type, filename, ((Number) payload.get("size")).longValue());
+        return ResponseEntity.status(HttpStatus.CREATED).body(session);
+    }
+
+    // Where to resume after a dropped connection
+    @GetMapping("/{id}/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionDto> getChunkedUpload(@PathVariable Long id, @PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.status(chunkedUploadService.getSession(id, uploadId)));
+    }
+
+    @PutMapping(value = "/{id}/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionDto> putChunk(@PathVariable Long id, @PathVariable String uploadId,
+                                                     @RequestParam("offset") long offset,
+                                                     HttpServletRequest request) throws IOException {
+        UploadSession session = chunkedUploadService.getSession(id, uploadId);
+        return ResponseEntity.ok(chunkedUploadService.writeChunk(session, offset, request.getInputStream()));
+    }
+
+    @PostMapping("/{id}/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable Long id, @PathVariable String uploadId,
+                                                   @RequestParam(value = "async", required = false) Boolean async) {
+        UploadSession session = chunkedUploadService.getSession(id, uploadId);
+        Path file = chunkedUploadService.completedFile(session);
+        Course course = courseService.getCourseById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        String materialsCollection = rawUploadCollection(course, session.getType());
+        course = courseService.getCourseById(id).orElse(course);
+
+        String contentHash = chunkedUploadService.contentHash(session).orElseGet(() -> dedupService.sha256(file));
+        boolean generateFlashCards = true;
+        if (!"VIDEO".equals(session.getType())) {
+            Optional<UploadedFile> readyCopy = dedupService.findReadyCopy(contentHash, materialsCollection);
+            if (readyCopy.isPresent()) {
+                chunkedUploadService.discard(session);
+                return alreadyIngested(id, readyCopy.get(), async);
             }
+            generateFlashCards = dedupService.findFlashCardSource(contentHash, null).isEmpty();
         }
-        
-        // Return the updated course
-        return ResponseEntity.ok(convertToDto(courseService.getCourseById(id).get()));
+
+        // The staged file is kept until Python has it, so a failed forward can be retried with another complete
+        UploadResponseDto response = apiClient.uploadFile(file, session.getFilename(), materialsCollection,
+                generateFlashCards)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .block();
+        chunkedUploadService.discard(session);
+
+        if ("VIDEO".equals(session.getType())) {
+            return finishVideoUpload(id, course, response, async, contentHash);
+        }
+        return finishDocumentUpload(id, course, session.getType(), response, materialsCollection, async, contentHash);
+    }
+
+    // Many documents in one request; each file's progress shows on its UploadedFile row
+    @PostMapping("/{id}/materials:batch")
+    public ResponseEntity<BatchUploadDto> uploadMaterialsBatch(@PathVariable Long id,
+                                                               @RequestParam("files") List<MultipartFile> files) {
+        Course course = courseService.getCourseById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(batchUploadService.dispatch(course, files));
+    }
+
+    @GetMapping("/{id}/materials:batch/{batchId}")
+    public ResponseEntity<BatchUploadDto> getMaterialsBatch(@PathVariable Long id, @PathVariable String batchId) {
+        return ResponseEntity.ok(batchUploadService.status(id, batchId));
+    }
+
+    private static void requireRawUploadType(String type) {
+        if (!RAW_UPLOAD_TYPES.contains(type)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported upload type: " + type);
+        }
+    }
+
+    // Videos are not indexed into the materials collection
+    private String rawUploadCollection(Course course, String type) {
+        return "VIDEO".equals(type) ? null : courseService.resolveMaterialsCollection(course);
     }
 
     @PostMapping("/{id}/flashcards/evaluate")
@@ -582,7 +491,8 @@ public class CourseController {
     }
 
     @PostMapping("/{id}/add-youtube-video")
-    public ResponseEntity<CourseDto> addYoutubeVideo(@PathVariable Long id, @RequestBody Map<String, String> payload) {
+    public ResponseEntity<?> addYoutubeVideo(@PathVariable Long id, @RequestBody Map<String, String> payload,
+                                             @RequestParam(value = "async", required = false) Boolean async) {
         // Verify course exists
         Course course = courseService.getCourseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
@@ -624,38 +534,31 @@ public class CourseController {
             flashCardRequest.setVideo(videoDto);
             
             // Call API to get flash cards
-            TaskResponseDto flashCardResponse = apiClient.createFlashCards(flashCardRequest).block();
+            TaskResponseDto flashCardResponse = apiClient.createFlashCards(flashCardRequest)
+                    .contextWrite(AdmissionControl.forCourse(course))
+                    .block();
             if (flashCardResponse != null && flashCardResponse.getTaskId() != null) {
                 // Track the flash card task id for this YouTube file
-                try {
-                    uploadedFileService.findById(youtubeFileId).ifPresent(existing -> {
-                        existing.setProcessingTaskId(flashCardResponse.getTaskId());
-                        uploadedFileService.save(existing);
-                    });
-                } catch (Exception ignore) {}
-                // Wait for flash cards task to complete
-                TaskResponseDto flashCardTaskStatus = waitForTaskCompletion(flashCardResponse.getTaskId());
-                
-                if (flashCardTaskStatus != null && "SUCCESS".equals(flashCardTaskStatus.getStatus())) {
-                    // Extract and add flash cards
-                    Map<String, Object> resultMap = (Map<String, Object>) flashCardTaskStatus.getResult();
-                    List<Map<String, String>> flashCardsMap = (List<Map<String, String>>) resultMap.get("flash_cards");
-                    if (flashCardsMap != null && !flashCardsMap.isEmpty()) {
-                        addFlashCardsToCourseWithSource(id, flashCardsMap, youtubeFileId);
-                    }
-                    uploadedFileService.findById(youtubeFileId).ifPresent(existing -> {
-                        existing.setStatus("READY");
-                        uploadedFileService.save(existing);
-                    });
-                } else {
-                    uploadedFileService.findById(youtubeFileId).ifPresent(existing -> {
-                        existing.setStatus("FAILED");
-                        uploadedFileService.save(existing);
-                    });
+                uploadedFileService.updateProcessingTaskId(youtubeFileId, flashCardResponse.getTaskId());
+
+                if (isAsync(async)) {
+                    ingestService.finishYoutubeIngestAsync(id, youtubeFileId, flashCardResponse.getTaskId());
+                    UploadJobDto job = new UploadJobDto();
+                    job.setJobId(youtubeFileId);
+                    job.setCourseId(id);
+                    job.setFileId(youtubeFileId);
+                    job.setFilename(youtubeUrl);
+                    job.setType("YOUTUBE_VIDEO");
+                    job.setStatus("PENDING");
+                    job.setProcessingTaskId(flashCardResponse.getTaskId());
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
                 }
+                ingestService.finishYoutubeIngest(id, youtubeFileId, flashCardResponse.getTaskId());
             }
             
-            return ResponseEntity.ok(convertToDto(courseService.getCourseById(id).get()));
+            return ResponseEntity.ok(dtoMapper.toDto(courseService.getCourseById(id).get()));
+        } catch (AdmissionRejectedException | EndpointUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
@@ -673,7 +576,7 @@ public class CourseController {
         return courseService.getCourseById(id)
                 .map(course -> {
                     Course updatedCourse = courseService.setPdfCollectionName(id, collectionName);
-                    return ResponseEntity.ok(convertToDto(updatedCourse));
+                    return ResponseEntity.ok(dtoMapper.toDto(updatedCourse));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -688,7 +591,7 @@ public class CourseController {
         return courseService.getCourseById(id)
                 .map(course -> {
                     Course updatedCourse = courseService.setDocxCollectionName(id, collectionName);
-                    return ResponseEntity.ok(convertToDto(updatedCourse));
+                    return ResponseEntity.ok(dtoMapper.toDto(updatedCourse));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -709,260 +612,18 @@ public class CourseController {
                     }
                     
                     Course updatedCourse = courseService.setVideo(id, video);
-                    return ResponseEntity.ok(convertToDto(updatedCourse));
+                    return ResponseEntity.ok(dtoMapper.toDto(updatedCourse));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
-    private CourseDto convertToDto(Course course) {
-        CourseDto dto = new CourseDto();
-        dto.setId(course.getId());
-        dto.setTitle(course.getTitle());
-        dto.setDescription(course.getDescription());
-        dto.setCreatedAt(course.getCreatedAt());
-        
-        if (course.getOwner() != null) {
-            dto.setOwnerId(course.getOwner().getId());
-            dto.setOwnerUsername(course.getOwner().getUsername());
-        }
-        
-        dto.setPdfCollectionName(course.getPdfCollectionName());
-        dto.setDocxCollectionName(course.getDocxCollectionName());
-        dto.setPptxCollectionName(course.getPptxCollectionName());
-        
-        if (course.getVideo() != null) {
-            VideoDto videoDto = new VideoDto();
-            videoDto.setType(course.getVideo().getType());
-            videoDto.setUri(course.getVideo().getUri());
-            videoDto.setPath(course.getVideo().getPath());
-            videoDto.setUriData(course.getVideo().getUriData());
-            
-            if (course.getVideo().getDuration() != null) {
-                VideoDto.DurationDto durationDto = new VideoDto.DurationDto();
-                durationDto.setMinutes(course.getVideo().getDuration().getMinutes());
-                durationDto.setSeconds(course.getVideo().getDuration().getSeconds());
-                videoDto.setDuration(durationDto);
-            }
-            
-            dto.setVideo(videoDto);
-        }
-        
-        List<FlashCardDto> flashCardDtos = course.getFlashCards().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
-        dto.setFlashCards(flashCardDtos);
-
-        // Attach course questions
-        try {
-            List<CourseQuestion> questions = courseQuestionService.findByCourse(course);
-            List<CourseQuestionDto> questionDtos = questions.stream().map(q -> {
-                CourseQuestionDto qDto = new CourseQuestionDto();
-                qDto.setId(q.getId());
-                qDto.setFileId(q.getFileId());
-                qDto.setQuestionText(q.getQuestionText());
-                qDto.setAnswersJson(normalizeAnswersJson(q.getAnswersJson()));
-                qDto.setImagesJson(q.getImagesJson());
-                return qDto;
-            }).collect(Collectors.toList());
-            dto.setQuestions(questionDtos);
-        } catch (Exception e) {
-            System.err.println("Failed attaching course questions: " + e.getMessage());
-        }
-        
-        return dto;
-    }
-
-    /**
-     * Normalizes legacy answers JSON (array of objects including a guidelines object) into
-     * the new dictionary structure:
-     * {
-     *   "type": "normal" | "table",
-     *   "guidelines": "..."?,
-     *   "ai_reasoning": "..."? (only when type == table),
-     *   "questions": [ { "question":..., "correct_answer":..., "ai_reasoning":... }, ... ]
-     * }
-     * If already in new structure (object with 'questions' key) it is returned unchanged.
-     */
-    private String normalizeAnswersJson(String answersJson) {
-        if (answersJson == null || answersJson.isEmpty()) return answersJson;
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            JsonNode root = mapper.readTree(answersJson);
-            // Already new structure
-            if (root.isObject() && root.has("questions")) {
-                return answersJson; // pass through
-            }
-            if (root.isArray()) {
-                ArrayNode arr = (ArrayNode) root;
-                ObjectNode out = mapper.createObjectNode();
-                out.put("type", "normal");
-                ArrayNode questionsArr = mapper.createArrayNode();
-                String guidelinesValue = null;
-                for (JsonNode node : arr) {
-                    if (node.has("guidelines")) {
-                        // guidelines node
-                        if (guidelinesValue == null) guidelinesValue = node.get("guidelines").asText();
-                        continue;
-                    }
-                    // Treat remaining objects as question entries
-                    ObjectNode qObj = mapper.createObjectNode();
-                    if (node.has("question")) qObj.set("question", node.get("question"));
-                    if (node.has("correct_answer")) qObj.set("correct_answer", node.get("correct_answer"));
-                    if (node.has("ai_reasoning")) qObj.set("ai_reasoning", node.get("ai_reasoning"));
-                    questionsArr.add(qObj);
-                }
-                if (guidelinesValue != null) out.put("guidelines", guidelinesValue);
-                out.set("questions", questionsArr);
-                return mapper.writeValueAsString(out);
-            }
-            // Unknown shape, return original
-            return answersJson;
-        } catch (Exception e) {
-            // On parse failure, return original to avoid data loss
-            return answersJson;
-        }
-    }
-    
-    private FlashCardDto convertToDto(FlashCard flashCard) {
-        FlashCardDto dto = new FlashCardDto();
-        dto.setId(flashCard.getId());
-        dto.setQuestion(flashCard.getQuestion());
-        dto.setAnswer(flashCard.getAnswer());
-        return dto;
-    }
-
-    private String waitForCollectionName(String taskId) {
-        final int MAX_ATTEMPTS = 100000;
-        final int POLLING_INTERVAL_MS = 5000;
-        
-        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
-            try {
-                // Poll task status
-                TaskResponseDto taskStatus = apiClient.getTaskStatus(taskId).block();
-                
-                if (taskStatus != null && "SUCCESS".equals(taskStatus.getStatus())) {
-                    // Extract qdrant_collection_name from result
-                    if (taskStatus.getResult() instanceof Map) {
-                        Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
-                        return (String) resultMap.get("qdrant_collection_name");
-                    }
-                    return null;
-                } else if (taskStatus != null && "FAILURE".equals(taskStatus.getStatus())) {
-                    // Task failed, no need to keep waiting
-                    return null;
-                }
-                
-                // Sleep before next attempt
-                Thread.sleep(POLLING_INTERVAL_MS);
-            } catch (Exception e) {
-                // Log exception and continue polling
-                System.err.println("Error polling task status: " + e.getMessage());
-            }
-        }
-        
-        // Timeout reached
-        return null;
-    }
-
-    private TaskResponseDto waitForTaskCompletion(String taskId) {
-        final int MAX_ATTEMPTS = 100000;
-        final int POLLING_INTERVAL_MS = 5000;
-        
-        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
-            try {
-                TaskResponseDto taskStatus = apiClient.getTaskStatus(taskId).block();
-                
-                if (taskStatus != null && 
-                    ("SUCCESS".equals(taskStatus.getStatus()) || "FAILURE".equals(taskStatus.getStatus()))) {
-                    return taskStatus;
-                }
-                
-                Thread.sleep(POLLING_INTERVAL_MS);
-            } catch (Exception e) {
-                System.err.println("Error polling task status: " + e.getMessage());
-            }
-        }
-        
-        return null;
-    }
-    
-
-    private String extractVideoPath(TaskResponseDto taskStatus) {
-        try {
-            if (taskStatus.getResult() instanceof Map) {
-                Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
-                return (String) resultMap.get("path");
-            }
-        } catch (Exception e) {
-            System.err.println("Error extracting video path: " + e.getMessage());
-        }
-        return null;
-    }
-
-    private Video createVideoFromResponse(TaskResponseDto taskStatus) {
-        try {
-            if (taskStatus.getResult() instanceof Map) {
-                Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
-                Object videoObj = resultMap.get("video");
-                
-                if (videoObj instanceof Map) {
-                    Map<String, Object> videoMap = (Map<String, Object>) videoObj;
-                    
-                    Video video = new Video();
-                    video.setType((String) videoMap.get("type"));
-                    video.setUri((String) videoMap.get("uri"));
-                    video.setPath((String) videoMap.get("path"));
-                    
-                    // Set duration if available
-                    Object durationObj = videoMap.get("duration");
-                    if (durationObj instanceof Map) {
-                        Map<String, Integer> durationMap = (Map<String, Integer>) durationObj;
-                        Duration duration = new Duration(
-                                durationMap.get("minutes"),
-                                durationMap.get("seconds")
-                        );
-                        video.setDuration(duration);
-                    }
-                    
-                    // Set URI data if available
-                    Object uriDataObj = videoMap.get("uri_data");
-                    if (uriDataObj instanceof Map) {
-                        Map<String, String> uriData = (Map<String, String>) uriDataObj;
-                        video.setUriData(uriData);
-                    }
-                    
-                    return video;
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error creating video from response: " + e.getMessage());
-        }
-        return null;
-    }
-
-    private void addFlashCardsToCourse(Long courseId, List<Map<String, String>> flashCardsMap) {
-        for (Map<String, String> cardMap : flashCardsMap) {
-            FlashCard flashCard = new FlashCard();
-            flashCard.setQuestion(cardMap.get("question"));
-            flashCard.setAnswer(cardMap.get("answer"));
-            courseService.addFlashCard(courseId, flashCard);
-        }
+    private boolean isAsync(Boolean async) {
+        return async != null ? async : asyncUploadsByDefault;
     }
 
-    private void addFlashCardsToCourseWithSource(Long courseId, List<Map<String, String>> flashCardsMap, String sourceFileId) {
-        com.example.demo.model.UploadedFile sourceFile = null;
-        if (sourceFileId != null) {
-            sourceFile = uploadedFileService.findById(sourceFileId).orElse(null);
-        }
-        for (Map<String, String> cardMap : flashCardsMap) {
-            FlashCard flashCard = new FlashCard();
-            flashCard.setQuestion(cardMap.get("question"));
-            flashCard.setAnswer(cardMap.get("answer"));
-            if (sourceFile != null) {
-                flashCard.setUploadedFile(sourceFile);
-            }
-            courseService.addFlashCard(courseId, flashCard);
-        }
+    private ResponseEntity<UploadJobDto> acceptedUpload(Long courseId, String type, UploadResponseDto response,
+                                                        String processingTaskId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(dtoMapper.toPendingJob(courseId, type, response, processingTaskId));
     }
 
     // List tasks for a course (for persistent upload status)
@@ -975,12 +636,13 @@ public class CourseController {
 
     // Proxy task status by id so frontend can poll per-file processing state
     @GetMapping("/{id}/task-status/{taskId}")
+    @ReactiveVariant
     public ResponseEntity<TaskResponseDto> getTaskStatus(@PathVariable Long id, @PathVariable String taskId) {
         if (!courseService.getCourseById(id).isPresent()) {
             return ResponseEntity.notFound().build();
         }
         try {
-            TaskResponseDto status = apiClient.getTaskStatus(taskId).block();
+            TaskResponseDto status = statusLookup.getTaskStatus(taskId).block();
             if (status == null) return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
             return ResponseEntity.ok(status);
         } catch (Exception e) {
@@ -988,6 +650,23 @@ public class CourseController {
         }
     }
 
+    // Push task and uploaded file status changes instead of having the UI poll the three endpoints above
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CourseEventDto>> streamCourseEvents(@PathVariable Long id) {
+        if (!courseService.getCourseById(id).isPresent()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found");
+        }
+        Sinks.Empty<Void> closed = Sinks.empty();
+        Flux<ServerSentEvent<CourseEventDto>> events = eventHub.subscribe(id)
+                .map(event -> ServerSentEvent.builder(event).event(event.getType()).build())
+                .doFinally(signal -> closed.tryEmitEmpty());
+        // Comment frames keep idle connections open through proxies; they stop when the hub drops us
+        Flux<ServerSentEvent<CourseEventDto>> heartbeats = Flux.interval(java.time.Duration.ofSeconds(15))
+                .map(tick -> ServerSentEvent.<CourseEventDto>builder().comment("keep-alive").build())
+                .takeUntilOther(closed.asMono());
+        return Flux.merge(events, heartbeats);
+    }
+
     // List uploaded files for a course
     @GetMapping("/{id}/uploaded-files")
     public ResponseEntity<List<com.example.demo.dto.UploadedFileDto>> getUploadedFiles(@PathVariable Long id) {
@@ -1074,7 +753,7 @@ public class CourseController {
         }
 
         // Persist task with metadata for tracking
-        taskService.createTask(resp.getTaskId(), resp.getStatus() != null ? resp.getStatus() : "PENDING", id, "QUIZ_EXPORT", fileId);
+        taskService.createTask(resp.getTaskId(), resp.getStatus() != null ? resp.getStatus() : "PENDING", id, TaskTypes.QUIZ_EXPORT, fileId);
 
         return ResponseEntity.ok(resp);
     }
@@ -1106,7 +785,7 @@ public class CourseController {
         Course course = courseService.getCourseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
         java.util.List<Task> tasks = taskService.getTasksForCourse(course).stream()
-                .filter(t -> "QUIZ_EXPORT".equals(t.getTaskType()) && fileId.equals(t.getSourceFileId()))
+                .filter(t -> TaskTypes.QUIZ_EXPORT.equals(t.getTaskType()) && fileId.equals(t.getSourceFileId()))
                 .collect(java.util.stream.Collectors.toList());
         java.util.List<TaskResponseDto> dtos = tasks.stream().map(t -> {
             TaskResponseDto dto = new TaskResponseDto();
@@ -1345,8 +1024,10 @@ public class CourseController {
         return ResponseEntity.ok(Map.of("status", "SUCCESS"));
     }
 
+    // Answers with the question and reply this turn stored, not the whole conversation; GET /messages?after= syncs the rest
     @PostMapping("/{id}/chat")
-    public ResponseEntity<List<MessageDto>> chatWithCourse(@PathVariable Long id, @RequestBody MessageDto userMessage) {
+    @ReactiveVariant
+    public ResponseEntity<ChatTurnDto> chatWithCourse(@PathVariable Long id, @RequestBody MessageDto userMessage) {
         // Verify course exists
         Course course = courseService.getCourseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
@@ -1354,257 +1035,126 @@ public class CourseController {
         // Print debug info
         System.out.println("Processing chat for course ID: " + id);
         
-        // Create new user message
-        Message newMessage = new Message();
-        newMessage.setContent(userMessage.getContent());
-        newMessage.setRole("user");
-        newMessage.setCourse(course); 
-        newMessage.setTimestamp(LocalDateTime.now());
-        
-        // Save and verify
-        Message savedMessage = messageService.saveMessage(newMessage);
-        System.out.println("Saved user message ID: " + savedMessage.getId() + 
-                        ", Course ID: " + (savedMessage.getCourse() != null ? savedMessage.getCourse().getId() : "null"));
-        
-        // Create process AI request
-        ProcessAiRequestDto processAiRequest = new ProcessAiRequestDto();
-        processAiRequest.setModelProvider("gemini");
-        processAiRequest.setModelName("gemini-2.0-flash");
-        processAiRequest.setSystemInstructionText("You are a helpful assistant that answers questions about the course materials. Be concise but thorough.");
-        
-        // Add conversation history
-        List<Message> existingMessages = messageService.getMessagesByCourse(id);
-        
-        // Log the conversation history to debug
-        System.out.println("Existing messages before AI call: " + existingMessages.size());
-        for (Message msg : existingMessages) {
-            System.out.println("  Message ID: " + msg.getId() + ", Role: " + msg.getRole() + ", Content: " + 
-                            msg.getContent().substring(0, Math.min(20, msg.getContent().length())) + "...");
-        }
-        
-        ConversationHistoryDto conversationHistory = new ConversationHistoryDto();
-        List<MessageDto> messageDtos = existingMessages.stream()
-                .map(msg -> {
-                    MessageDto dto = new MessageDto();
-                    dto.setRole(msg.getRole());
-                    dto.setContent(msg.getContent());
-                    return dto;
-                })
-                .collect(Collectors.toList());
-        conversationHistory.setMessages(messageDtos);
-        processAiRequest.setConversationHistory(conversationHistory);
-        
-        // Add course materials
-        if (course.getPdfCollectionName() != null) {
-            processAiRequest.setPdfCollectionName(course.getPdfCollectionName());
-        }
-        if (course.getDocxCollectionName() != null) {
-            processAiRequest.setDocxCollectionName(course.getDocxCollectionName());
+        Message question = chatService.saveUserMessage(course, userMessage.getContent());
+        Message cached = chatService.cachedReply(course, question);
+        if (cached != null) {
+            return ResponseEntity.ok(dtoMapper.toChatTurn(question, cached));
         }
-        if (course.getPptxCollectionName() != null) {
-            processAiRequest.setPptxCollectionName(course.getPptxCollectionName());
-        }
-        if (course.getVideo() != null) {
-            VideoDto videoDto = new VideoDto();
-            videoDto.setType(course.getVideo().getType());
-            videoDto.setUri(course.getVideo().getUri());
-            videoDto.setPath(course.getVideo().getPath());
-            
-            if (course.getVideo().getDuration() != null) {
-                VideoDto.DurationDto durationDto = new VideoDto.DurationDto();
-                durationDto.setMinutes(course.getVideo().getDuration().getMinutes());
-                durationDto.setSeconds(course.getVideo().getDuration().getSeconds());
-                videoDto.setDuration(durationDto);
-            }
-            processAiRequest.setVideo(videoDto);
-        }
-        
-        Message aiMessage = null;
+        ProcessAiRequestDto processAiRequest = chatService.buildRequest(course);
+        Message reply;
         
         try {
             // Call the API
-            ProcessAiResponseDto response = apiClient.processAi(processAiRequest).block();
+            ProcessAiResponseDto response = apiClient.processAi(processAiRequest)
+                    .contextWrite(AdmissionControl.forCourse(course))
+                    .block();
             
             if (response != null && response.getTaskId() != null) {
                 System.out.println("Got task ID: " + response.getTaskId());
-                TaskResponseDto taskStatus = waitForTaskCompletion(response.getTaskId());
-                
-                if (taskStatus != null && "SUCCESS".equals(taskStatus.getStatus())) {
-                    System.out.println("Task completed successfully");
-                    
-                    // Print the entire result to debug
-                    System.out.println("Task result: " + taskStatus.getResult());
-                    
-                    if (taskStatus.getResult() instanceof Map) {
-                        Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
-                        
-                        // Check if conversation_history is a direct array rather than a nested object
-                        Object convHistoryObj = resultMap.get("conversation_history");
-                        
-                        if (convHistoryObj instanceof List) {
-                            // This is the case we're seeing in your logs - direct array
-                            List<Map<String, Object>> messagesList = (List<Map<String, Object>>) convHistoryObj;
-                            if (!messagesList.isEmpty()) {
-                                // Get the last message in the array (the AI response)
-                                Map<String, Object> lastMessage = messagesList.get(messagesList.size() - 1);
-                                
-                                // Only process if it's a model message
-                                if ("model".equals(lastMessage.get("role"))) {
-                                    String content = (String) lastMessage.get("content");
-                                    String role = (String) lastMessage.get("role");
-                                    
-                                    // Create and save the AI response
-                                    aiMessage = new Message();
-                                    aiMessage.setContent(content);
-                                    aiMessage.setRole(role);  // Keep the original "model" role
-                                    aiMessage.setCourse(course);
-                                    aiMessage.setTimestamp(LocalDateTime.now());
-                                    
-                                    Message savedAiMessage = messageService.saveMessage(aiMessage);
-                                    System.out.println("Saved AI message ID: " + savedAiMessage.getId() + 
-                                                    ", Course ID: " + (savedAiMessage.getCourse() != null ? 
-                                                                        savedAiMessage.getCourse().getId() : "null"));
-                                }
-                            }
-                        } else {
-                            // Try other formats - this is the nested structure approach
-                            Object conversationObj = resultMap.get("conversation_history");
-                            if (conversationObj == null) {
-                                conversationObj = resultMap.get("conversationHistory");
-                            }
-                            
-                            if (conversationObj == null) {
-                                // Try to extract messages directly from the result
-                                Object messagesObj = resultMap.get("messages");
-                                if (messagesObj instanceof List) {
-                                    List<Map<String, String>> messagesList = (List<Map<String, String>>) messagesObj;
-                                    if (!messagesList.isEmpty()) {
-                                        Map<String, String> lastMessage = messagesList.get(messagesList.size() - 1);
-                                        String role = lastMessage.get("role");
-                                        String content = lastMessage.get("content");
-                                        
-                                        if (role != null && content != null) {
-                                            aiMessage = new Message();
-                                            aiMessage.setContent(content);
-                                            aiMessage.setRole(role);
-                                            aiMessage.setCourse(course);
-                                            aiMessage.setTimestamp(LocalDateTime.now());
-                                            
-                                            Message savedAiMessage = messageService.saveMessage(aiMessage);
-                                            System.out.println("Saved AI message ID: " + savedAiMessage.getId() + 
-                                                            ", Course ID: " + (savedAiMessage.getCourse() != null ? 
-                                                                            savedAiMessage.getCourse().getId() : "null"));
-                                        }
-                                    }
-                                } else {
-                                    System.out.println("No conversation history or messages found in response");
-                                    // Create a default AI response
-                                    String content = "I've processed your request about the course materials.";
-                                    aiMessage = createErrorMessage(course, content);
-                                }
-                            } else if (conversationObj instanceof Map) {
-                                Map<String, Object> conversationMap = (Map<String, Object>) conversationObj;
-                                Object messagesObj = conversationMap.get("messages");
-                                
-                                if (messagesObj instanceof List) {
-                                    List<Map<String, String>> messagesList = (List<Map<String, String>>) messagesObj;
-                                    if (!messagesList.isEmpty()) {
-                                        Map<String, String> lastMessage = messagesList.get(messagesList.size() - 1);
-                                        String role = lastMessage.get("role");
-                                        String content = lastMessage.get("content");
-                                        
-                                        if (role != null && content != null) {
-                                            aiMessage = new Message();
-                                            aiMessage.setContent(content);
-                                            aiMessage.setRole(role);
-                                            aiMessage.setCourse(course);
-                                            aiMessage.setTimestamp(LocalDateTime.now());
-                                            
-                                            Message savedAiMessage = messageService.saveMessage(aiMessage);
-                                            System.out.println("Saved AI message ID: " + savedAiMessage.getId() + 
-                                                            ", Course ID: " + (savedAiMessage.getCourse() != null ? 
-                                                                            savedAiMessage.getCourse().getId() : "null"));
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    System.out.println("Task failed with status: " + (taskStatus != null ? taskStatus.getStatus() : "null"));
-                    aiMessage = createErrorMessage(course, "Sorry, I couldn't process your request at this time.");
-                }
+                TaskResponseDto taskStatus = completionEngine.waitFor(response.getTaskId(), TaskTypes.CHAT);
+                reply = chatService.applyResult(course, question, taskStatus);
             } else {
                 System.out.println("No task ID received");
-                aiMessage = createErrorMessage(course, "Sorry, I couldn't process your request at this time.");
+                reply = chatService.saveErrorMessage(course, ChatService.UNAVAILABLE_REPLY);
             }
+        } catch (AdmissionRejectedException | EndpointUnavailableException e) {
+            // Overload and open breakers are the caller's to retry; the question stays in the history without a reply
+            throw e;
         } catch (Exception e) {
             System.err.println("Error in chat process: " + e.getMessage());
-            aiMessage = createErrorMessage(course, "Sorry, an error occurred: " + e.getMessage());
+            reply = chatService.saveErrorMessage(course, "Sorry, an error occurred: " + e.getMessage());
         }
         
-        // Get all messages AFTER processing, including the new AI response
-        System.out.println("Fetching updated messages");
-        List<Message> updatedMessages = messageService.getMessagesByCourse(id);
-        
-        // Log the final conversation history
-        System.out.println("Updated messages after AI call: " + updatedMessages.size());
-        for (Message msg : updatedMessages) {
-            System.out.println("  Message ID: " + msg.getId() + ", Role: " + msg.getRole() + ", Content: " + 
-                            msg.getContent().substring(0, Math.min(20, msg.getContent().length())) + "...");
-        }
-        
-        return ResponseEntity.ok(updatedMessages.stream()
-                .map(this::convertMessageToDto)
-                .collect(Collectors.toList()));
+        return ResponseEntity.ok(dtoMapper.toChatTurn(question, reply));
     }
 
-    // Helper method to handle messages list
-    private void handleMessagesList(List<Map<String, String>> messagesList, Course course) {
-        if (!messagesList.isEmpty()) {
-            // Get the last message (AI response)
-            Map<String, String> lastMessage = messagesList.get(messagesList.size() - 1);
-            String roleFromApi = lastMessage.get("role");
-            String roleToSave = "model".equals(roleFromApi) ? "assistant" : roleFromApi;
-            String content = lastMessage.get("content");
-            
-            System.out.println("Got AI response with role: " + roleFromApi + ", content: " + 
-                            content.substring(0, Math.min(50, content.length())) + "...");
-
-            // Create and save the AI response
-            Message aiMessage = new Message();
-            aiMessage.setContent(content);
-            aiMessage.setRole(roleToSave); 
-            aiMessage.setCourse(course);
-            aiMessage.setTimestamp(LocalDateTime.now());
-            
-            Message savedAiMessage = messageService.saveMessage(aiMessage);
-            System.out.println("Saved AI message ID: " + savedAiMessage.getId() + 
-                            ", Course ID: " + (savedAiMessage.getCourse() != null ? 
-                                            savedAiMessage.getCourse().getId() : "null"));
-        }
+    /**
+     * Chat turn whose reply is streamed as server-sent events while the model writes it: "token"
+     * events carry text fragments and a final "message" event the stored reply. Calls refused by
+     * admission, the model quota or an open breaker end with an "error" event (status and
+     * retryAfter seconds) and leave the question unanswered, as the blocking endpoint does.
+     */
+    @PostMapping(value = "/{id}/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChat(@PathVariable Long id, @RequestBody MessageDto userMessage) {
+        Course course = courseService.getCourseById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        Message question = chatService.saveUserMessage(course, userMessage.getContent());
+        Message cached = chatService.cachedReply(course, question);
+        if (cached != null) {
+            return Flux.just(ServerSentEvent.<Object>builder(Map.of("text", cached.getContent())).event("token").build(),
+                    ServerSentEvent.<Object>builder(dtoMapper.toDto(cached)).event("message").build());
+        }
+        ProcessAiRequestDto processAiRequest = chatService.buildRequest(course);
+
+        AtomicBoolean replied = new AtomicBoolean();
+        return apiClient.streamAi(processAiRequest)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .concatMap(event -> {
+                    switch (event.getEvent()) {
+                        case "token":
+                            return Mono.just(ServerSentEvent.<Object>builder(Map.of("text", event.getText()))
+                                    .event("token").build());
+                        case "done":
+                            replied.set(true);
+                            return storedReply(() -> chatService.saveModelReply(course, question, event.getText()));
+                        case "error":
+                            replied.set(true);
+                            return storedReply(() -> chatService.saveErrorMessage(course,
+                                    "Sorry, an error occurred: " + event.getText()));
+                        default:
+                            return Mono.empty();
+                    }
+                })
+                // The stream ended without a verdict (Python went away mid-reply)
+                .concatWith(Mono.defer(() -> replied.get() ? Mono.empty()
+                        : storedReply(() -> chatService.saveErrorMessage(course, ChatService.UNAVAILABLE_REPLY))))
+                .onErrorResume(error -> {
+                    if (error instanceof AdmissionRejectedException rejected) {
+                        return Mono.just(refusal(rejected.getStatusCode().value(), rejected.getReason(),
+                                rejected.getRetryAfter()));
+                    }
+                    if (error instanceof EndpointUnavailableException unavailable) {
+                        return Mono.just(refusal(unavailable.getStatusCode().value(), unavailable.getReason(),
+                                unavailable.getRetryAfter()));
+                    }
+                    logger.error("Error in streamed chat for course " + course.getId(), error);
+                    return replied.getAndSet(true) ? Mono.empty()
+                            : storedReply(() -> chatService.saveErrorMessage(course,
+                                    "Sorry, an error occurred: " + error.getMessage()));
+                });
+    }
+
+    // JPA work stays off the Netty thread that delivers the tokens
+    private Mono<ServerSentEvent<Object>> storedReply(Supplier<Message> save) {
+        return Mono.fromSupplier(save)
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(message -> ServerSentEvent.<Object>builder(dtoMapper.toDto(message)).event("message").build());
     }
 
-    private Message createErrorMessage(Course course, String content) {
-        Message errorMessage = new Message();
-        errorMessage.setContent(content);
-        errorMessage.setRole("model");  // Using "model" role for consistency
-        errorMessage.setCourse(course);
-        errorMessage.setTimestamp(LocalDateTime.now());
-        return messageService.saveMessage(errorMessage);
+    private static ServerSentEvent<Object> refusal(int status, String reason, java.time.Duration retryAfter) {
+        return ServerSentEvent.<Object>builder(Map.of("status", status, "message", reason,
+                        "retryAfter", Math.max(1, retryAfter.toSeconds())))
+                .event("error")
+                .build();
     }
 
-        // Get conversation history for a course
+    /**
+     * Conversation history, oldest first. Pages with limit plus before=<id> (older messages) or
+     * after=<id> (newer ones; after=0 starts at the beginning); limit alone gives the newest
+     * messages, and no parameters the whole history.
+     */
     @GetMapping("/{id}/messages")
-    public ResponseEntity<List<MessageDto>> getConversationHistory(@PathVariable Long id) {
+    public ResponseEntity<List<MessageDto>> getConversationHistory(@PathVariable Long id,
+                                                                   @RequestParam(required = false) Long before,
+                                                                   @RequestParam(required = false) Long after,
+                                                                   @RequestParam(required = false) Integer limit) {
         // Verify course exists
         if (!courseService.getCourseById(id).isPresent()) {
             return ResponseEntity.notFound().build();
         }
         
-        List<Message> messages = messageService.getMessagesByCourse(id);
-        List<MessageDto> messageDtos = messages.stream()
-                .map(this::convertMessageToDto)
+        List<MessageDto> messageDtos = messageService.getHistoryPage(id, before, after, limit).stream()
+                .map(dtoMapper::toDto)
                 .collect(Collectors.toList());
         
         return ResponseEntity.ok(messageDtos);
@@ -1621,23 +1171,11 @@ public class CourseController {
                     message.setCourse(course);
                     
                     Message savedMessage = messageService.saveMessage(message);
-                    return ResponseEntity.status(HttpStatus.CREATED).body(convertMessageToDto(savedMessage));
+                    return ResponseEntity.status(HttpStatus.CREATED).body(dtoMapper.toDto(savedMessage));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // Helper method to convert Message to MessageDto
-    private MessageDto convertMessageToDto(Message message) {
-        MessageDto dto = new MessageDto();
-        dto.setId(message.getId());
-        dto.setRole(message.getRole());
-        dto.setContent(message.getContent());
-        dto.setTimestamp(message.getTimestamp());
-        if (message.getCourse() != null) {
-            dto.setCourseId(message.getCourse().getId());
-        }
-        return dto;
-    }
 
     
 }
\ No newline at end of file
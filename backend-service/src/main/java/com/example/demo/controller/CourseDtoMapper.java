@@ -0,0 +1,218 @@
+package com.example.demo.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.ChatTurnDto;
+import com.example.demo.dto.CourseDto;
+import com.example.demo.dto.CourseQuestionDto;
+import com.example.demo.dto.FlashCardDto;
+import com.example.demo.dto.MessageDto;
+import com.example.demo.dto.UploadJobDto;
+import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.dto.VideoDto;
+import com.example.demo.model.Course;
+import com.example.demo.model.CourseQuestion;
+import com.example.demo.model.FlashCard;
+import com.example.demo.model.Message;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.repository.MessageView;
+import com.example.demo.service.CourseQuestionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Entity to DTO conversion shared by the blocking and reactive course controllers. Course
+ * conversion touches lazy collections, so callers need an open session or transaction.
+ */
+@Component
+public class CourseDtoMapper {
+
+    private final CourseQuestionService courseQuestionService;
+
+    public CourseDtoMapper(CourseQuestionService courseQuestionService) {
+        this.courseQuestionService = courseQuestionService;
+    }
+
+    public CourseDto toDto(Course course) {
+        CourseDto dto = new CourseDto();
+        dto.setId(course.getId());
+        dto.setTitle(course.getTitle());
+        dto.setDescription(course.getDescription());
+        dto.setCreatedAt(course.getCreatedAt());
+        
+        if (course.getOwner() != null) {
+            dto.setOwnerId(course.getOwner().getId());
+            dto.setOwnerUsername(course.getOwner().getUsername());
+        }
+        
+        dto.setPdfCollectionName(course.getPdfCollectionName());
+        dto.setDocxCollectionName(course.getDocxCollectionName());
+        dto.setPptxCollectionName(course.getPptxCollectionName());
+        
+        if (course.getVideo() != null) {
+            VideoDto videoDto = new VideoDto();
+            videoDto.setType(course.getVideo().getType());
+            videoDto.setUri(course.getVideo().getUri());
+            videoDto.setPath(course.getVideo().getPath());
+            videoDto.setUriData(course.getVideo().getUriData());
+            
+            if (course.getVideo().getDuration() != null) {
+                VideoDto.DurationDto durationDto = new VideoDto.DurationDto();
+                durationDto.setMinutes(course.getVideo().getDuration().getMinutes());
+                durationDto.setSeconds(course.getVideo().getDuration().getSeconds());
+                videoDto.setDuration(durationDto);
+            }
+            
+            dto.setVideo(videoDto);
+        }
+        
+        List<FlashCardDto> flashCardDtos = course.getFlashCards().stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+        dto.setFlashCards(flashCardDtos);
+
+        // Attach course questions
+        try {
+            List<CourseQuestion> questions = courseQuestionService.findByCourse(course);
+            List<CourseQuestionDto> questionDtos = questions.stream().map(q -> {
+                CourseQuestionDto qDto = new CourseQuestionDto();
+                qDto.setId(q.getId());
+                qDto.setFileId(q.getFileId());
+                qDto.setQuestionText(q.getQuestionText());
+                qDto.setAnswersJson(normalizeAnswersJson(q.getAnswersJson()));
+                qDto.setImagesJson(q.getImagesJson());
+                return qDto;
+            }).collect(Collectors.toList());
+            dto.setQuestions(questionDtos);
+        } catch (Exception e) {
+            System.err.println("Failed attaching course questions: " + e.getMessage());
+        }
+        
+        return dto;
+    }
+
+    /**
+     * Normalizes legacy answers JSON (array of objects including a guidelines object) into
+     * the new dictionary structure:
+     * {
+     *   "type": "normal" | "table",
+     *   "guidelines": "..."?,
+     *   "ai_reasoning": "..."? (only when type == table),
+     *   "questions": [ { "question":..., "correct_answer":..., "ai_reasoning":... }, ... ]
+     * }
+     * If already in new structure (object with 'questions' key) it is returned unchanged.
+     */
+    private String normalizeAnswersJson(String answersJson) {
+        if (answersJson == null || answersJson.isEmpty()) return answersJson;
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            JsonNode root = mapper.readTree(answersJson);
+            // Already new structure
+            if (root.isObject() && root.has("questions")) {
+                return answersJson; // pass through
+            }
+            if (root.isArray()) {
+                ArrayNode arr = (ArrayNode) root;
+                ObjectNode out = mapper.createObjectNode();
+                out.put("type", "normal");
+                ArrayNode questionsArr = mapper.createArrayNode();
+                String guidelinesValue = null;
+                for (JsonNode node : arr) {
+                    if (node.has("guidelines")) {
+                        // guidelines node
+                        if (guidelinesValue == null) guidelinesValue = node.get("guidelines").asText();
+                        continue;
+                    }
+                    // Treat remaining objects as question entries
+                    ObjectNode qObj = mapper.createObjectNode();
+                    if (node.has("question")) qObj.set("question", node.get("question"));
+                    if (node.has("correct_answer")) qObj.set("correct_answer", node.get("correct_answer"));
+                    if (node.has("ai_reasoning")) qObj.set("ai_reasoning", node.get("ai_reasoning"));
+                    questionsArr.add(qObj);
+                }
+                if (guidelinesValue != null) out.put("guidelines", guidelinesValue);
+                out.set("questions", questionsArr);
+                return mapper.writeValueAsString(out);
+            }
+            // Unknown shape, return original
+            return answersJson;
+        } catch (Exception e) {
+            // On parse failure, return original to avoid data loss
+            return answersJson;
+        }
+    }
+    
+    public FlashCardDto toDto(FlashCard flashCard) {
+        FlashCardDto dto = new FlashCardDto();
+        dto.setId(flashCard.getId());
+        dto.setQuestion(flashCard.getQuestion());
+        dto.setAnswer(flashCard.getAnswer());
+        return dto;
+    }
+
+    public MessageDto toDto(Message message) {
+        MessageDto dto = new MessageDto();
+        dto.setId(message.getId());
+        dto.setRole(message.getRole());
+        dto.setContent(message.getContent());
+        dto.setTimestamp(message.getTimestamp());
+        if (message.getCourse() != null) {
+            dto.setCourseId(message.getCourse().getId());
+        }
+        return dto;
+    }
+
+    public MessageDto toDto(MessageView message) {
+        MessageDto dto = new MessageDto();
+        dto.setId(message.getId());
+        dto.setRole(message.getRole());
+        dto.setContent(message.getContent());
+        dto.setTimestamp(message.getTimestamp());
+        dto.setCourseId(message.getCourseId());
+        return dto;
+    }
+
+    // The messages one chat turn stored; reply is null when the result held nothing to store
+    public ChatTurnDto toChatTurn(Message question, Message reply) {
+        List<MessageDto> messages = new ArrayList<>();
+        messages.add(toDto(question));
+        if (reply != null) {
+            messages.add(toDto(reply));
+        }
+        ChatTurnDto dto = new ChatTurnDto();
+        dto.setMessages(messages);
+        dto.setCursor(messages.get(messages.size() - 1).getId());
+        return dto;
+    }
+
+    // 202 body for an upload whose processing continues in the background
+    public UploadJobDto toPendingJob(Long courseId, String type, UploadResponseDto response, String processingTaskId) {
+        UploadJobDto job = new UploadJobDto();
+        job.setJobId(response.getFileId());
+        job.setCourseId(courseId);
+        job.setFileId(response.getFileId());
+        job.setFilename(response.getFilename());
+        job.setType(type);
+        job.setStatus("PENDING");
+        job.setProcessingTaskId(processingTaskId);
+        return job;
+    }
+
+    // An upload that matched a file already ingested into the same collection; nothing is pending
+    public UploadJobDto toReadyJob(Long courseId, UploadedFile existing) {
+        UploadJobDto job = new UploadJobDto();
+        job.setJobId(existing.getFileId());
+        job.setCourseId(courseId);
+        job.setFileId(existing.getFileId());
+        job.setFilename(existing.getFilename());
+        job.setType(existing.getType());
+        job.setStatus(existing.getStatus());
+        return job;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.controller;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.security.TaskCallbackVerifier;
+import com.example.demo.service.TaskService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+// Service-to-service endpoints; authenticated by callback signature instead of a user JWT
+@RestController
+@RequestMapping("/internal/tasks")
+public class InternalTaskController {
+
+    private final TaskService taskService;
+    private final TaskCallbackVerifier callbackVerifier;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public InternalTaskController(TaskService taskService, TaskCallbackVerifier callbackVerifier) {
+        this.taskService = taskService;
+        this.callbackVerifier = callbackVerifier;
+    }
+
+    // Called by the Python worker when a Celery task finishes
+    @PostMapping("/{taskId}/complete")
+    public ResponseEntity<Map<String, Object>> completeTask(
+            @PathVariable String taskId,
+            @RequestHeader(value = "X-Callback-Timestamp", required = false) String timestamp,
+            @RequestHeader(value = "X-Callback-Signature", required = false) String signature,
+            @RequestBody byte[] body) {
+        if (!callbackVerifier.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!callbackVerifier.verify(timestamp, signature, body)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        TaskResponseDto status;
+        try {
+            status = objectMapper.readValue(body, TaskResponseDto.class);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid payload"));
+        }
+        if (status.getStatus() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "status is required"));
+        }
+        status.setTaskId(taskId);
+
+        boolean tracked = taskService.handleTaskCallback(taskId, status);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("task_id", taskId, "tracked", tracked));
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.demo.controller;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.client.AdmissionControl;
+import com.example.demo.client.AdmissionRejectedException;
+import com.example.demo.client.EndpointUnavailableException;
+import com.example.demo.client.ApiClient;
+import com.example.demo.dto.ChatTurnDto;
+import com.example.demo.dto.MessageDto;
+import com.example.demo.dto.ProcessAiRequestDto;
+import com.example.demo.dto.ProcessAiResponseDto;
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.model.Course;
+import com.example.demo.model.Message;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.service.ChatService;
+import com.example.demo.service.CourseService;
+import com.example.demo.service.IngestService;
+import com.example.demo.service.MaterialDedupService;
+import com.example.demo.service.TaskCompletionEngine;
+import com.example.demo.service.TaskService;
+import com.example.demo.service.TaskStatusLookup;
+import com.example.demo.service.UploadedFileService;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.function.Tuples;
+
+/**
+ * Non-blocking versions of the {@link ReactiveVariant} endpoints of {@link CourseController},
+ * enabled with {@code app.web.reactive.enabled}. Python calls and task waits are composed as
+ * {@code Mono}s end to end; JPA work runs in short transactions on the bounded
+ * {@code jpaScheduler}, so an open chat or upload request holds no thread while it waits.
+ */
+@RestController
+@RequestMapping("/api/courses")
+@ConditionalOnProperty(name = "app.web.reactive.enabled", havingValue = "true")
+public class ReactiveCourseController {
+
+    private final CourseService courseService;
+    private final ApiClient apiClient;
+    private final TaskService taskService;
+    private final UploadedFileService uploadedFileService;
+    private final IngestService ingestService;
+    private final TaskCompletionEngine completionEngine;
+    private final TaskStatusLookup statusLookup;
+    private final ChatService chatService;
+    private final CourseDtoMapper dtoMapper;
+    private final MaterialDedupService dedupService;
+    private final Scheduler jpaScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean asyncUploadsByDefault;
+
+    public ReactiveCourseController(CourseService courseService, ApiClient apiClient, TaskService taskService,
+                                    UploadedFileService uploadedFileService,
+                                    IngestService ingestService, TaskCompletionEngine completionEngine,
+                                    TaskStatusLookup statusLookup, ChatService chatService, CourseDtoMapper dtoMapper,
+                                    MaterialDedupService dedupService,
+                                    @Qualifier("jpaScheduler") Scheduler jpaScheduler,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.upload.async-default:false}") boolean asyncUploadsByDefault) {
+        this.courseService = courseService;
+        this.apiClient = apiClient;
+        this.taskService = taskService;
+        this.uploadedFileService = uploadedFileService;
+        this.ingestService = ingestService;
+        this.completionEngine = completionEngine;
+        this.statusLookup = statusLookup;
+        this.chatService = chatService;
+        this.dtoMapper = dtoMapper;
+        this.dedupService = dedupService;
+        this.jpaScheduler = jpaScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.asyncUploadsByDefault = asyncUploadsByDefault;
+    }
+
+    @PostMapping("/{id}/upload-pdf")
+    public Mono<ResponseEntity<?>> uploadPdf(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                             @RequestParam(value = "async", required = false) Boolean async) {
+        return uploadDocument(id, file, "PDF", async);
+    }
+
+    @PostMapping("/{id}/upload-docx")
+    public Mono<ResponseEntity<?>> uploadDocx(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                              @RequestParam(value = "async", required = false) Boolean async) {
+        return uploadDocument(id, file, "DOCX", async);
+    }
+
+    @PostMapping("/{id}/upload-pptx")
+    public Mono<ResponseEntity<?>> uploadPptx(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                              @RequestParam(value = "async", required = false) Boolean async) {
+        return uploadDocument(id, file, "PPTX", async);
+    }
+
+    @PostMapping("/{id}/upload-xml")
+    public Mono<ResponseEntity<?>> uploadXml(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                             @RequestParam(value = "async", required = false) Boolean async) {
+        return jpa(() -> {
+                    Course course = requireCourse(id);
+                    return Tuples.of(course, courseService.resolveMaterialsCollection(course));
+                })
+                .flatMap(target -> apiClient.uploadXmlFile(file, target.getT2())
+                        .contextWrite(AdmissionControl.forCourse(target.getT1()))
+                        .filter(response -> response.getProcessXmlTaskId() != null)
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                                HttpStatus.INTERNAL_SERVER_ERROR, "Failed to enqueue XML processing")))
+                        .flatMap(response -> jpa(() -> {
+                            taskService.createTask(response.getProcessXmlTaskId(), "PENDING", id, TaskTypes.PROCESS_XML,
+                                    response.getFileId());
+                            uploadedFileService.register(target.getT1(), "XML", response, target.getT2(),
+                                    response.getProcessXmlTaskId());
+                            return response;
+                        })))
+                .flatMap(response -> respond(id, "XML", response, response.getProcessXmlTaskId(), async,
+                        () -> ingestService.finishXmlIngestAsync(id, response.getFileId(), response.getProcessXmlTaskId())));
+    }
+
+    @PostMapping("/{id}/upload-video")
+    public Mono<ResponseEntity<?>> uploadVideo(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+                                               @RequestParam(value = "async", required = false) Boolean async) {
+        return jpa(() -> requireCourse(id))
+                .flatMap(course -> apiClient.uploadVideo(file)
+                        .contextWrite(AdmissionControl.forCourse(course))
+                        .filter(response -> response.getTaskId() != null)
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                                HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload video")))
+                        .flatMap(response -> jpa(() -> {
+                            taskService.createTask(response.getTaskId(), "PENDING", id, TaskTypes.VIDEO_UPLOAD,
+                                    response.getFileId());
+                            uploadedFileService.register(course, "FILE_VIDEO", response, null, response.getTaskId());
+                            return response;
+                        })))
+                .flatMap(response -> respond(id, "FILE_VIDEO", response, response.getTaskId(), async,
+                        () -> ingestService.finishVideoIngestAsync(id, response.getFileId(), response.getTaskId())));
+    }
+
+    @PostMapping("/{id}/chat")
+    public Mono<ResponseEntity<ChatTurnDto>> chatWithCourse(@PathVariable Long id,
+                                                            @RequestBody MessageDto userMessage) {
+        return jpa(() -> requireCourse(id))
+                .flatMap(course -> jpa(() -> chatService.saveUserMessage(course, userMessage.getContent()))
+                        .flatMap(question -> jpa(() -> chatService.cachedReply(course, question))
+                                .switchIfEmpty(Mono.defer(() -> jpa(() -> chatService.buildRequest(course))
+                                        .flatMap(request -> answer(course, question, request))))
+                                .map(Optional::of)
+                                .defaultIfEmpty(Optional.empty())
+                                .map(reply -> dtoMapper.toChatTurn(question, reply.orElse(null)))))
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{id}/task-status/{taskId}")
+    public Mono<ResponseEntity<TaskResponseDto>> getTaskStatus(@PathVariable Long id, @PathVariable String taskId) {
+        ResponseEntity<TaskResponseDto> badGateway = ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+        return jpa(() -> courseService.getCourseById(id).isPresent())
+                .flatMap(exists -> exists
+                        ? statusLookup.getTaskStatus(taskId)
+                                .map(ResponseEntity::ok)
+                                .defaultIfEmpty(badGateway)
+                                .onErrorReturn(badGateway)
+                        : Mono.just(ResponseEntity.<TaskResponseDto>notFound().build()));
+    }
+
+    // PDF, DOCX and PPTX share one course collection and the same parse/summarise/ingest pipeline
+    private Mono<ResponseEntity<?>> uploadDocument(Long id, MultipartFile file, String type, Boolean async) {
+        // Hashing reads the spooled multipart file, so it runs on the JPA scheduler with the lookups
+        return jpa(() -> {
+                    Course course = requireCourse(id);
+                    String collection = courseService.resolveMaterialsCollection(course);
+                    String contentHash = dedupService.sha256(file);
+                    return new DocumentTarget(course, collection, contentHash,
+                            dedupService.findReadyCopy(contentHash, collection).orElse(null),
+                            dedupService.findFlashCardSource(contentHash, null).isEmpty());
+                })
+                .flatMap(target -> target.readyCopy != null
+                        ? alreadyIngested(id, target.readyCopy, async)
+                        : uploadDocument(id, file, type, async, target));
+    }
+
+    private Mono<ResponseEntity<?>> uploadDocument(Long id, MultipartFile file, String type, Boolean async,
+                                                   DocumentTarget target) {
+        return apiClient.uploadDocument(file, target.collection, target.generateFlashCards)
+                .contextWrite(AdmissionControl.forCourse(target.course))
+                .filter(response -> response.getTaskId() != null)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                        HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload " + type)))
+                .flatMap(response -> jpa(() -> {
+                    taskService.createTask(response.getTaskId(), "PENDING", id, TaskTypes.DOCUMENT_UPLOAD,
+                            response.getFileId());
+                    uploadedFileService.register(target.course, type, response, target.collection,
+                            processingTaskId(response), target.contentHash);
+                    if (response.getParseSummariseIngestTaskId() != null) {
+                        taskService.createTask(response.getParseSummariseIngestTaskId(), "PENDING", id,
+                                TaskTypes.PARSE_INGEST, response.getFileId());
+                    }
+                    return response;
+                }))
+                .flatMap(response -> respond(id, type, response, processingTaskId(response), async, () -> {
+                    String parseTaskId = response.getParseSummariseIngestTaskId();
+                    return parseTaskId != null
+                            ? ingestService.finishDocumentIngestAsync(id, response.getFileId(), parseTaskId)
+                            : null;
+                }));
+    }
+
+    // Same bytes already READY in this collection: answer as if the upload had just finished
+    private Mono<ResponseEntity<?>> alreadyIngested(Long id, UploadedFile existing, Boolean async) {
+        if (async != null ? async : asyncUploadsByDefault) {
+            return Mono.just(ResponseEntity.ok(dtoMapper.toReadyJob(id, existing)));
+        }
+        return jpa(() -> dtoMapper.toDto(requireCourse(id))).map(ResponseEntity::ok);
+    }
+
+    // The long-running step is parse/summarise/ingest; prefer that task id
+    private static String processingTaskId(UploadResponseDto response) {
+        String parseTaskId = response.getParseSummariseIngestTaskId();
+        return parseTaskId != null ? parseTaskId : response.getTaskId();
+    }
+
+    // Starts the follow-up, then answers 202 right away or the updated course once the follow-up is applied
+    private Mono<ResponseEntity<?>> respond(Long id, String type, UploadResponseDto response, String processingTaskId,
+                                            Boolean async, Supplier<CompletableFuture<Void>> followUp) {
+        Mono<CompletableFuture<Void>> started = Mono.fromSupplier(followUp).subscribeOn(jpaScheduler);
+        if (async != null ? async : asyncUploadsByDefault) {
+            return started.then(Mono.fromSupplier(() -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(dtoMapper.toPendingJob(id, type, response, processingTaskId))));
+        }
+        return started.flatMap(Mono::fromFuture)
+                .then(jpa(() -> dtoMapper.toDto(requireCourse(id))))
+                .<ResponseEntity<?>>map(ResponseEntity::ok);
+    }
+
+    // Same outcomes as the blocking chat: a reply, an apology on failure or timeout, the error text, or 429 on overload.
+    // Emits the stored reply, or nothing when the result held none
+    private Mono<Message> answer(Course course, Message question, ProcessAiRequestDto request) {
+        return apiClient.processAi(request)
+                .contextWrite(AdmissionControl.forCourse(course))
+                .defaultIfEmpty(new ProcessAiResponseDto())
+                .flatMap(response -> {
+                    if (response.getTaskId() == null) {
+                        return jpa(() -> chatService.saveErrorMessage(course, ChatService.UNAVAILABLE_REPLY));
+                    }
+                    return Mono.fromFuture(() -> completionEngine.await(response.getTaskId(), TaskTypes.CHAT))
+                            .map(Optional::of)
+                            .onErrorReturn(Optional.empty())
+                            .flatMap(status -> jpa(() -> chatService.applyResult(course, question, status.orElse(null))));
+                })
+                .onErrorResume(error -> !(error instanceof AdmissionRejectedException)
+                                && !(error instanceof EndpointUnavailableException),
+                        error -> jpa(() -> chatService.saveErrorMessage(course,
+                                "Sorry, an error occurred: " + error.getMessage())));
+    }
+
+    private static final class DocumentTarget {
+        private final Course course;
+        private final String collection;
+        private final String contentHash;
+        private final UploadedFile readyCopy;
+        private final boolean generateFlashCards;
+
+        private DocumentTarget(Course course, String collection, String contentHash, UploadedFile readyCopy,
+                               boolean generateFlashCards) {
+            this.course = course;
+            this.collection = collection;
+            this.contentHash = contentHash;
+            this.readyCopy = readyCopy;
+            this.generateFlashCards = generateFlashCards;
+        }
+    }
+
+    private Course requireCourse(Long id) {
+        return courseService.getCourseById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+    }
+
+    // One short transaction on the JPA scheduler; also keeps lazy collections readable for DTO mapping
+    private <T> Mono<T> jpa(Supplier<T> work) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(status -> work.get()))
+                .subscribeOn(jpaScheduler);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a blocking handler that {@link ReactiveCourseController} serves at the same path when
+ * {@code app.web.reactive.enabled} is true. Marked handlers are then left unmapped.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReactiveVariant {
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+// Aggregate job of a materials:batch upload; each file's progress is its UploadedFile status
+@Data
+public class BatchUploadDto {
+    private String batchId;
+    private Long courseId;
+    private String status; // PENDING while any file is, then READY, FAILED or PARTIAL (some failed)
+    private int total;
+    private int ready;
+    private int pending;
+    private int failed;
+    private List<UploadedFileDto> files;
+}
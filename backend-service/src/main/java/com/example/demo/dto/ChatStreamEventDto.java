@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+// One server-sent event of a streamed chat reply: "token" (a text fragment), "done" (the whole reply) or "error"
+@Data
+public class ChatStreamEventDto {
+    private String event;
+    private String text;
+}
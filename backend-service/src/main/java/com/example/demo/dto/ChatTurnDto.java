@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+// Result of one chat turn: only the messages it stored, plus the id to pass as ?after= on the next sync
+@Data
+public class ChatTurnDto {
+    private List<MessageDto> messages; // the question, then the reply when one was stored
+    private Long cursor;
+}
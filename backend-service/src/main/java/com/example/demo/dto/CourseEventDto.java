@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+@Data
+public class CourseEventDto {
+    private String type;       // "task", "file" or "upload"
+    private Long courseId;
+    private String id;         // Task id, uploaded file id or streamed upload id
+    private String status;     // Task: PENDING/SUCCESS/FAILURE, file: PENDING/READY/FAILED, upload: UPLOADING/UPLOADED/FAILED
+    private String detail;     // Task type or file type, if known; upload: "transferred/total" bytes
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class TaskStatusBatchRequestDto {
+    private List<String> taskIds;
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+// Returned with 202 Accepted by asynchronous uploads; progress is tracked on the uploaded file
+@Data
+public class UploadJobDto {
+    private String jobId;
+    private Long courseId;
+    private String fileId;
+    private String filename;
+    private String type;
+    private String status;
+    private String processingTaskId;
+}
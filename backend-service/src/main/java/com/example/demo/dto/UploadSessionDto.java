@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+// State of a chunked upload; the next PUT must start at offset
+@Data
+public class UploadSessionDto {
+    private String uploadId;
+    private Long courseId;
+    private String filename;
+    private String type;
+    private long size;
+    private long offset;
+    private long maxChunkBytes;
+}
@@ -0,0 +1,61 @@
+package com.example.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// One file of a materials:batch upload. A file already ingested earlier is referenced by every batch that
+// included it, so each batch keeps its own membership; plain ids like UploadSession, no relations
+@Entity
+@Table(name = "batch_entries", indexes = {
+        @Index(name = "idx_batch_entries_course_batch", columnList = "course_id, batch_id, position")
+})
+public class BatchEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", length = 36, nullable = false)
+    private String batchId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    // Order of the file in the request
+    @Column(nullable = false)
+    private int position;
+
+    // The UploadedFile the entry reports on
+    @Column(name = "file_id")
+    private String fileId;
+
+    private String filename;
+
+    public BatchEntry() {
+    }
+
+    public BatchEntry(String batchId, Long courseId, int position, String fileId, String filename) {
+        this.batchId = batchId;
+        this.courseId = courseId;
+        this.position = position;
+        this.fileId = fileId;
+        this.filename = filename;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getBatchId() { return batchId; }
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+    public String getFileId() { return fileId; }
+    public void setFileId(String fileId) { this.fileId = fileId; }
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+// Rolling summary of a course chat's older turns (see ConversationWindowService); one row per course
+@Entity
+@Table(name = "conversation_summaries")
+public class ConversationSummary {
+    @Id
+    @Column(name = "course_id")
+    private Long courseId;
+
+    @Lob
+    @Column(nullable = false)
+    private String content;
+
+    // Id of the newest message folded into the summary; later messages are sent verbatim
+    @Column(name = "through_message_id", nullable = false)
+    private Long throughMessageId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Two nodes refreshing the same course at once: the later save fails instead of losing turns.
+    // Null until first saved, which is how Spring Data tells a new summary from an update
+    @Version
+    private Long version;
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    public Long getThroughMessageId() { return throughMessageId; }
+    public void setThroughMessageId(Long throughMessageId) { this.throughMessageId = throughMessageId; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
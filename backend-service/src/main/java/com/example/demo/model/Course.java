@@ -34,6 +34,11 @@ public class Course {
     @Column(name = "pptx_collection_name")
     private String pptxCollectionName;
 
+    // Bumped whenever the course's indexed materials change (CourseRepository.bumpMaterialsVersion only,
+    // never written by entity saves, so a stale Course cannot roll it back); cached chat answers carry it
+    @Column(name = "materials_version", updatable = false)
+    private Long materialsVersion = 0L;
+
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "video_id")
     private Video video;
@@ -123,6 +128,10 @@ public class Course {
         this.pptxCollectionName = pptxCollectionName;
     }
 
+    public long getMaterialsVersion() {
+        return materialsVersion != null ? materialsVersion : 0;
+    }
+
     public Video getVideo() {
         return video;
     }
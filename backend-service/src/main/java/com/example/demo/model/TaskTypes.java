@@ -0,0 +1,18 @@
+package com.example.demo.model;
+
+// Values stored in Task.taskType and used to pick a polling profile
+public final class TaskTypes {
+
+    public static final String DOCUMENT_UPLOAD = "DOCUMENT_UPLOAD";
+    public static final String PARSE_INGEST = "PARSE_INGEST";
+    public static final String PROCESS_XML = "PROCESS_XML";
+    public static final String FLASH_CARDS = "FLASH_CARDS";
+    public static final String QUIZ_EXPORT = "QUIZ_EXPORT";
+    public static final String VIDEO_UPLOAD = "VIDEO_UPLOAD";
+    public static final String VIDEO_URI = "VIDEO_URI";
+    public static final String CHAT = "CHAT";
+    public static final String DELETE = "DELETE";
+
+    private TaskTypes() {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+
+// A chunked upload in progress; the bytes received so far live in app.upload.dir (see ChunkedUploadService)
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+    @Id
+    @Column(name = "upload_id", length = 36)
+    private String uploadId;
+
+    private String filename;
+
+    private String type; // PDF, DOCX, PPTX or VIDEO
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Plain id rather than a relation so deleting a course is not blocked; stale sessions expire
+    @Column(name = "course_id")
+    private Long courseId;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+}
@@ -1,17 +1,22 @@
 package com.example.demo.model;
 
+import java.time.LocalDateTime;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "uploaded_files")
+@Table(name = "uploaded_files", indexes = {
+        @Index(name = "idx_uploaded_files_content_hash", columnList = "content_hash")
+})
 public class UploadedFile {
     @Id
     @Column(name = "file_id")
@@ -31,6 +36,27 @@ public class UploadedFile {
     @Column(name = "processing_task_id")
     private String processingTaskId;
 
+    // Multi-stage processing (video): current stage (a TaskTypes value, DONE or FAILED) and its deadlines
+    @Column(name = "stage")
+    private String stage;
+
+    @Column(name = "stage_deadline")
+    private LocalDateTime stageDeadline;
+
+    @Column(name = "deadline")
+    private LocalDateTime deadline;
+
+    // Hex SHA-256 of the file bytes, used to spot re-uploads of the same material
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Backend instance running the video chain; others take it over once the lease runs out
+    @Column(name = "ingest_node")
+    private String ingestNode;
+
+    @Column(name = "ingest_lease_until")
+    private LocalDateTime ingestLeaseUntil;
+
     @ManyToOne
     @JoinColumn(name = "course_id")
     @JsonIgnore
@@ -50,6 +76,18 @@ public class UploadedFile {
     public void setStatus(String status) { this.status = status; }
     public String getProcessingTaskId() { return processingTaskId; }
     public void setProcessingTaskId(String processingTaskId) { this.processingTaskId = processingTaskId; }
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+    public LocalDateTime getStageDeadline() { return stageDeadline; }
+    public void setStageDeadline(LocalDateTime stageDeadline) { this.stageDeadline = stageDeadline; }
+    public LocalDateTime getDeadline() { return deadline; }
+    public void setDeadline(LocalDateTime deadline) { this.deadline = deadline; }
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public String getIngestNode() { return ingestNode; }
+    public void setIngestNode(String ingestNode) { this.ingestNode = ingestNode; }
+    public LocalDateTime getIngestLeaseUntil() { return ingestLeaseUntil; }
+    public void setIngestLeaseUntil(LocalDateTime ingestLeaseUntil) { this.ingestLeaseUntil = ingestLeaseUntil; }
 
     @PrePersist
     protected void onCreate() {
@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.BatchEntry;
+
+@Repository
+public interface BatchEntryRepository extends JpaRepository<BatchEntry, Long> {
+	List<BatchEntry> findByCourseIdAndBatchIdOrderByPosition(Long courseId, String batchId);
+
+	@Modifying
+	@Transactional
+	void deleteByCourseId(Long courseId);
+}
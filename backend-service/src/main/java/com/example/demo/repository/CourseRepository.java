@@ -3,7 +3,11 @@ package com.example.demo.repository;
 import com.example.demo.model.Course;
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,4 +15,10 @@ import java.util.List;
 public interface CourseRepository extends JpaRepository<Course, Long> {
     List<Course> findByOwner(User owner);
     List<Course> findByTitleContainingIgnoreCase(String title);
+
+    // Materials were added, removed or re-pointed: answers cached against the old version no longer apply
+    @Modifying
+    @Transactional
+    @Query("update Course c set c.materialsVersion = coalesce(c.materialsVersion, 0) + 1 where c.id = :courseId")
+    int bumpMaterialsVersion(@Param("courseId") Long courseId);
 }
\ No newline at end of file
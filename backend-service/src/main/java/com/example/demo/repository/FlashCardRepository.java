@@ -15,6 +15,7 @@ import com.example.demo.model.FlashCard;
 @Repository
 public interface FlashCardRepository extends JpaRepository<FlashCard, Long> {
     List<FlashCard> findByCourse(Course course);
+    List<FlashCard> findByUploadedFileFileId(String fileId);
 
     @Modifying
     @Transactional
@@ -2,12 +2,49 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Course;
 import com.example.demo.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByCourseOrderByTimestampAsc(Course course);
-}
\ No newline at end of file
+
+    // Newest first, for windows over the end of a conversation
+    List<Message> findByCourseOrderByIdDesc(Course course, Pageable pageable);
+
+    // Oldest first, from just after {@code afterId}
+    List<Message> findByCourseAndIdGreaterThanOrderByIdAsc(Course course, Long afterId, Pageable pageable);
+
+    // History pages: keyset scans over idx_messages_course_timestamp_id, so a page costs the same at any depth
+
+    String VIEW = "select m.id as id, m.role as role, m.content as content, m.timestamp as timestamp,"
+            + " m.course.id as courseId from Message m where m.course.id = :courseId";
+
+    @Query(VIEW + " order by m.timestamp asc, m.id asc")
+    List<MessageView> findViewsByCourseId(@Param("courseId") Long courseId, Pageable pageable);
+
+    @Query(VIEW + " order by m.timestamp desc, m.id desc")
+    List<MessageView> findNewestViewsByCourseId(@Param("courseId") Long courseId, Pageable pageable);
+
+    // The redundant bound on timestamp alone gives the planner an index range to start from
+    @Query(VIEW + " and m.timestamp >= :timestamp and (m.timestamp > :timestamp or (m.timestamp = :timestamp and m.id > :id))"
+            + " order by m.timestamp asc, m.id asc")
+    List<MessageView> findViewsAfter(@Param("courseId") Long courseId, @Param("timestamp") LocalDateTime timestamp,
+                                     @Param("id") Long id, Pageable pageable);
+
+    @Query(VIEW + " and m.timestamp <= :timestamp and (m.timestamp < :timestamp or (m.timestamp = :timestamp and m.id < :id))"
+            + " order by m.timestamp desc, m.id desc")
+    List<MessageView> findViewsBefore(@Param("courseId") Long courseId, @Param("timestamp") LocalDateTime timestamp,
+                                      @Param("id") Long id, Pageable pageable);
+
+    // Position of a cursor message in history order; empty if it is not in the course
+    @Query("select m.timestamp from Message m where m.id = :id and m.course.id = :courseId")
+    Optional<LocalDateTime> findTimestamp(@Param("courseId") Long courseId, @Param("id") Long id);
+}
@@ -0,0 +1,12 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+
+// Read-only projection of a message for history pages; reads the course id from the foreign key, never the Course
+public interface MessageView {
+    Long getId();
+    String getRole();
+    String getContent();
+    LocalDateTime getTimestamp();
+    Long getCourseId();
+}
@@ -1,7 +1,10 @@
 package com.example.demo.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -20,6 +23,34 @@ public interface TaskRepository extends JpaRepository<Task, String> {
     List<Task> findByStatus(String status);
     List<Task> findByCourseAndTaskTypeAndSourceFileId(Course course, String taskType, String sourceFileId);
 
+    // Recent finished tasks of a type, used to learn typical durations for polling
+    List<Task> findTop50ByTaskTypeAndStatusAndCompletedAtIsNotNullOrderByCompletedAtDesc(String taskType, String status);
+
+    // Oldest-first keyset paging for the pending task sweep; stable while rows leave the status
+    List<Task> findByStatusOrderByCreatedAtAscTaskIdAsc(String status, Pageable pageable);
+
+    @Query("select t from Task t where t.status = :status and (t.createdAt > :createdAt"
+            + " or (t.createdAt = :createdAt and t.taskId > :taskId)) order by t.createdAt asc, t.taskId asc")
+    List<Task> findPageByStatusAfter(@Param("status") String status, @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("taskId") String taskId, Pageable pageable);
+
+    // Takes or renews the lease on the given PENDING tasks unless another live node holds it
+    @Modifying
+    @Transactional
+    @Query("update Task t set t.claimedBy = :node, t.leaseUntil = :leaseUntil, t.version = t.version + 1"
+            + " where t.taskId in :taskIds and t.status = 'PENDING'"
+            + " and (t.claimedBy is null or t.claimedBy = :node or t.leaseUntil < :now)")
+    int claimPending(@Param("taskIds") Collection<String> taskIds, @Param("node") String node,
+                     @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    List<Task> findByTaskIdInAndClaimedBy(Collection<String> taskIds, String claimedBy);
+
+    @Modifying
+    @Transactional
+    @Query("update Task t set t.claimedBy = null, t.leaseUntil = null, t.version = t.version + 1"
+            + " where t.claimedBy = :node and t.status = 'PENDING'")
+    int releaseClaims(@Param("node") String node);
+
     @Modifying
     @Transactional
     @Query("delete from Task t where t.course.id = :courseId")
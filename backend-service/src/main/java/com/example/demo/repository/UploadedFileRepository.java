@@ -1,9 +1,12 @@
 package com.example.demo.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,6 +17,27 @@ import com.example.demo.model.UploadedFile;
 public interface UploadedFileRepository extends JpaRepository<UploadedFile, String> {
 	List<UploadedFile> findByCourse(Course course);
 	List<UploadedFile> findByCourseId(Long courseId);
+	List<UploadedFile> findByStageIn(Collection<String> stages);
+	List<UploadedFile> findByContentHashAndStatus(String contentHash, String status);
+
+	// Takes the video chain of a file unless another live node holds it; returns 1 when this node won
+	@Modifying
+	@Transactional
+	@Query("update UploadedFile f set f.ingestNode = :node, f.ingestLeaseUntil = :leaseUntil"
+			+ " where f.fileId = :fileId"
+			+ " and (f.ingestNode is null or f.ingestNode = :node or f.ingestLeaseUntil < :now)")
+	int claimIngest(String fileId, String node, LocalDateTime leaseUntil, LocalDateTime now);
+
+	@Modifying
+	@Transactional
+	@Query("update UploadedFile f set f.ingestNode = null, f.ingestLeaseUntil = null"
+			+ " where f.fileId = :fileId and f.ingestNode = :node")
+	int releaseIngest(String fileId, String node);
+
+	@Modifying
+	@Transactional
+	@Query("update UploadedFile f set f.ingestLeaseUntil = :leaseUntil where f.ingestNode = :node and f.stage in :stages")
+	int renewIngests(String node, Collection<String> stages, LocalDateTime leaseUntil);
 	@Modifying
 	@Transactional
 	void deleteByFileId(String fileId);
@@ -0,0 +1,73 @@
+package com.example.demo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies task completion callbacks pushed by the Python worker. The worker signs
+ * {@code <timestamp>.<raw body>} with HMAC-SHA256 using the shared callback secret and sends the
+ * hex digest in {@code X-Callback-Signature} and the unix timestamp in {@code X-Callback-Timestamp}.
+ */
+@Component
+public class TaskCallbackVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final byte[] secret;
+    private final long maxSkewSeconds;
+
+    public TaskCallbackVerifier(@Value("${app.tasks.callback.enabled:false}") boolean enabled,
+                                @Value("${app.tasks.callback.secret:}") String secret,
+                                @Value("${app.tasks.callback.max-skew-seconds:300}") long maxSkewSeconds) {
+        this.enabled = enabled && secret != null && !secret.isBlank();
+        this.secret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        this.maxSkewSeconds = maxSkewSeconds;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean verify(String timestamp, String signature, byte[] body) {
+        if (!enabled || timestamp == null || signature == null) {
+            return false;
+        }
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        // Reject stale or future-dated callbacks so a captured request cannot be replayed later
+        long now = System.currentTimeMillis() / 1000;
+        if (Math.abs(now - sentAt) > maxSkewSeconds) {
+            return false;
+        }
+        byte[] expected = sign(timestamp, body).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, signature.trim().toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String sign(String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            byte[] digest = mac.doFinal(body);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to compute callback signature", e);
+        }
+    }
+}
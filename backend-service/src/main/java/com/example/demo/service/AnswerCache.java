@@ -0,0 +1,276 @@
+package com.example.demo.service;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.Course;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-course cache of model answers to standalone questions, so a question students keep asking
+ * ("what is on the exam", "define entropy") is answered once per version of the course materials.
+ * Questions are normalised (case, accents, punctuation, greetings) and matched exactly, or as near
+ * duplicates: MinHash over character trigrams estimates their Jaccard similarity, and an answer is
+ * reused above {@code similarity-threshold} when both questions mention the same numbers. Entries
+ * carry {@link Course#getMaterialsVersion()}; a lookup under a newer version drops the course's
+ * entries. Questions that lean on earlier turns ("explain it again") are neither served nor stored.
+ */
+@Service
+public class AnswerCache {
+
+    private static final int SHINGLE = 3;
+    private static final int HASHES = 64;
+    private static final long[] SEEDS = new long[HASHES];
+    private static final Set<String> FILLER = Set.of("please", "pls", "thanks", "thank", "hi", "hello", "hey");
+    private static final Set<String> FOLLOW_UP = Set.of("it", "its", "they", "them", "their", "these", "those",
+            "above", "previous", "again");
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final boolean enabled;
+    private final double threshold;
+    private final int maxEntriesPerCourse;
+    private final Duration ttl;
+    // Least recently asked courses go first
+    private final Map<Long, CourseAnswers> courses;
+    private final Counter hits;
+    private final Counter misses;
+
+    public AnswerCache(@Value("${app.chat.answer-cache.enabled:true}") boolean enabled,
+                       @Value("${app.chat.answer-cache.similarity-threshold:0.8}") double threshold,
+                       @Value("${app.chat.answer-cache.max-entries-per-course:200}") int maxEntriesPerCourse,
+                       @Value("${app.chat.answer-cache.max-courses:1000}") int maxCourses,
+                       @Value("${app.chat.answer-cache.ttl-minutes:1440}") long ttlMinutes,
+                       MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.maxEntriesPerCourse = maxEntriesPerCourse;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.courses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CourseAnswers> eldest) {
+                return size() > maxCourses;
+            }
+        };
+        this.hits = meterRegistry.counter("answer.cache.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("answer.cache.lookups", "result", "miss");
+        Gauge.builder("answer.cache.hit.ratio", this, AnswerCache::hitRatio)
+                .description("Share of cacheable chat questions answered from the cache")
+                .register(meterRegistry);
+        Gauge.builder("answer.cache.entries", this, AnswerCache::size)
+                .description("Cached chat answers across all courses")
+                .register(meterRegistry);
+    }
+
+    /** The cached answer to this question or a near duplicate under the current materials, or null. */
+    public String find(Course course, String question) {
+        Question asked = parse(question);
+        if (asked == null) {
+            return null;
+        }
+        CourseAnswers answers = answers(course, false);
+        String answer = answers == null ? null : answers.find(asked, course.getMaterialsVersion());
+        (answer != null ? hits : misses).increment();
+        return answer;
+    }
+
+    /**
+     * Remembers a model answer. {@code course} must be the one loaded when the question came in,
+     * so an answer produced while materials changed is stored under the version it was based on.
+     */
+    public void put(Course course, String question, String answer) {
+        Question asked = parse(question);
+        if (asked == null || answer == null || answer.isBlank()) {
+            return;
+        }
+        answers(course, true).put(asked, answer, course.getMaterialsVersion());
+    }
+
+    public void evict(Long courseId) {
+        synchronized (courses) {
+            courses.remove(courseId);
+        }
+    }
+
+    private CourseAnswers answers(Course course, boolean create) {
+        synchronized (courses) {
+            CourseAnswers answers = courses.get(course.getId());
+            if (answers == null && create) {
+                answers = new CourseAnswers();
+                courses.put(course.getId(), answers);
+            }
+            return answers;
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private int size() {
+        synchronized (courses) {
+            return courses.values().stream().mapToInt(CourseAnswers::size).sum();
+        }
+    }
+
+    // Null when caching is off or the question is not standalone
+    private Question parse(String question) {
+        if (!enabled || question == null) {
+            return null;
+        }
+        String folded = Normalizer.normalize(question.toLowerCase(), Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("[^\\p{L}\\p{N}]+", " ");
+        StringBuilder text = new StringBuilder();
+        Set<String> numbers = new TreeSet<>();
+        for (String word : folded.trim().split(" ")) {
+            if (word.isEmpty() || FILLER.contains(word)) {
+                continue;
+            }
+            if (FOLLOW_UP.contains(word)) {
+                return null;
+            }
+            if (word.chars().anyMatch(Character::isDigit)) {
+                numbers.add(word);
+            }
+            text.append(text.length() == 0 ? "" : " ").append(word);
+        }
+        return text.length() == 0 ? null : new Question(text.toString(), numbers, signature(text.toString()));
+    }
+
+    static int[] signature(String text) {
+        String padded = " " + text + " ";
+        Set<Integer> shingles = new HashSet<>();
+        for (int i = 0; i + SHINGLE <= padded.length(); i++) {
+            shingles.add(padded.substring(i, i + SHINGLE).hashCode());
+        }
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int shingle : shingles) {
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], (int) (mix(shingle ^ SEEDS[i]) >>> 33));
+            }
+        }
+        return signature;
+    }
+
+    // Estimated Jaccard similarity of the two questions' trigram sets
+    static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASHES;
+    }
+
+    // MurmurHash3 finaliser
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB93FE53E3B27L;
+        return value ^ (value >>> 33);
+    }
+
+    private static final class Question {
+        private final String text;
+        private final Set<String> numbers;
+        private final int[] signature;
+
+        private Question(String text, Set<String> numbers, int[] signature) {
+            this.text = text;
+            this.numbers = numbers;
+            this.signature = signature;
+        }
+    }
+
+    private static final class Entry {
+        private final Question question;
+        private final String answer;
+        private final long storedAt;
+
+        private Entry(Question question, String answer, long storedAt) {
+            this.question = question;
+            this.answer = answer;
+            this.storedAt = storedAt;
+        }
+    }
+
+    // One course's answers for a single materials version, least recently used first
+    private final class CourseAnswers {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long version;
+
+        synchronized String find(Question asked, long currentVersion) {
+            if (currentVersion != version) {
+                // Older versions were invalidated; a newer one means this course object is stale
+                if (currentVersion > version) {
+                    entries.clear();
+                    version = currentVersion;
+                }
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> now - entry.storedAt > ttl.toMillis());
+            Entry exact = entries.get(asked.text);
+            if (exact != null) {
+                return exact.answer;
+            }
+            Entry best = null;
+            double bestSimilarity = threshold;
+            for (Entry entry : entries.values()) {
+                double similarity = similarity(asked.signature, entry.question.signature);
+                if (similarity >= bestSimilarity && entry.question.numbers.equals(asked.numbers)) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            // Marks it recently used
+            entries.get(best.question.text);
+            return best.answer;
+        }
+
+        synchronized void put(Question asked, String answer, long answerVersion) {
+            if (answerVersion < version) {
+                return;
+            }
+            if (answerVersion > version) {
+                entries.clear();
+                version = answerVersion;
+            }
+            entries.put(asked.text, new Entry(asked, answer, System.currentTimeMillis()));
+            if (entries.size() > maxEntriesPerCourse) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.client.AdmissionControl;
+import com.example.demo.client.ApiClient;
+import com.example.demo.dto.BatchUploadDto;
+import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.dto.UploadedFileDto;
+import com.example.demo.model.BatchEntry;
+import com.example.demo.model.Course;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.model.UploadedFile;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Many course documents in one request. Files are sent to Python at most {@code parallelism}
+ * at a time, each follows the usual document pipeline (dedup, parse/summarise/ingest, flash
+ * cards) in the background, and one {@link BatchEntry} per file ties their {@link UploadedFile}
+ * rows into one aggregate job. Files that fail to upload get a FAILED row and already ingested
+ * duplicates are referenced as they are, so the aggregate always covers every file of the batch
+ * and a file can belong to any number of batches.
+ */
+@Service
+public class BatchUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchUploadService.class);
+
+    private final ApiClient apiClient;
+    private final CourseService courseService;
+    private final TaskService taskService;
+    private final UploadedFileService uploadedFileService;
+    private final IngestService ingestService;
+    private final MaterialDedupService dedupService;
+    private final int parallelism;
+    private final int maxFiles;
+
+    public BatchUploadService(ApiClient apiClient, CourseService courseService, TaskService taskService,
+                              UploadedFileService uploadedFileService, IngestService ingestService,
+                              MaterialDedupService dedupService,
+                              @Value("${app.upload.batch.parallelism:4}") int parallelism,
+                              @Value("${app.upload.batch.max-files:50}") int maxFiles) {
+        this.apiClient = apiClient;
+        this.courseService = courseService;
+        this.taskService = taskService;
+        this.uploadedFileService = uploadedFileService;
+        this.ingestService = ingestService;
+        this.dedupService = dedupService;
+        this.parallelism = parallelism;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Sends every file to Python and returns once all are enqueued (or failed to enqueue); ingest
+     * continues in the background. The result lists the files in request order.
+     */
+    public BatchUploadDto dispatch(Course course, List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No files provided");
+        }
+        if (files.size() > maxFiles) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxFiles + " files per batch");
+        }
+        List<String> unsupported = files.stream()
+                .map(MultipartFile::getOriginalFilename)
+                .filter(name -> documentType(name) == null)
+                .collect(Collectors.toList());
+        if (!unsupported.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Only PDF, DOCX and PPTX files can be batch uploaded: " + unsupported);
+        }
+
+        Long courseId = course.getId();
+        String collection = courseService.resolveMaterialsCollection(course);
+        Course target = courseService.getCourseById(courseId).orElse(course);
+        String batchId = UUID.randomUUID().toString();
+        List<UploadedFileDto> entries = Flux.fromIterable(files)
+                .flatMapSequential(file -> dispatchOne(target, collection, batchId, file), parallelism)
+                .collectList()
+                .block();
+        List<BatchEntry> members = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            members.add(new BatchEntry(batchId, courseId, i, entries.get(i).getFileId(), entries.get(i).getFilename()));
+        }
+        uploadedFileService.saveBatch(members);
+        logger.info("Batch {} for course {}: {} files dispatched", batchId, courseId, files.size());
+        return summarize(batchId, courseId, entries);
+    }
+
+    // Current state of the files of the batch, in request order
+    public BatchUploadDto status(Long courseId, String batchId) {
+        List<BatchEntry> members = uploadedFileService.findBatch(courseId, batchId);
+        if (members.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Batch not found");
+        }
+        Map<String, UploadedFile> files = uploadedFileService.findAllById(members.stream()
+                        .map(BatchEntry::getFileId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(UploadedFile::getFileId, Function.identity()));
+        List<UploadedFileDto> entries = new ArrayList<>();
+        for (BatchEntry member : members) {
+            UploadedFile file = member.getFileId() != null ? files.get(member.getFileId()) : null;
+            if (file != null) {
+                entries.add(toEntry(file));
+            } else {
+                // No row to report on (removed from the course since): it is not part of the materials
+                UploadedFileDto missing = new UploadedFileDto();
+                missing.setFileId(member.getFileId());
+                missing.setFilename(member.getFilename());
+                missing.setStatus("FAILED");
+                entries.add(missing);
+            }
+        }
+        return summarize(batchId, courseId, entries);
+    }
+
+    private Mono<UploadedFileDto> dispatchOne(Course course, String collection, String batchId, MultipartFile file) {
+        String type = documentType(file.getOriginalFilename());
+        // Hashing and the JPA work block, so neither runs on the WebClient event loop
+        return Mono.fromCallable(() -> dedupService.sha256(file))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(contentHash -> {
+                    Optional<UploadedFile> readyCopy = dedupService.findReadyCopy(contentHash, collection);
+                    if (readyCopy.isPresent()) {
+                        // The batch references the ready copy; it stays in whatever batch it came from
+                        return Mono.just(toEntry(readyCopy.get()));
+                    }
+                    boolean generateFlashCards = dedupService.findFlashCardSource(contentHash, null).isEmpty();
+                    return apiClient.uploadDocument(file, collection, generateFlashCards)
+                            .contextWrite(AdmissionControl.forCourse(course))
+                            .filter(response -> response.getTaskId() != null)
+                            .switchIfEmpty(Mono.error(() -> new IllegalStateException("No task id from Python")))
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(response -> register(course, type, collection, contentHash, response));
+                })
+                .onErrorResume(error -> {
+                    logger.warn("Batch {}: failed to upload {}: {}", batchId, file.getOriginalFilename(), error.getMessage());
+                    return Mono.fromCallable(() -> recordFailure(course, type, collection, batchId, file))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    // Python never saw the file, so the row gets a local id; without it the batch would later look READY
+    private UploadedFileDto recordFailure(Course course, String type, String collection, String batchId,
+                                          MultipartFile file) {
+        UploadedFile failed = new UploadedFile();
+        failed.setFileId(UUID.randomUUID().toString());
+        failed.setCourse(course);
+        failed.setFilename(file.getOriginalFilename());
+        failed.setType(type);
+        failed.setCollectionName(collection);
+        failed.setStatus("FAILED");
+        try {
+            uploadedFileService.save(failed);
+        } catch (Exception e) {
+            logger.warn("Batch {}: could not record the failure of {}: {}", batchId, file.getOriginalFilename(),
+                    e.getMessage());
+        }
+        return toEntry(failed);
+    }
+
+    // Same bookkeeping as a single document upload, with the follow-up always in the background
+    private UploadedFileDto register(Course course, String type, String collection,
+                                     String contentHash, UploadResponseDto response) {
+        Long courseId = course.getId();
+        taskService.createTask(response.getTaskId(), "PENDING", courseId, TaskTypes.DOCUMENT_UPLOAD,
+                response.getFileId());
+        String parseTaskId = response.getParseSummariseIngestTaskId();
+        String processingTaskId = parseTaskId != null ? parseTaskId : response.getTaskId();
+        uploadedFileService.register(course, type, response, collection, processingTaskId, contentHash);
+        if (parseTaskId != null) {
+            taskService.createTask(parseTaskId, "PENDING", courseId, TaskTypes.PARSE_INGEST, response.getFileId());
+            ingestService.finishDocumentIngestAsync(courseId, response.getFileId(), parseTaskId);
+        }
+
+        UploadedFileDto entry = new UploadedFileDto();
+        entry.setFileId(response.getFileId());
+        entry.setFilename(response.getFilename());
+        entry.setType(type);
+        entry.setCollectionName(collection);
+        entry.setStatus("PENDING");
+        entry.setProcessingTaskId(processingTaskId);
+        return entry;
+    }
+
+    private static BatchUploadDto summarize(String batchId, Long courseId, List<UploadedFileDto> entries) {
+        BatchUploadDto batch = new BatchUploadDto();
+        batch.setBatchId(batchId);
+        batch.setCourseId(courseId);
+        batch.setFiles(entries);
+        batch.setTotal(entries.size());
+        batch.setReady((int) entries.stream().filter(entry -> "READY".equals(entry.getStatus())).count());
+        batch.setFailed((int) entries.stream().filter(entry -> "FAILED".equals(entry.getStatus())).count());
+        batch.setPending(batch.getTotal() - batch.getReady() - batch.getFailed());
+        if (batch.getPending() > 0) {
+            batch.setStatus("PENDING");
+        } else if (batch.getFailed() == 0) {
+            batch.setStatus("READY");
+        } else {
+            batch.setStatus(batch.getReady() == 0 ? "FAILED" : "PARTIAL");
+        }
+        return batch;
+    }
+
+    private static UploadedFileDto toEntry(UploadedFile file) {
+        UploadedFileDto entry = new UploadedFileDto();
+        entry.setFileId(file.getFileId());
+        entry.setFilename(file.getFilename());
+        entry.setType(file.getType());
+        entry.setCollectionName(file.getCollectionName());
+        entry.setStatus(file.getStatus() == null ? "READY" : file.getStatus());
+        entry.setProcessingTaskId(file.getProcessingTaskId());
+        return entry;
+    }
+
+    private static String documentType(String filename) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".pdf")) {
+            return "PDF";
+        }
+        if (name.endsWith(".docx")) {
+            return "DOCX";
+        }
+        if (name.endsWith(".pptx")) {
+            return "PPTX";
+        }
+        return null;
+    }
+}
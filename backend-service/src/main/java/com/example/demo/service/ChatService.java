@@ -0,0 +1,180 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.ConversationHistoryDto;
+import com.example.demo.dto.ProcessAiRequestDto;
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.dto.VideoDto;
+import com.example.demo.model.Course;
+import com.example.demo.model.Message;
+
+/**
+ * Course chat turns: stores the user message, builds the process-ai request from the course
+ * materials and history, and stores the model reply from the finished Celery task. Transport
+ * (blocking or reactive) is left to the controllers.
+ */
+@Service
+public class ChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
+
+    public static final String UNAVAILABLE_REPLY = "Sorry, I couldn't process your request at this time.";
+    private static final String FALLBACK_REPLY = "I've processed your request about the course materials.";
+    private static final String SYSTEM_INSTRUCTION =
+            "You are a helpful assistant that answers questions about the course materials. Be concise but thorough.";
+
+    private final MessageService messageService;
+    private final ConversationWindowService conversationWindow;
+    private final AnswerCache answerCache;
+
+    public ChatService(MessageService messageService, ConversationWindowService conversationWindow,
+                       AnswerCache answerCache) {
+        this.messageService = messageService;
+        this.conversationWindow = conversationWindow;
+        this.answerCache = answerCache;
+    }
+
+    public Message saveUserMessage(Course course, String content) {
+        Message message = new Message();
+        message.setContent(content);
+        message.setRole("user");
+        message.setCourse(course);
+        message.setTimestamp(LocalDateTime.now());
+        return messageService.saveMessage(message);
+    }
+
+    // The stored answer to the same or a near-identical question, saved as this turn's reply; null on a miss
+    public Message cachedReply(Course course, Message question) {
+        String answer = answerCache.find(course, question.getContent());
+        return answer == null ? null : saveReply(course, "model", answer);
+    }
+
+    // The recent turns that fit the token budget (including the new user message), the summary of
+    // the turns before them, and the course materials
+    public ProcessAiRequestDto buildRequest(Course course) {
+        ProcessAiRequestDto request = new ProcessAiRequestDto();
+        request.setModelProvider("gemini");
+        request.setModelName("gemini-2.0-flash");
+
+        ConversationWindowService.Window window = conversationWindow.select(course);
+        request.setSystemInstructionText(window.getSummary() == null ? SYSTEM_INSTRUCTION
+                : SYSTEM_INSTRUCTION + "\n\nSummary of the earlier conversation:\n" + window.getSummary());
+        ConversationHistoryDto conversationHistory = new ConversationHistoryDto();
+        conversationHistory.setMessages(window.toHistory());
+        request.setConversationHistory(conversationHistory);
+
+        request.setPdfCollectionName(course.getPdfCollectionName());
+        request.setDocxCollectionName(course.getDocxCollectionName());
+        request.setPptxCollectionName(course.getPptxCollectionName());
+        if (course.getVideo() != null) {
+            VideoDto videoDto = new VideoDto();
+            videoDto.setType(course.getVideo().getType());
+            videoDto.setUri(course.getVideo().getUri());
+            videoDto.setPath(course.getVideo().getPath());
+            if (course.getVideo().getDuration() != null) {
+                VideoDto.DurationDto durationDto = new VideoDto.DurationDto();
+                durationDto.setMinutes(course.getVideo().getDuration().getMinutes());
+                durationDto.setSeconds(course.getVideo().getDuration().getSeconds());
+                videoDto.setDuration(durationDto);
+            }
+            request.setVideo(videoDto);
+        }
+        return request;
+    }
+
+    /**
+     * Stores the model reply of a finished chat task, or an apology if the task failed or timed
+     * out. Returns the stored message, or null if the result held no usable reply. Model replies
+     * are remembered as answers to {@code question}.
+     */
+    public Message applyResult(Course course, Message question, TaskResponseDto taskStatus) {
+        Message reply = applyResult(course, taskStatus);
+        boolean answered = taskStatus != null && "SUCCESS".equals(taskStatus.getStatus());
+        if (answered && reply != null && "model".equals(reply.getRole()) && !FALLBACK_REPLY.equals(reply.getContent())) {
+            answerCache.put(course, question.getContent(), reply.getContent());
+        }
+        return reply;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message applyResult(Course course, TaskResponseDto taskStatus) {
+        if (taskStatus == null || !"SUCCESS".equals(taskStatus.getStatus())) {
+            logger.warn("Chat task failed with status: {}", taskStatus != null ? taskStatus.getStatus() : "null");
+            return saveErrorMessage(course, UNAVAILABLE_REPLY);
+        }
+        if (!(taskStatus.getResult() instanceof Map)) {
+            return null;
+        }
+        Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
+
+        // Python returns the updated history as a plain list; older workers nested it under "messages"
+        Object conversation = resultMap.get("conversation_history");
+        if (conversation instanceof List) {
+            Map<String, Object> last = lastOf((List<Map<String, Object>>) conversation);
+            if (last != null && "model".equals(last.get("role"))) {
+                return saveReply(course, (String) last.get("role"), (String) last.get("content"));
+            }
+            return null;
+        }
+        if (conversation == null) {
+            conversation = resultMap.get("conversationHistory");
+        }
+        Object messages = conversation instanceof Map
+                ? ((Map<String, Object>) conversation).get("messages")
+                : conversation == null ? resultMap.get("messages") : null;
+        if (messages instanceof List) {
+            Map<String, Object> last = lastOf((List<Map<String, Object>>) messages);
+            if (last != null) {
+                return saveReply(course, (String) last.get("role"), (String) last.get("content"));
+            }
+            return null;
+        }
+        if (conversation == null) {
+            logger.info("No conversation history or messages found in chat result");
+            return saveErrorMessage(course, FALLBACK_REPLY);
+        }
+        return null;
+    }
+
+    // A reply streamed token by token, stored once complete and remembered as the answer to question
+    public Message saveModelReply(Course course, Message question, String content) {
+        Message reply = saveReply(course, "model", content);
+        if (reply != null) {
+            answerCache.put(course, question.getContent(), content);
+        }
+        return reply;
+    }
+
+    // Replies that could not be produced are stored as model messages so the history stays in turn order
+    public Message saveErrorMessage(Course course, String content) {
+        Message errorMessage = new Message();
+        errorMessage.setContent(content);
+        errorMessage.setRole("model");
+        errorMessage.setCourse(course);
+        errorMessage.setTimestamp(LocalDateTime.now());
+        return messageService.saveMessage(errorMessage);
+    }
+
+    private Message saveReply(Course course, String role, String content) {
+        if (role == null || content == null) {
+            return null;
+        }
+        Message reply = new Message();
+        reply.setContent(content);
+        reply.setRole(role);
+        reply.setCourse(course);
+        reply.setTimestamp(LocalDateTime.now());
+        return messageService.saveMessage(reply);
+    }
+
+    private static Map<String, Object> lastOf(List<Map<String, Object>> messages) {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1);
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.dto.UploadSessionDto;
+import com.example.demo.model.UploadSession;
+import com.example.demo.repository.UploadSessionRepository;
+
+/**
+ * Resumable uploads staged in {@code app.upload.dir}. A session is opened with the total size,
+ * chunks are appended with positional {@link FileChannel} writes, and the staged file's length is
+ * the resume offset: after a dropped connection the client asks for the offset and continues from
+ * there. Sessions live in the database so they survive a restart; abandoned ones expire.
+ * The SHA-256 of the content is kept up to date as chunks are written, so completing an upload
+ * does not read the staged file again just to hash it.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final UploadSessionRepository sessionRepository;
+    private final Path uploadDir;
+    private final long maxBytes;
+    private final long maxChunkBytes;
+    private final long expireMs;
+    // In memory only: after a restart, or for chunks written by another instance, the hash is recomputed
+    private final Map<String, StagedDigest> digests = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(UploadSessionRepository sessionRepository,
+                                @Value("${app.upload.dir:./uploads}") String uploadDir,
+                                @Value("${app.upload.chunked.max-bytes:1073741824}") long maxBytes,
+                                @Value("${app.upload.chunked.max-chunk-bytes:8388608}") long maxChunkBytes,
+                                @Value("${app.upload.chunked.expire-ms:86400000}") long expireMs) {
+        this.sessionRepository = sessionRepository;
+        this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.maxChunkBytes = maxChunkBytes;
+        this.expireMs = expireMs;
+    }
+
+    public UploadSessionDto open(Long courseId, String type, String filename, long size) {
+        if (size <= 0 || size > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Upload size must be between 1 and " + maxBytes + " bytes");
+        }
+        UploadSession session = new UploadSession();
+        session.setUploadId(UUID.randomUUID().toString());
+        session.setCourseId(courseId);
+        session.setType(type);
+        session.setFilename(filename);
+        session.setTotalSize(size);
+        try {
+            Files.createDirectories(uploadDir);
+            Files.createFile(stagedFile(session));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stage upload in " + uploadDir, e);
+        }
+        return toDto(sessionRepository.save(session));
+    }
+
+    public UploadSession getSession(Long courseId, String uploadId) {
+        return sessionRepository.findById(uploadId)
+                .filter(session -> session.getCourseId().equals(courseId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found"));
+    }
+
+    public UploadSessionDto status(UploadSession session) {
+        return toDto(session);
+    }
+
+    /**
+     * Appends one chunk at {@code offset}, which must equal the bytes staged so far (409 otherwise,
+     * also while another request is writing the same upload). Bytes written before a connection
+     * drops are kept, so the client can resume from the reported offset.
+     */
+    public UploadSessionDto writeChunk(UploadSession session, long offset, InputStream body) {
+        try (FileChannel channel = FileChannel.open(stagedFile(session), StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Another chunk of this upload is being written");
+            }
+            try {
+                long position = channel.size();
+                if (offset != position) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Expected offset " + position);
+                }
+                long limit = Math.min(session.getTotalSize(), offset + maxChunkBytes);
+                StagedDigest digest = stagedDigest(session.getUploadId(), position);
+                byte[] bytes = new byte[WRITE_BUFFER_BYTES];
+                int read;
+                while ((read = body.read(bytes)) != -1) {
+                    if (position + read > limit) {
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Chunk runs past " + limit + " bytes");
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    if (digest != null) {
+                        digest.update(bytes, read);
+                    }
+                }
+                channel.force(false);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            // Usually the client went away mid-chunk; whatever reached the disk counts towards the offset
+            logger.warn("Chunk for upload {} interrupted: {}", session.getUploadId(), e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk interrupted");
+        }
+        return toDto(session);
+    }
+
+    // The assembled file, once every byte has arrived
+    public Path completedFile(UploadSession session) {
+        long staged = stagedBytes(session);
+        if (staged != session.getTotalSize()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Upload incomplete: " + staged + " of " + session.getTotalSize() + " bytes");
+        }
+        return stagedFile(session);
+    }
+
+    /**
+     * SHA-256 of the completed upload as hashed while its chunks were written; empty when this
+     * instance did not see every byte, in which case the caller hashes the file itself.
+     */
+    public Optional<String> contentHash(UploadSession session) {
+        StagedDigest digest = digests.get(session.getUploadId());
+        return digest == null ? Optional.empty() : digest.hash(session.getTotalSize());
+    }
+
+    public void discard(UploadSession session) {
+        digests.remove(session.getUploadId());
+        try {
+            Files.deleteIfExists(stagedFile(session));
+        } catch (IOException e) {
+            logger.warn("Failed to delete staged upload {}: {}", session.getUploadId(), e.getMessage());
+        }
+        sessionRepository.deleteById(session.getUploadId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.chunked.cleanup-interval-ms:3600000}")
+    public void discardExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(expireMs));
+        for (UploadSession session : sessionRepository.findByCreatedAtBefore(cutoff)) {
+            logger.info("Discarding expired upload {} ({})", session.getUploadId(), session.getFilename());
+            discard(session);
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        UploadSessionDto dto = new UploadSessionDto();
+        dto.setUploadId(session.getUploadId());
+        dto.setCourseId(session.getCourseId());
+        dto.setFilename(session.getFilename());
+        dto.setType(session.getType());
+        dto.setSize(session.getTotalSize());
+        dto.setOffset(stagedBytes(session));
+        dto.setMaxChunkBytes(maxChunkBytes);
+        return dto;
+    }
+
+    private long stagedBytes(UploadSession session) {
+        try {
+            return Files.size(stagedFile(session));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Staged upload is missing");
+        }
+    }
+
+    // The upload id is a server-generated UUID, so it is safe to use as a file name
+    private Path stagedFile(UploadSession session) {
+        return uploadDir.resolve(session.getUploadId() + ".part");
+    }
+
+    // The running digest for a chunk starting at offset, or null when it no longer matches the staged bytes
+    private StagedDigest stagedDigest(String uploadId, long offset) {
+        if (offset == 0) {
+            StagedDigest digest = new StagedDigest();
+            digests.put(uploadId, digest);
+            return digest;
+        }
+        StagedDigest digest = digests.get(uploadId);
+        if (digest != null && digest.length() != offset) {
+            digests.remove(uploadId);
+            return null;
+        }
+        return digest;
+    }
+
+    // Null when another request (in this JVM or another instance sharing the directory) holds the file
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static final class StagedDigest {
+        private final MessageDigest digest = MaterialDedupService.newDigest();
+        private long length;
+        private String hash;
+
+        synchronized void update(byte[] bytes, int count) {
+            digest.update(bytes, 0, count);
+            length += count;
+        }
+
+        synchronized long length() {
+            return length;
+        }
+
+        // digest() resets the state, so the result is kept for a complete that is retried
+        synchronized Optional<String> hash(long totalSize) {
+            if (hash == null && length == totalSize) {
+                hash = MaterialDedupService.hex(digest);
+            }
+            return Optional.ofNullable(hash);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.client.AdmissionControl;
+import com.example.demo.client.ApiClient;
+import com.example.demo.client.ModelRateLimiter;
+import com.example.demo.dto.ConversationHistoryDto;
+import com.example.demo.dto.MessageDto;
+import com.example.demo.dto.ProcessAiRequestDto;
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Course;
+import com.example.demo.model.Message;
+import com.example.demo.repository.ConversationSummaryRepository;
+import com.example.demo.repository.CourseRepository;
+import com.example.demo.repository.MessageRepository;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps the conversation sent with each chat turn bounded. The newest turns go verbatim up to
+ * {@code app.chat.window.token-budget}; everything before them is represented by a rolling
+ * {@link ConversationSummary}. When the unsummarised turns no longer fit the budget, a background
+ * pass folds all but the newest {@code keep-recent-tokens} of them into the summary with one model
+ * call, so a refresh is needed only every few turns and the payload never grows with course age.
+ */
+@Service
+public class ConversationWindowService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationWindowService.class);
+
+    private static final String SUMMARY_INSTRUCTION =
+            "You keep a running summary of a student's chat with a course assistant. Merge the new messages into "
+            + "the existing summary. Keep the questions asked, the answers and facts given, and open threads; "
+            + "drop greetings and filler. Reply with the updated summary only, at most 300 words.";
+
+    private final MessageRepository messageRepository;
+    private final ConversationSummaryRepository summaryRepository;
+    private final CourseRepository courseRepository;
+    private final ApiClient apiClient;
+    private final ModelRateLimiter rateLimiter;
+    private final String modelProvider;
+    private final String modelName;
+    private final long tokenBudget;
+    private final int maxMessages;
+    private final boolean summaryEnabled;
+    private final long keepRecentTokens;
+    // Courses with a refresh running on this node
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    public ConversationWindowService(MessageRepository messageRepository,
+                                     ConversationSummaryRepository summaryRepository,
+                                     CourseRepository courseRepository,
+                                     ApiClient apiClient,
+                                     ModelRateLimiter rateLimiter,
+                                     @Value("${api.model-provider}") String modelProvider,
+                                     @Value("${api.model-name}") String modelName,
+                                     @Value("${app.chat.window.token-budget:4000}") long tokenBudget,
+                                     @Value("${app.chat.window.max-messages:200}") int maxMessages,
+                                     @Value("${app.chat.summary.enabled:true}") boolean summaryEnabled,
+                                     @Value("${app.chat.summary.keep-recent-tokens:2000}") long keepRecentTokens) {
+        this.messageRepository = messageRepository;
+        this.summaryRepository = summaryRepository;
+        this.courseRepository = courseRepository;
+        this.apiClient = apiClient;
+        this.rateLimiter = rateLimiter;
+        this.modelProvider = modelProvider;
+        this.modelName = modelName;
+        this.tokenBudget = tokenBudget;
+        this.maxMessages = maxMessages;
+        this.summaryEnabled = summaryEnabled;
+        this.keepRecentTokens = Math.min(keepRecentTokens, tokenBudget);
+    }
+
+    /**
+     * The turns to send with the next request: the newest unsummarised messages within the token
+     * budget (oldest first, starting with a user turn) and the summary of everything before them.
+     * Starts a background refresh when older unsummarised messages had to be left out.
+     */
+    public Window select(Course course) {
+        ConversationSummary summary = summaryRepository.findById(course.getId()).orElse(null);
+        long summarisedThrough = summary != null ? summary.getThroughMessageId() : 0;
+        List<Message> newest = messageRepository.findByCourseOrderByIdDesc(course, PageRequest.of(0, maxMessages));
+
+        List<Message> window = new ArrayList<>();
+        long tokens = 0;
+        boolean leftOut = false;
+        for (Message message : newest) {
+            if (message.getId() <= summarisedThrough) {
+                break;
+            }
+            long cost = tokens(message);
+            if (!window.isEmpty() && tokens + cost > tokenBudget) {
+                leftOut = true;
+                break;
+            }
+            window.add(message);
+            tokens += cost;
+        }
+        if (!leftOut && newest.size() == maxMessages && window.size() == newest.size()) {
+            // The page ended before the summary did; there are more unsummarised messages behind it
+            leftOut = true;
+        }
+        Collections.reverse(window);
+        // Gemini expects the turns to open with the user
+        while (window.size() > 1 && !"user".equals(window.get(0).getRole())) {
+            tokens -= tokens(window.remove(0));
+        }
+
+        if (leftOut && summaryEnabled) {
+            refreshInBackground(course.getId());
+        }
+        return new Window(window, summary != null ? summary.getContent() : null, tokens);
+    }
+
+    void refreshInBackground(Long courseId) {
+        if (!refreshing.add(courseId)) {
+            return;
+        }
+        refresh(courseId)
+                .doFinally(signal -> refreshing.remove(courseId))
+                .subscribe(summary -> logger.info("Conversation summary of course {} now covers messages up to {}",
+                                courseId, summary.getThroughMessageId()),
+                        error -> logger.warn("Could not refresh the conversation summary of course {}: {}",
+                                courseId, error.getMessage()));
+    }
+
+    /** One refresh pass: folds the unsummarised messages older than the recent tail into the summary. */
+    Mono<ConversationSummary> refresh(Long courseId) {
+        return Mono.fromCallable(() -> pendingFold(courseId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .filter(fold -> !fold.messages.isEmpty())
+                .flatMap(fold -> summarise(fold)
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(text -> save(fold, text)));
+    }
+
+    private Fold pendingFold(Long courseId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new IllegalStateException("Course " + courseId + " no longer exists"));
+        ConversationSummary summary = summaryRepository.findById(courseId).orElse(null);
+        long summarisedThrough = summary != null ? summary.getThroughMessageId() : 0;
+        List<Message> pending = messageRepository.findByCourseAndIdGreaterThanOrderByIdAsc(
+                course, summarisedThrough, PageRequest.of(0, maxMessages + 1));
+
+        int foldEnd;
+        if (pending.size() > maxMessages) {
+            // A long backlog: fold one page now, the rest on later turns
+            foldEnd = maxMessages;
+        } else {
+            foldEnd = pending.size();
+            long tail = 0;
+            while (foldEnd > 0 && tail + tokens(pending.get(foldEnd - 1)) <= keepRecentTokens) {
+                tail += tokens(pending.get(--foldEnd));
+            }
+        }
+        return new Fold(course, summary, new ArrayList<>(pending.subList(0, foldEnd)));
+    }
+
+    private Mono<String> summarise(Fold fold) {
+        StringBuilder prompt = new StringBuilder("Existing summary:\n")
+                .append(fold.summary != null ? fold.summary.getContent() : "(none yet)")
+                .append("\n\nNew messages:\n");
+        fold.messages.forEach(message -> prompt.append(message.getRole()).append(": ")
+                .append(message.getContent()).append('\n'));
+
+        MessageDto turn = new MessageDto();
+        turn.setRole("user");
+        turn.setContent(prompt.toString());
+        ConversationHistoryDto history = new ConversationHistoryDto();
+        history.setMessages(List.of(turn));
+        ProcessAiRequestDto request = new ProcessAiRequestDto();
+        request.setModelProvider(modelProvider);
+        request.setModelName(modelName);
+        request.setSystemInstructionText(SUMMARY_INSTRUCTION);
+        request.setConversationHistory(history);
+
+        return apiClient.streamAi(request)
+                .contextWrite(AdmissionControl.forCourse(fold.course))
+                .filter(event -> "done".equals(event.getEvent()) || "error".equals(event.getEvent()))
+                .next()
+                .flatMap(event -> "done".equals(event.getEvent()) && event.getText() != null && !event.getText().isBlank()
+                        ? Mono.just(event.getText().trim())
+                        : Mono.error(new IllegalStateException("No summary returned: " + event.getText())));
+    }
+
+    private ConversationSummary save(Fold fold, String text) {
+        ConversationSummary summary = fold.summary != null ? fold.summary : new ConversationSummary();
+        summary.setCourseId(fold.course.getId());
+        summary.setContent(text);
+        summary.setThroughMessageId(fold.messages.get(fold.messages.size() - 1).getId());
+        summary.setUpdatedAt(LocalDateTime.now());
+        return summaryRepository.save(summary);
+    }
+
+    private long tokens(Message message) {
+        return rateLimiter.tokensForText(message.getContent() != null ? message.getContent().length() : 0);
+    }
+
+    /** What {@link #select} chose for one request. */
+    public static final class Window {
+        private final List<Message> messages;
+        private final String summary;
+        private final long tokens;
+
+        Window(List<Message> messages, String summary, long tokens) {
+            this.messages = messages;
+            this.summary = summary;
+            this.tokens = tokens;
+        }
+
+        // Oldest first
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        // Null until the conversation first outgrows the budget
+        public String getSummary() {
+            return summary;
+        }
+
+        // Estimated prompt tokens of the verbatim messages
+        public long getTokens() {
+            return tokens;
+        }
+
+        public List<MessageDto> toHistory() {
+            return messages.stream()
+                    .map(message -> {
+                        MessageDto dto = new MessageDto();
+                        dto.setRole(message.getRole());
+                        dto.setContent(message.getContent());
+                        return dto;
+                    })
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final class Fold {
+        private final Course course;
+        private final ConversationSummary summary;
+        private final List<Message> messages;
+
+        private Fold(Course course, ConversationSummary summary, List<Message> messages) {
+            this.course = course;
+            this.summary = summary;
+            this.messages = messages;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.CourseEventDto;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * In-memory fan-out of task and file progress per course for the SSE endpoint. Every subscriber
+ * gets its own bounded buffer; a subscriber that falls {@code buffer-size} events behind is
+ * disconnected instead of growing its queue, and is expected to reconnect and re-read state.
+ */
+@Service
+public class CourseEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseEventHub.class);
+
+    private final Map<Long, Set<Sinks.Many<CourseEventDto>>> subscribers = new ConcurrentHashMap<>();
+    private final int bufferSize;
+
+    public CourseEventHub(@Value("${app.events.subscriber-buffer-size:256}") int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public Flux<CourseEventDto> subscribe(Long courseId) {
+        return Flux.defer(() -> {
+            Queue<CourseEventDto> buffer = new ArrayBlockingQueue<>(bufferSize);
+            Sinks.Many<CourseEventDto> sink = Sinks.many().unicast().onBackpressureBuffer(buffer);
+            subscribers.computeIfAbsent(courseId, id -> ConcurrentHashMap.newKeySet()).add(sink);
+            return sink.asFlux().doFinally(signal -> unsubscribe(courseId, sink));
+        });
+    }
+
+    public void publishTaskStatus(Long courseId, String taskId, String status, String taskType) {
+        publish(event("task", courseId, taskId, status, taskType));
+    }
+
+    public void publishFileStatus(Long courseId, String fileId, String status, String fileType) {
+        publish(event("file", courseId, fileId, status, fileType));
+    }
+
+    // Bytes received so far for a streamed upload; detail is "transferred/total" (total -1 when unknown)
+    public void publishUploadProgress(Long courseId, String uploadId, String status, long transferred, long total) {
+        publish(event("upload", courseId, uploadId, status, transferred + "/" + total));
+    }
+
+    public int subscriberCount(Long courseId) {
+        Set<Sinks.Many<CourseEventDto>> sinks = subscribers.get(courseId);
+        return sinks == null ? 0 : sinks.size();
+    }
+
+    private void publish(CourseEventDto event) {
+        if (event.getCourseId() == null) {
+            return;
+        }
+        Set<Sinks.Many<CourseEventDto>> sinks = subscribers.get(event.getCourseId());
+        if (sinks == null) {
+            return;
+        }
+        for (Sinks.Many<CourseEventDto> sink : sinks) {
+            Sinks.EmitResult result = emit(() -> sink.tryEmitNext(event));
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                logger.warn("Dropping slow event subscriber for course {}", event.getCourseId());
+                sinks.remove(sink);
+                emit(sink::tryEmitComplete);
+            } else if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                sinks.remove(sink);
+            }
+        }
+    }
+
+    // Publishers run on arbitrary threads and the sink rejects overlapping emissions; spin instead of
+    // holding a monitor so a virtual-thread publisher never pins its carrier
+    private static Sinks.EmitResult emit(Supplier<Sinks.EmitResult> emission) {
+        Sinks.EmitResult result;
+        while ((result = emission.get()) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+        return result;
+    }
+
+    private void unsubscribe(Long courseId, Sinks.Many<CourseEventDto> sink) {
+        subscribers.computeIfPresent(courseId, (id, sinks) -> {
+            sinks.remove(sink);
+            return sinks.isEmpty() ? null : sinks;
+        });
+    }
+
+    private static CourseEventDto event(String type, Long courseId, String id, String status, String detail) {
+        CourseEventDto event = new CourseEventDto();
+        event.setType(type);
+        event.setCourseId(courseId);
+        event.setId(id);
+        event.setStatus(status);
+        event.setDetail(detail);
+        event.setTimestamp(LocalDateTime.now());
+        return event;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -11,8 +12,10 @@ import com.example.demo.client.ApiClient;
 import com.example.demo.dto.TaskResponseDto;
 import com.example.demo.model.Course;
 import com.example.demo.model.FlashCard;
+import com.example.demo.model.TaskTypes;
 import com.example.demo.model.User;
 import com.example.demo.model.Video;
+import com.example.demo.repository.ConversationSummaryRepository;
 import com.example.demo.repository.CourseRepository;
 import com.example.demo.repository.TaskRepository;
 
@@ -23,15 +26,24 @@ public class CourseService {
     private final ApiClient apiClient;
     private final UploadedFileService uploadedFileService;
     private final TaskRepository taskRepository;
+    private final TaskCompletionEngine completionEngine;
+    private final ConversationSummaryRepository summaryRepository;
+    private final AnswerCache answerCache;
 
     public CourseService(CourseRepository courseRepository,
                          ApiClient apiClient,
                          UploadedFileService uploadedFileService,
-                         TaskRepository taskRepository) {
+                         TaskRepository taskRepository,
+                         TaskCompletionEngine completionEngine,
+                         ConversationSummaryRepository summaryRepository,
+                         AnswerCache answerCache) {
         this.courseRepository = courseRepository;
         this.apiClient = apiClient;
         this.uploadedFileService = uploadedFileService;
         this.taskRepository = taskRepository;
+        this.completionEngine = completionEngine;
+        this.summaryRepository = summaryRepository;
+        this.answerCache = answerCache;
     }
     
     public List<Course> getAllCourses() {
@@ -69,6 +81,10 @@ public class CourseService {
         } catch (Exception e) {
             System.err.println("Failed to cleanup tasks: " + e.getMessage());
         }
+        if (summaryRepository.existsById(id)) {
+            summaryRepository.deleteById(id);
+        }
+        answerCache.evict(id);
         boolean attemptedDeletion = false;
         boolean allDeleted = true;
         java.util.Set<String> collections = new java.util.HashSet<>();
@@ -82,7 +98,7 @@ public class CourseService {
                 Map<String, Object> resp = apiClient.deleteCollection(coll).block();
                 String taskId = resp != null && resp.get("task_id") instanceof String ? (String) resp.get("task_id") : null;
                 if (taskId != null) {
-                    var status = waitForTaskCompletion(taskId, 24, 5_000);
+                    TaskResponseDto status = completionEngine.waitFor(taskId, TaskTypes.DELETE, Duration.ofMinutes(2));
                     boolean deleted = status != null && "SUCCESS".equals(status.getStatus());
                     if (!deleted) allDeleted = false;
                 }
@@ -103,26 +119,27 @@ public class CourseService {
         courseRepository.deleteById(id);
     }
 
-    private TaskResponseDto waitForTaskCompletion(String taskId, int maxAttempts, long intervalMs) {
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            try {
-                TaskResponseDto taskStatus = apiClient.getTaskStatus(taskId).block();
-                if (taskStatus != null && ("SUCCESS".equals(taskStatus.getStatus()) || "FAILURE".equals(taskStatus.getStatus()))) {
-                    return taskStatus;
-                }
-                Thread.sleep(intervalMs);
-            } catch (Exception e) {
-                System.err.println("Error polling task status: " + e.getMessage());
-            }
+
+    // Ensure a stable shared collection for ALL text materials (PDF + DOCX + PPTX) for this course
+    public String resolveMaterialsCollection(Course course) {
+        String materialsCollection = course.getPdfCollectionName();
+        if (materialsCollection == null || materialsCollection.isEmpty()) materialsCollection = course.getDocxCollectionName();
+        if (materialsCollection == null || materialsCollection.isEmpty()) materialsCollection = course.getPptxCollectionName();
+        if (materialsCollection == null || materialsCollection.isEmpty()) {
+            materialsCollection = "course_" + course.getId() + "_materials";
+            setPdfCollectionName(course.getId(), materialsCollection);
+            setDocxCollectionName(course.getId(), materialsCollection);
+            setPptxCollectionName(course.getId(), materialsCollection);
         }
-        return null;
+        return materialsCollection;
     }
-    
+
     @Transactional
     public Course setPdfCollectionName(Long courseId, String collectionName) {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setPdfCollectionName(collectionName);
+        courseRepository.bumpMaterialsVersion(courseId);
         return courseRepository.save(course);
     }
     
@@ -131,6 +148,7 @@ public class CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setDocxCollectionName(collectionName);
+        courseRepository.bumpMaterialsVersion(courseId);
         return courseRepository.save(course);
     }
 
@@ -139,6 +157,7 @@ public class CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setPptxCollectionName(collectionName);
+        courseRepository.bumpMaterialsVersion(courseId);
         return courseRepository.save(course);
     }
     
@@ -147,6 +166,7 @@ public class CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setVideo(video);
+        courseRepository.bumpMaterialsVersion(courseId);
         return courseRepository.save(course);
     }
 
@@ -155,6 +175,7 @@ public class CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setVideo(null);
+        courseRepository.bumpMaterialsVersion(courseId);
         return courseRepository.save(course);
     }
     
@@ -0,0 +1,527 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.client.AdmissionControl;
+import com.example.demo.client.ApiClient;
+import com.example.demo.dto.FlashCardRequestDto;
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.dto.VideoDto;
+import com.example.demo.dto.VideoUriRequestDto;
+import com.example.demo.dto.VideoUriResponseDto;
+import com.example.demo.model.Course;
+import com.example.demo.model.CourseQuestion;
+import com.example.demo.model.Duration;
+import com.example.demo.model.FlashCard;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.model.Video;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Follow-up processing for uploaded course materials: waits for the Celery tasks started by an
+ * upload and applies their results (file status, flash cards, course questions, course video).
+ * Each stage is a continuation on {@link TaskCompletionEngine}; results are applied on the
+ * ingest executor, and no thread waits while Celery is working.
+ */
+@Service
+public class IngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestService.class);
+
+    private final ApiClient apiClient;
+    private final CourseService courseService;
+    private final UploadedFileService uploadedFileService;
+    private final CourseQuestionService courseQuestionService;
+    private final MaterialDedupService dedupService;
+    private final TaskCompletionEngine completionEngine;
+    private final TaskLeaseManager leaseManager;
+    private final TaskExecutor ingestExecutor;
+
+    private final long videoUploadTimeoutMs;
+    private final long videoUriTimeoutMs;
+    private final long videoFlashCardsTimeoutMs;
+    private final long videoDeadlineMs;
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    // Terminal values of UploadedFile.stage; the in-flight values are the TaskTypes of each stage
+    static final String STAGE_DONE = "DONE";
+    static final String STAGE_FAILED = "FAILED";
+    private static final List<String> VIDEO_STAGES =
+            List.of(TaskTypes.VIDEO_UPLOAD, TaskTypes.VIDEO_URI, TaskTypes.FLASH_CARDS);
+
+    public IngestService(ApiClient apiClient,
+                         CourseService courseService,
+                         UploadedFileService uploadedFileService,
+                         CourseQuestionService courseQuestionService,
+                         MaterialDedupService dedupService,
+                         TaskCompletionEngine completionEngine,
+                         TaskLeaseManager leaseManager,
+                         @Qualifier("ingestExecutor") TaskExecutor ingestExecutor,
+                         @Value("${app.ingest.video.upload-timeout-ms:3600000}") long videoUploadTimeoutMs,
+                         @Value("${app.ingest.video.uri-timeout-ms:7200000}") long videoUriTimeoutMs,
+                         @Value("${app.ingest.video.flash-cards-timeout-ms:3600000}") long videoFlashCardsTimeoutMs,
+                         @Value("${app.ingest.video.deadline-ms:14400000}") long videoDeadlineMs) {
+        this.apiClient = apiClient;
+        this.courseService = courseService;
+        this.uploadedFileService = uploadedFileService;
+        this.courseQuestionService = courseQuestionService;
+        this.dedupService = dedupService;
+        this.completionEngine = completionEngine;
+        this.leaseManager = leaseManager;
+        this.ingestExecutor = ingestExecutor;
+        this.videoUploadTimeoutMs = videoUploadTimeoutMs;
+        this.videoUriTimeoutMs = videoUriTimeoutMs;
+        this.videoFlashCardsTimeoutMs = videoFlashCardsTimeoutMs;
+        this.videoDeadlineMs = videoDeadlineMs;
+    }
+
+    public CompletableFuture<Void> finishDocumentIngestAsync(Long courseId, String fileId, String parseTaskId) {
+        return guard(fileId, awaitStatus(parseTaskId, TaskTypes.PARSE_INGEST)
+                .thenAcceptAsync(status -> applyDocumentResult(courseId, fileId, status), ingestExecutor));
+    }
+
+    public CompletableFuture<Void> finishXmlIngestAsync(Long courseId, String fileId, String xmlTaskId) {
+        return guard(fileId, awaitStatus(xmlTaskId, TaskTypes.PROCESS_XML)
+                .thenAcceptAsync(status -> applyXmlResult(courseId, fileId, status), ingestExecutor));
+    }
+
+    /**
+     * Uploaded video: upload -> Gemini URI -> flash cards. The current stage, its task id and the
+     * stage and end-to-end deadlines are persisted on the {@link UploadedFile} before each wait, so
+     * no thread is held while Celery works and an interrupted chain resumes after a restart. The
+     * chain is leased to this node like a pending task, so only one instance ever runs it.
+     */
+    public CompletableFuture<Void> finishVideoIngestAsync(Long courseId, String fileId, String uploadTaskId) {
+        LocalDateTime now = LocalDateTime.now();
+        uploadedFileService.claimIngest(fileId, leaseManager.getNodeId(), now.plus(leaseManager.getLeaseDuration()));
+        uploadedFileService.updateStage(fileId, TaskTypes.VIDEO_UPLOAD, uploadTaskId,
+                now.plus(stageBudget(TaskTypes.VIDEO_UPLOAD)), now.plus(java.time.Duration.ofMillis(videoDeadlineMs)));
+        return runVideoStage(courseId, fileId);
+    }
+
+    // Picks up video chains that were interrupted by a shutdown; each one resumes at its persisted stage
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeVideoIngests() {
+        resumeVideoIngests(true);
+    }
+
+    // Keeps this node's chains leased and takes over the ones whose node stopped renewing
+    @Scheduled(fixedDelayString = "${app.tasks.sweep.interval-ms:30000}",
+            initialDelayString = "${app.tasks.sweep.interval-ms:30000}")
+    public void renewVideoLeases() {
+        uploadedFileService.renewIngests(leaseManager.getNodeId(), VIDEO_STAGES,
+                LocalDateTime.now().plus(leaseManager.getLeaseDuration()));
+        resumeVideoIngests(false);
+    }
+
+    // Only chains this node wins with a conditional update are resumed, so instances never run one twice
+    private void resumeVideoIngests(boolean startup) {
+        String nodeId = leaseManager.getNodeId();
+        LocalDateTime leaseUntil = LocalDateTime.now().plus(leaseManager.getLeaseDuration());
+        int resumed = 0;
+        for (UploadedFile file : uploadedFileService.findByStageIn(VIDEO_STAGES)) {
+            // After startup, chains already leased to this node are running here
+            if (file.getCourse() == null || (!startup && nodeId.equals(file.getIngestNode()))
+                    || !uploadedFileService.claimIngest(file.getFileId(), nodeId, leaseUntil)) {
+                continue;
+            }
+            Long courseId = file.getCourse().getId();
+            String fileId = file.getFileId();
+            try {
+                ingestExecutor.execute(() -> runVideoStage(courseId, fileId));
+                resumed++;
+            } catch (RejectedExecutionException e) {
+                // Executor saturated or shutting down: hand the chain back for this or another node
+                logger.warn("Could not resume video ingest for file {}: {}", fileId, e.getMessage());
+                uploadedFileService.releaseIngest(fileId, nodeId);
+            }
+        }
+        if (resumed > 0) {
+            logger.info("Resumed {} interrupted video ingest(s) on {}", resumed, nodeId);
+        }
+    }
+
+    // Waits for the task of the persisted stage, bounded by whichever deadline comes first
+    private CompletableFuture<Void> runVideoStage(Long courseId, String fileId) {
+        UploadedFile file = uploadedFileService.findById(fileId).orElse(null);
+        if (file == null || !VIDEO_STAGES.contains(file.getStage())) {
+            return DONE;
+        }
+        String stage = file.getStage();
+        java.time.Duration remaining = remaining(file);
+        if (remaining.isZero() || file.getProcessingTaskId() == null) {
+            logger.error("Video ingest for file {} exceeded its deadline in stage {}", fileId, stage);
+            failVideo(fileId);
+            return DONE;
+        }
+        CompletableFuture<TaskResponseDto> status = completionEngine
+                .await(file.getProcessingTaskId(), stage, remaining)
+                .exceptionally(error -> null);
+        return guardVideo(fileId, status.thenComposeAsync(
+                taskStatus -> advanceVideo(courseId, fileId, stage, taskStatus), ingestExecutor));
+    }
+
+    // Applies the result of the finished stage and persists the next one before waiting on it
+    private CompletableFuture<Void> advanceVideo(Long courseId, String fileId, String stage, TaskResponseDto status) {
+        switch (stage) {
+            case TaskTypes.VIDEO_UPLOAD -> {
+                String uriTaskId = startVideoUri(fileId, status);
+                if (uriTaskId == null) {
+                    failVideo(fileId);
+                    return DONE;
+                }
+                return enterVideoStage(courseId, fileId, TaskTypes.VIDEO_URI, uriTaskId);
+            }
+            case TaskTypes.VIDEO_URI -> {
+                Video video = applyVideoUri(courseId, fileId, status);
+                if (video == null) {
+                    failVideo(fileId);
+                    return DONE;
+                }
+                String flashCardTaskId = startVideoFlashCards(courseId, fileId, video);
+                if (flashCardTaskId == null) {
+                    // The video itself is usable; only the flash cards are missing
+                    uploadedFileService.updateStage(fileId, STAGE_DONE, null, null, null);
+                    return DONE;
+                }
+                return enterVideoStage(courseId, fileId, TaskTypes.FLASH_CARDS, flashCardTaskId);
+            }
+            case TaskTypes.FLASH_CARDS -> {
+                applyVideoFlashCards(courseId, fileId, status);
+                uploadedFileService.updateStage(fileId, STAGE_DONE, null, null, null);
+                return DONE;
+            }
+            default -> {
+                return DONE;
+            }
+        }
+    }
+
+    private CompletableFuture<Void> enterVideoStage(Long courseId, String fileId, String stage, String taskId) {
+        uploadedFileService.updateStage(fileId, stage, taskId,
+                LocalDateTime.now().plus(stageBudget(stage)), null);
+        return runVideoStage(courseId, fileId);
+    }
+
+    private java.time.Duration stageBudget(String stage) {
+        return switch (stage) {
+            case TaskTypes.VIDEO_UPLOAD -> java.time.Duration.ofMillis(videoUploadTimeoutMs);
+            case TaskTypes.VIDEO_URI -> java.time.Duration.ofMillis(videoUriTimeoutMs);
+            default -> java.time.Duration.ofMillis(videoFlashCardsTimeoutMs);
+        };
+    }
+
+    private static java.time.Duration remaining(UploadedFile file) {
+        LocalDateTime deadline = file.getDeadline();
+        if (file.getStageDeadline() != null && (deadline == null || file.getStageDeadline().isBefore(deadline))) {
+            deadline = file.getStageDeadline();
+        }
+        if (deadline == null) {
+            return java.time.Duration.ZERO;
+        }
+        java.time.Duration remaining = java.time.Duration.between(LocalDateTime.now(), deadline);
+        return remaining.isNegative() ? java.time.Duration.ZERO : remaining;
+    }
+
+    private void failVideo(String fileId) {
+        uploadedFileService.updateStage(fileId, STAGE_FAILED, null, null, null);
+        uploadedFileService.updateStatus(fileId, "FAILED");
+    }
+
+    private CompletableFuture<Void> guardVideo(String fileId, CompletableFuture<Void> chain) {
+        return chain.exceptionally(error -> {
+            logger.error("Background video ingest failed for file " + fileId, error);
+            failVideo(fileId);
+            return null;
+        });
+    }
+
+    // YouTube video: only flash card generation runs in the background
+    public CompletableFuture<Void> finishYoutubeIngestAsync(Long courseId, String fileId, String flashCardTaskId) {
+        return guard(fileId, awaitStatus(flashCardTaskId, TaskTypes.FLASH_CARDS)
+                .thenAcceptAsync(status -> applyYoutubeResult(courseId, fileId, status), ingestExecutor));
+    }
+
+    // Synchronous variants keep the request open until the follow-up has been applied
+    public void finishDocumentIngest(Long courseId, String fileId, String parseTaskId) {
+        finishDocumentIngestAsync(courseId, fileId, parseTaskId).join();
+    }
+
+    public void finishXmlIngest(Long courseId, String fileId, String xmlTaskId) {
+        finishXmlIngestAsync(courseId, fileId, xmlTaskId).join();
+    }
+
+    public void finishVideoIngest(Long courseId, String fileId, String uploadTaskId) {
+        finishVideoIngestAsync(courseId, fileId, uploadTaskId).join();
+    }
+
+    public void finishYoutubeIngest(Long courseId, String fileId, String flashCardTaskId) {
+        finishYoutubeIngestAsync(courseId, fileId, flashCardTaskId).join();
+    }
+
+    // PDF, DOCX and PPTX: mark READY and attach the flash cards generated during parse/summarise/ingest
+    private void applyDocumentResult(Long courseId, String fileId, TaskResponseDto parseTaskResponse) {
+        if (parseTaskResponse == null || !"SUCCESS".equals(parseTaskResponse.getStatus())) {
+            uploadedFileService.updateStatus(fileId, "FAILED");
+            return;
+        }
+        Map<String, Object> resultMap = (Map<String, Object>) parseTaskResponse.getResult();
+
+        // Collection is normally already set to the shared course collection
+        String collectionName = (String) resultMap.get("qdrant_collection_name");
+        try {
+            uploadedFileService.findById(fileId).ifPresent(existing -> {
+                if (existing.getCollectionName() == null && collectionName != null) {
+                    existing.setCollectionName(collectionName);
+                }
+                existing.setStatus("READY");
+                uploadedFileService.save(existing);
+            });
+        } catch (Exception e) {
+            logger.error("Failed to update metadata to READY for file " + fileId, e);
+        }
+
+        List<Map<String, String>> flashCardsMap = (List<Map<String, String>>) resultMap.get("flash_cards");
+        if (flashCardsMap != null && !flashCardsMap.isEmpty()) {
+            addFlashCardsToCourseWithSource(courseId, flashCardsMap, fileId);
+        } else {
+            // Generation is skipped for re-uploads of a file whose cards already exist elsewhere
+            uploadedFileService.findById(fileId).ifPresent(file -> dedupService.reuseFlashCards(courseId, file));
+        }
+    }
+
+    // XML quizzes: persist the parsed questions
+    private void applyXmlResult(Long courseId, String fileId, TaskResponseDto xmlTaskStatus) {
+        if (xmlTaskStatus == null || !"SUCCESS".equals(xmlTaskStatus.getStatus())) {
+            uploadedFileService.updateStatus(fileId, "FAILED");
+            return;
+        }
+
+        Course course = courseService.getCourseById(courseId).orElse(null);
+        Map<String, Object> resultMap = (Map<String, Object>) xmlTaskStatus.getResult();
+        Object questionsObj = resultMap.get("questions");
+        if (course != null && questionsObj instanceof List) {
+            ObjectMapper mapper = new ObjectMapper();
+            List<Map<String, Object>> questionList = (List<Map<String, Object>>) questionsObj;
+            for (Map<String, Object> qMap : questionList) {
+                try {
+                    CourseQuestion cq = new CourseQuestion();
+                    cq.setCourse(course);
+                    cq.setFileId(fileId);
+                    cq.setQuestionText((String) qMap.get("question_text"));
+                    cq.setAnswersJson(mapper.writeValueAsString(qMap.get("questions_parsed_and_answered")));
+                    Object imagesObj = qMap.get("question_images");
+                    if (imagesObj != null) {
+                        cq.setImagesJson(mapper.writeValueAsString(imagesObj));
+                    }
+                    courseQuestionService.save(cq);
+                } catch (Exception e) {
+                    logger.error("Failed to persist course question for file " + fileId, e);
+                }
+            }
+        }
+        uploadedFileService.updateStatus(fileId, "READY");
+    }
+
+    // Returns the Gemini URI task id, or null if the chain stops here
+    private String startVideoUri(String fileId, TaskResponseDto uploadStatus) {
+        if (uploadStatus == null || !"SUCCESS".equals(uploadStatus.getStatus())) {
+            uploadedFileService.updateStatus(fileId, "FAILED");
+            return null;
+        }
+        String videoPath = extractVideoPath(uploadStatus);
+        if (videoPath == null) {
+            return null;
+        }
+        try {
+            VideoUriRequestDto videoUriRequest = new VideoUriRequestDto();
+            VideoDto videoDto = new VideoDto();
+            videoDto.setType("FILE_VIDEO");
+            videoDto.setPath(videoPath);
+            videoUriRequest.setVideo(videoDto);
+            videoUriRequest.setUriProvider("gemini_uri_provider");
+
+            VideoUriResponseDto videoUriResponse = apiClient.getVideoUri(videoUriRequest).block();
+            if (videoUriResponse == null || videoUriResponse.getTaskId() == null) {
+                logger.error("Failed to get video URI task ID for file {}", fileId);
+                return null;
+            }
+            return videoUriResponse.getTaskId();
+        } catch (Exception e) {
+            logger.error("Error getting video URI for file " + fileId, e);
+            uploadedFileService.updateStatus(fileId, "FAILED");
+            return null;
+        }
+    }
+
+    private Video applyVideoUri(Long courseId, String fileId, TaskResponseDto uriTaskStatus) {
+        if (uriTaskStatus == null || !"SUCCESS".equals(uriTaskStatus.getStatus())) {
+            logger.error("URI task failed or timed out: {}",
+                    uriTaskStatus != null ? uriTaskStatus.getStatus() : "null");
+            uploadedFileService.updateStatus(fileId, "FAILED");
+            return null;
+        }
+        Video video = createVideoFromResponse(uriTaskStatus);
+        if (video == null) {
+            return null;
+        }
+        courseService.setVideo(courseId, video);
+        uploadedFileService.updateStatus(fileId, "READY");
+        return video;
+    }
+
+    // Returns the flash card task id, or null if it could not be started
+    private String startVideoFlashCards(Long courseId, String fileId, Video video) {
+        try {
+            FlashCardRequestDto flashCardRequest = new FlashCardRequestDto();
+            flashCardRequest.setVideo(toVideoDto(video));
+
+            TaskResponseDto flashCardResponse = apiClient.createFlashCards(flashCardRequest)
+                    .contextWrite(courseService.getCourseById(courseId)
+                            .map(AdmissionControl::forCourse)
+                            .orElse(context -> context))
+                    .block();
+            if (flashCardResponse == null || flashCardResponse.getTaskId() == null) {
+                logger.error("Failed to get flash card task ID for file {}", fileId);
+                return null;
+            }
+            return flashCardResponse.getTaskId();
+        } catch (Exception e) {
+            logger.error("Error getting flash cards for file " + fileId, e);
+            return null;
+        }
+    }
+
+    private void applyVideoFlashCards(Long courseId, String fileId, TaskResponseDto flashCardTaskStatus) {
+        if (flashCardTaskStatus != null && "SUCCESS".equals(flashCardTaskStatus.getStatus())) {
+            addFlashCardsFromResult(courseId, flashCardTaskStatus, fileId);
+        } else {
+            logger.error("Flash card task failed or timed out: {}",
+                    flashCardTaskStatus != null ? flashCardTaskStatus.getStatus() : "null");
+        }
+    }
+
+    private void applyYoutubeResult(Long courseId, String fileId, TaskResponseDto flashCardTaskStatus) {
+        if (flashCardTaskStatus != null && "SUCCESS".equals(flashCardTaskStatus.getStatus())) {
+            addFlashCardsFromResult(courseId, flashCardTaskStatus, fileId);
+            uploadedFileService.updateStatus(fileId, "READY");
+        } else {
+            uploadedFileService.updateStatus(fileId, "FAILED");
+        }
+    }
+
+    public void addFlashCardsToCourseWithSource(Long courseId, List<Map<String, String>> flashCardsMap, String sourceFileId) {
+        UploadedFile sourceFile = null;
+        if (sourceFileId != null) {
+            sourceFile = uploadedFileService.findById(sourceFileId).orElse(null);
+        }
+        for (Map<String, String> cardMap : flashCardsMap) {
+            FlashCard flashCard = new FlashCard();
+            flashCard.setQuestion(cardMap.get("question"));
+            flashCard.setAnswer(cardMap.get("answer"));
+            if (sourceFile != null) {
+                flashCard.setUploadedFile(sourceFile);
+            }
+            courseService.addFlashCard(courseId, flashCard);
+        }
+    }
+
+    private void addFlashCardsFromResult(Long courseId, TaskResponseDto flashCardTaskStatus, String fileId) {
+        Map<String, Object> resultMap = (Map<String, Object>) flashCardTaskStatus.getResult();
+        List<Map<String, String>> flashCardsMap = (List<Map<String, String>>) resultMap.get("flash_cards");
+        if (flashCardsMap != null && !flashCardsMap.isEmpty()) {
+            addFlashCardsToCourseWithSource(courseId, flashCardsMap, fileId);
+        } else {
+            logger.info("No flash cards found in response for file {}", fileId);
+        }
+    }
+
+    // A timed-out or unreachable task is treated like a failed one
+    private CompletableFuture<TaskResponseDto> awaitStatus(String taskId, String taskType) {
+        return completionEngine.await(taskId, taskType).exceptionally(error -> null);
+    }
+
+    private CompletableFuture<Void> guard(String fileId, CompletableFuture<Void> chain) {
+        return chain.exceptionally(error -> {
+            logger.error("Background ingest failed for file " + fileId, error);
+            uploadedFileService.updateStatus(fileId, "FAILED");
+            return null;
+        });
+    }
+
+    private VideoDto toVideoDto(Video video) {
+        VideoDto videoDto = new VideoDto();
+        videoDto.setType(video.getType());
+        videoDto.setUri(video.getUri());
+        videoDto.setPath(video.getPath());
+        if (video.getDuration() != null) {
+            VideoDto.DurationDto durationDto = new VideoDto.DurationDto();
+            durationDto.setMinutes(video.getDuration().getMinutes());
+            durationDto.setSeconds(video.getDuration().getSeconds());
+            videoDto.setDuration(durationDto);
+        }
+        return videoDto;
+    }
+
+    private String extractVideoPath(TaskResponseDto taskStatus) {
+        try {
+            if (taskStatus.getResult() instanceof Map) {
+                Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
+                return (String) resultMap.get("path");
+            }
+        } catch (Exception e) {
+            logger.error("Error extracting video path", e);
+        }
+        return null;
+    }
+
+    private Video createVideoFromResponse(TaskResponseDto taskStatus) {
+        try {
+            if (taskStatus.getResult() instanceof Map) {
+                Map<String, Object> resultMap = (Map<String, Object>) taskStatus.getResult();
+                Object videoObj = resultMap.get("video");
+
+                if (videoObj instanceof Map) {
+                    Map<String, Object> videoMap = (Map<String, Object>) videoObj;
+
+                    Video video = new Video();
+                    video.setType((String) videoMap.get("type"));
+                    video.setUri((String) videoMap.get("uri"));
+                    video.setPath((String) videoMap.get("path"));
+
+                    Object durationObj = videoMap.get("duration");
+                    if (durationObj instanceof Map) {
+                        Map<String, Integer> durationMap = (Map<String, Integer>) durationObj;
+                        video.setDuration(new Duration(durationMap.get("minutes"), durationMap.get("seconds")));
+                    }
+
+                    Object uriDataObj = videoMap.get("uri_data");
+                    if (uriDataObj instanceof Map) {
+                        video.setUriData((Map<String, String>) uriDataObj);
+                    }
+
+                    return video;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error creating video from response", e);
+        }
+        return null;
+    }
+}
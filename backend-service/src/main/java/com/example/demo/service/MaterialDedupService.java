@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.model.FlashCard;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.repository.FlashCardRepository;
+
+/**
+ * Spots re-uploads of course materials by SHA-256 of their bytes. A file already READY in the
+ * target collection needs no ingest at all; one READY elsewhere still has to be indexed into the
+ * new collection, but its flash cards can be copied instead of asking the LLM for new ones.
+ */
+@Service
+public class MaterialDedupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaterialDedupService.class);
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final UploadedFileService uploadedFileService;
+    private final FlashCardRepository flashCardRepository;
+    private final CourseService courseService;
+
+    public MaterialDedupService(UploadedFileService uploadedFileService, FlashCardRepository flashCardRepository,
+                                CourseService courseService) {
+        this.uploadedFileService = uploadedFileService;
+        this.flashCardRepository = flashCardRepository;
+        this.courseService = courseService;
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public String sha256(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return sha256(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to hash " + file.getOriginalFilename(), e);
+        }
+    }
+
+    public String sha256(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return sha256(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to hash " + file, e);
+        }
+    }
+
+    // A READY file with the same bytes in the same collection: uploading again would only duplicate it
+    public Optional<UploadedFile> findReadyCopy(String contentHash, String collectionName) {
+        return uploadedFileService.findReadyByContentHash(contentHash).stream()
+                .filter(file -> Objects.equals(file.getCollectionName(), collectionName))
+                .findFirst();
+    }
+
+    // A READY file with the same bytes whose flash cards can be reused
+    public Optional<UploadedFile> findFlashCardSource(String contentHash, String excludingFileId) {
+        return uploadedFileService.findReadyByContentHash(contentHash).stream()
+                .filter(file -> !file.getFileId().equals(excludingFileId))
+                .filter(file -> !flashCardRepository.findByUploadedFileFileId(file.getFileId()).isEmpty())
+                .findFirst();
+    }
+
+    /**
+     * Copies the flash cards generated for an earlier upload of the same bytes onto the new file.
+     * Returns the number of cards copied; zero if no earlier upload has any.
+     */
+    @Transactional
+    public int reuseFlashCards(Long courseId, UploadedFile target) {
+        if (target.getContentHash() == null) {
+            return 0;
+        }
+        Optional<UploadedFile> source = findFlashCardSource(target.getContentHash(), target.getFileId());
+        if (source.isEmpty()) {
+            return 0;
+        }
+        List<FlashCard> cards = flashCardRepository.findByUploadedFileFileId(source.get().getFileId());
+        for (FlashCard card : cards) {
+            FlashCard copy = new FlashCard(card.getQuestion(), card.getAnswer());
+            copy.setUploadedFile(target);
+            courseService.addFlashCard(courseId, copy);
+        }
+        logger.info("Reused {} flash cards from file {} for file {}", cards.size(), source.get().getFileId(),
+                target.getFileId());
+        return cards.size();
+    }
+
+    private static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[READ_BUFFER_BYTES];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return hex(digest);
+    }
+}
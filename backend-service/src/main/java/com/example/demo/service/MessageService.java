@@ -3,11 +3,19 @@ package com.example.demo.service;
 import com.example.demo.model.Course;
 import com.example.demo.model.Message;
 import com.example.demo.repository.MessageRepository;
+import com.example.demo.repository.MessageView;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,11 +24,14 @@ public class MessageService {
     
     private final MessageRepository messageRepository;
     private final CourseService courseService;
+    private final int maxPageSize;
     
     @Autowired
-    public MessageService(MessageRepository messageRepository, CourseService courseService) {
+    public MessageService(MessageRepository messageRepository, CourseService courseService,
+                          @Value("${app.chat.messages.max-page-size:500}") int maxPageSize) {
         this.messageRepository = messageRepository;
         this.courseService = courseService;
+        this.maxPageSize = maxPageSize;
     }
     
     public List<Message> getMessagesByCourse(Long courseId) {
@@ -33,6 +44,39 @@ public class MessageService {
         return messages;
     }
     
+    /**
+     * One page of history in (timestamp, id) order, oldest first: the limit messages just after
+     * or just before a cursor message, the newest limit messages when only a limit is given, or
+     * everything when nothing is. Pages are capped at max-page-size and read through the
+     * projection, so the Course is never loaded per message.
+     */
+    public List<MessageView> getHistoryPage(Long courseId, Long before, Long after, Integer limit) {
+        if (before != null && after != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pass either before or after, not both");
+        }
+        if (before == null && after == null && limit == null) {
+            return messageRepository.findViewsByCourseId(courseId, Pageable.unpaged());
+        }
+        Pageable page = PageRequest.of(0, limit == null ? maxPageSize : Math.max(1, Math.min(limit, maxPageSize)));
+        if (after != null) {
+            // 0 (or any id below the first message) reads from the start
+            return after <= 0 ? messageRepository.findViewsByCourseId(courseId, page)
+                    : messageRepository.findViewsAfter(courseId, cursor(courseId, after), after, page);
+        }
+        List<MessageView> newestFirst = before != null
+                ? messageRepository.findViewsBefore(courseId, cursor(courseId, before), before, page)
+                : messageRepository.findNewestViewsByCourseId(courseId, page);
+        List<MessageView> messages = new ArrayList<>(newestFirst);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    private LocalDateTime cursor(Long courseId, Long messageId) {
+        return messageRepository.findTimestamp(courseId, messageId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Message " + messageId + " is not part of this course"));
+    }
+    
     @Transactional
     public Message saveMessage(Message message) {
         // Force timestamp if not already set
@@ -0,0 +1,240 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.TaskResponseDto;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Shared completion tracker for Celery tasks. Callers get a future per task id that completes
+ * when the Python service reports SUCCESS or FAILURE; polls are scheduled on a small
+ * {@link ScheduledExecutorService} and the status calls themselves are non-blocking and go
+ * through {@link TaskStatusLookup}, so thousands of outstanding tasks need only a handful of
+ * threads and round trips.
+ *
+ * Futures complete on a scheduler or HTTP client thread. Callers doing JPA work must continue
+ * on their own executor (e.g. {@code thenAcceptAsync(..., ingestExecutor)}).
+ */
+@Service
+public class TaskCompletionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskCompletionEngine.class);
+
+    private final TaskStatusLookup statusLookup;
+    private final TaskPollingPolicy pollingPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, PendingTask> pending = new ConcurrentHashMap<>();
+    private final long statusCallTimeoutMs;
+    // With pushed completions polling is only a fallback for lost callbacks
+    private final long minPollIntervalMs;
+
+    public TaskCompletionEngine(TaskStatusLookup statusLookup, TaskPollingPolicy pollingPolicy,
+                                @Value("${app.tasks.engine.threads:2}") int threads,
+                                @Value("${app.tasks.engine.status-call-timeout-ms:10000}") long statusCallTimeoutMs,
+                                @Value("${app.tasks.callback.enabled:false}") boolean callbacksEnabled,
+                                @Value("${app.tasks.engine.safety-net-interval-ms:60000}") long safetyNetIntervalMs) {
+        this.statusLookup = statusLookup;
+        this.pollingPolicy = pollingPolicy;
+        this.statusCallTimeoutMs = statusCallTimeoutMs;
+        this.minPollIntervalMs = callbacksEnabled ? safetyNetIntervalMs : 0;
+        this.scheduler = Executors.newScheduledThreadPool(threads, new EngineThreadFactory());
+    }
+
+    public CompletableFuture<TaskResponseDto> await(String taskId) {
+        return await(taskId, (String) null);
+    }
+
+    /** Waits with the polling profile and deadline of the given {@link com.example.demo.model.TaskTypes task type}. */
+    public CompletableFuture<TaskResponseDto> await(String taskId, String taskType) {
+        return await(taskId, taskType, pollingPolicy.deadline(taskType));
+    }
+
+    public CompletableFuture<TaskResponseDto> await(String taskId, Duration timeout) {
+        return await(taskId, null, timeout);
+    }
+
+    /**
+     * Returns a future for the terminal status of the task. Concurrent awaits of the same id share
+     * one poll schedule. The future fails with {@link TimeoutException} once the timeout passes.
+     */
+    public CompletableFuture<TaskResponseDto> await(String taskId, String taskType, Duration timeout) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        PendingTask[] created = new PendingTask[1];
+        PendingTask task = pending.compute(taskId, (id, existing) -> {
+            if (existing != null) {
+                existing.extendDeadline(deadline);
+                return existing;
+            }
+            created[0] = new PendingTask(id, taskType, deadline);
+            return created[0];
+        });
+        // Scheduled outside compute: a rejected schedule fails the task, which removes it from the map
+        if (created[0] != null) {
+            schedulePoll(created[0], nextDelay(created[0]));
+        }
+        // Hand out a dependent future so one caller cancelling cannot affect the others
+        return task.future.thenApply(status -> status);
+    }
+
+    public Mono<TaskResponseDto> awaitMono(String taskId) {
+        return Mono.fromFuture(() -> await(taskId));
+    }
+
+    /**
+     * Blocking convenience for synchronous call sites. Returns {@code null} on timeout or error,
+     * which is how the controllers already treat an unfinished task.
+     */
+    public TaskResponseDto waitFor(String taskId) {
+        return waitFor(taskId, (String) null);
+    }
+
+    public TaskResponseDto waitFor(String taskId, Duration timeout) {
+        return waitFor(taskId, null, timeout);
+    }
+
+    public TaskResponseDto waitFor(String taskId, String taskType) {
+        return waitFor(taskId, taskType, pollingPolicy.deadline(taskType));
+    }
+
+    public TaskResponseDto waitFor(String taskId, String taskType, Duration timeout) {
+        try {
+            return await(taskId, taskType, timeout).join();
+        } catch (Exception e) {
+            logger.warn("Gave up waiting for task {}: {}", taskId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Completes a tracked task from an external signal (e.g. a push from the Python worker).
+     * Returns true if anybody was waiting for it.
+     */
+    public boolean complete(String taskId, TaskResponseDto status) {
+        PendingTask task = pending.remove(taskId);
+        if (task == null) {
+            return false;
+        }
+        finish(task, status);
+        return true;
+    }
+
+    public int outstanding() {
+        return pending.size();
+    }
+
+    private void schedulePoll(PendingTask task, long delayMs) {
+        try {
+            scheduler.schedule(() -> poll(task), delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Scheduler shut down while the application is stopping
+            fail(task, e);
+        }
+    }
+
+    private void poll(PendingTask task) {
+        if (task.future.isDone()) {
+            return;
+        }
+        if (System.currentTimeMillis() > task.deadline) {
+            fail(task, new TimeoutException("Task " + task.taskId + " did not finish in time"));
+            return;
+        }
+        statusLookup.getTaskStatus(task.taskId)
+                .timeout(Duration.ofMillis(statusCallTimeoutMs))
+                .subscribe(
+                        status -> {
+                            if (isTerminal(status)) {
+                                pending.remove(task.taskId, task);
+                                finish(task, status);
+                            } else {
+                                schedulePoll(task, nextDelay(task));
+                            }
+                        },
+                        error -> {
+                            logger.warn("Error polling task status for {}: {}", task.taskId, error.getMessage());
+                            schedulePoll(task, nextDelay(task));
+                        },
+                        () -> {
+                            if (!task.future.isDone()) {
+                                schedulePoll(task, nextDelay(task));
+                            }
+                        });
+    }
+
+    private long nextDelay(PendingTask task) {
+        long elapsed = System.currentTimeMillis() - task.startedAt;
+        long delay = pollingPolicy.nextDelayMs(task.taskType, task.attempts++, elapsed);
+        // Never sleep past the deadline, so timeouts are reported on time
+        long untilDeadline = Math.max(0, task.deadline - System.currentTimeMillis() + 1);
+        return Math.min(Math.max(delay, minPollIntervalMs), untilDeadline);
+    }
+
+    private void finish(PendingTask task, TaskResponseDto status) {
+        if ("SUCCESS".equals(status.getStatus())) {
+            // Lower bound of the real duration (we only saw the part after await), still a useful signal
+            pollingPolicy.observe(task.taskType, System.currentTimeMillis() - task.startedAt);
+        }
+        task.future.complete(status);
+    }
+
+    private void fail(PendingTask task, Throwable error) {
+        pending.remove(task.taskId, task);
+        task.future.completeExceptionally(error);
+    }
+
+    static boolean isTerminal(TaskResponseDto status) {
+        return status != null && ("SUCCESS".equals(status.getStatus()) || "FAILURE".equals(status.getStatus()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class PendingTask {
+        private final String taskId;
+        private final String taskType;
+        private final long startedAt = System.currentTimeMillis();
+        private final CompletableFuture<TaskResponseDto> future = new CompletableFuture<>();
+        private volatile long deadline;
+        private volatile int attempts;
+
+        private PendingTask(String taskId, String taskType, long deadline) {
+            this.taskId = taskId;
+            this.taskType = taskType;
+            this.deadline = deadline;
+        }
+
+        private void extendDeadline(long candidate) {
+            if (candidate > deadline) {
+                deadline = candidate;
+            }
+        }
+    }
+
+    private static final class EngineThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "task-engine-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.Task;
+import com.example.demo.repository.TaskRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Splits the pending task sweep between backend instances sharing one database. A node only polls
+ * tasks it holds a lease on; leases are renewed on every sweep and expire after
+ * {@code app.tasks.lease.duration-ms}, so tasks of a node that died are picked up by the others.
+ * A sweep takes at most {@code app.tasks.lease.max-new-claims} tasks it does not already hold, so a
+ * backlog is spread over the nodes instead of going to whichever one sweeps first.
+ */
+@Service
+public class TaskLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskLeaseManager.class);
+
+    private final TaskRepository taskRepository;
+    private final String nodeId;
+    private final Duration leaseDuration;
+    private final int maxNewClaims;
+
+    public TaskLeaseManager(TaskRepository taskRepository,
+                            @Value("${app.tasks.lease.node-id:}") String nodeId,
+                            @Value("${app.tasks.lease.duration-ms:90000}") long leaseDurationMs,
+                            @Value("${app.tasks.lease.max-new-claims:25}") int maxNewClaims) {
+        this.taskRepository = taskRepository;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseDuration = Duration.ofMillis(leaseDurationMs);
+        this.maxNewClaims = maxNewClaims;
+        logger.info("Task lease node id: {}", this.nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /** Free or expired tasks one sweep may claim; shared by every page of that sweep. */
+    public AtomicInteger newClaimBudget() {
+        return new AtomicInteger(maxNewClaims);
+    }
+
+    /** {@link #claim(List, AtomicInteger)} for a single page with a budget of its own. */
+    public List<Task> claim(List<Task> candidates) {
+        return claim(candidates, newClaimBudget());
+    }
+
+    /**
+     * Renews this node's leases among the given pending tasks, claims free or expired ones while
+     * {@code budget} lasts, and returns the tasks this node now owns.
+     */
+    public List<Task> claim(List<Task> candidates, AtomicInteger budget) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<String> taskIds = new ArrayList<>();
+        for (Task task : candidates) {
+            if (nodeId.equals(task.getClaimedBy())) {
+                taskIds.add(task.getTaskId());
+            } else if ((task.getClaimedBy() == null || task.getLeaseUntil() == null || task.getLeaseUntil().isBefore(now))
+                    && budget.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+                taskIds.add(task.getTaskId());
+            }
+        }
+        if (taskIds.isEmpty()) {
+            return List.of();
+        }
+        taskRepository.claimPending(taskIds, nodeId, now.plus(leaseDuration), now);
+        Map<String, Task> owned = taskRepository.findByTaskIdInAndClaimedBy(taskIds, nodeId).stream()
+                .collect(Collectors.toMap(Task::getTaskId, Function.identity()));
+        // Keep the caller's (oldest-first) order
+        return taskIds.stream().map(owned::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    // Hand pending work back on a clean shutdown instead of waiting for the leases to run out
+    @PreDestroy
+    public void releaseAll() {
+        try {
+            int released = taskRepository.releaseClaims(nodeId);
+            if (released > 0) {
+                logger.info("Released {} task leases held by {}", released, nodeId);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not release task leases for {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
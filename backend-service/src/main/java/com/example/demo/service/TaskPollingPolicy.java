@@ -0,0 +1,200 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.Task;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.repository.TaskRepository;
+
+/**
+ * Decides when to check a task's status again. Each task type has a profile (first interval, cap,
+ * deadline); intervals grow exponentially with jitter, and when the typical duration of a type is
+ * known (from finished rows in the tasks table and from tasks observed in-process) the first checks
+ * are pushed out to just before the task is expected to finish.
+ */
+@Service
+public class TaskPollingPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskPollingPolicy.class);
+
+    // Fraction of the expected duration to wait before the first status check
+    private static final double EXPECTED_LEAD = 0.8;
+
+    private final TaskRepository taskRepository;
+    private final Profile defaultProfile;
+    private final Map<String, Profile> profiles = new HashMap<>();
+    private final double multiplier;
+    private final double jitter;
+    private final int historySize;
+    private final Map<String, List<Long>> history = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Long>> observed = new ConcurrentHashMap<>();
+    private final Map<String, SweepState> sweepStates = new ConcurrentHashMap<>();
+
+    public TaskPollingPolicy(TaskRepository taskRepository,
+                             @Value("${app.tasks.engine.poll-interval-ms:5000}") long defaultIntervalMs,
+                             @Value("${app.tasks.polling.max-interval-ms:60000}") long maxIntervalMs,
+                             @Value("${app.tasks.engine.default-timeout-ms:21600000}") long defaultDeadlineMs,
+                             @Value("${app.tasks.polling.multiplier:1.5}") double multiplier,
+                             @Value("${app.tasks.polling.jitter:0.2}") double jitter,
+                             @Value("${app.tasks.polling.history-size:50}") int historySize) {
+        this.taskRepository = taskRepository;
+        this.defaultProfile = new Profile(defaultIntervalMs, maxIntervalMs, defaultDeadlineMs);
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.historySize = historySize;
+
+        // Chat answers and deletions take seconds, ingest and video URIs take minutes
+        profiles.put(TaskTypes.CHAT, new Profile(500, 5_000, Duration.ofMinutes(10).toMillis()));
+        profiles.put(TaskTypes.DELETE, new Profile(1_000, 10_000, Duration.ofMinutes(10).toMillis()));
+        profiles.put(TaskTypes.QUIZ_EXPORT, new Profile(2_000, 30_000, Duration.ofHours(1).toMillis()));
+        profiles.put(TaskTypes.DOCUMENT_UPLOAD, new Profile(2_000, 30_000, Duration.ofHours(1).toMillis()));
+        profiles.put(TaskTypes.VIDEO_UPLOAD, new Profile(2_000, 30_000, Duration.ofHours(1).toMillis()));
+        profiles.put(TaskTypes.FLASH_CARDS, new Profile(3_000, 30_000, Duration.ofHours(1).toMillis()));
+        profiles.put(TaskTypes.PARSE_INGEST, new Profile(5_000, maxIntervalMs, Duration.ofHours(3).toMillis()));
+        profiles.put(TaskTypes.PROCESS_XML, new Profile(5_000, maxIntervalMs, Duration.ofHours(3).toMillis()));
+        profiles.put(TaskTypes.VIDEO_URI, new Profile(10_000, 2 * maxIntervalMs, Duration.ofHours(2).toMillis()));
+    }
+
+    /** Delay before status check number {@code attempt} (0-based) of a task running for {@code elapsedMs}. */
+    public long nextDelayMs(String taskType, int attempt, long elapsedMs) {
+        Profile profile = profile(taskType);
+        long delay = (long) Math.min(profile.firstIntervalMs * Math.pow(multiplier, attempt), profile.maxIntervalMs);
+
+        Long expected = expectedDurationMs(taskType);
+        if (expected != null) {
+            long untilExpected = (long) (expected * EXPECTED_LEAD) - elapsedMs;
+            delay = Math.max(delay, untilExpected);
+        }
+        double factor = 1 + (jitter > 0 ? ThreadLocalRandom.current().nextDouble(-jitter, jitter) : 0);
+        return Math.max(1, (long) (delay * factor));
+    }
+
+    public Duration deadline(String taskType) {
+        return Duration.ofMillis(profile(taskType).deadlineMs);
+    }
+
+    /** Median duration of recently finished tasks of the type, or null while nothing is known. */
+    public Long expectedDurationMs(String taskType) {
+        if (taskType == null) {
+            return null;
+        }
+        List<Long> samples = new ArrayList<>(history.getOrDefault(taskType, Collections.emptyList()));
+        Deque<Long> recent = observed.get(taskType);
+        if (recent != null) {
+            synchronized (recent) {
+                samples.addAll(recent);
+            }
+        }
+        if (samples.isEmpty()) {
+            return null;
+        }
+        Collections.sort(samples);
+        return samples.get(samples.size() / 2);
+    }
+
+    /** Feeds the duration of a task that finished while this process was waiting for it. */
+    public void observe(String taskType, long durationMs) {
+        if (taskType == null || durationMs < 0) {
+            return;
+        }
+        Deque<Long> recent = observed.computeIfAbsent(taskType, type -> new ArrayDeque<>());
+        synchronized (recent) {
+            recent.addLast(durationMs);
+            while (recent.size() > historySize) {
+                recent.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Whether the periodic sweep should check this pending task now. Keeps a small per-task backoff
+     * so long-running tasks are not queried on every sweep.
+     */
+    public boolean isDueForSweep(Task task, long nowMs) {
+        long createdMs = toMillis(task.getCreatedAt(), nowMs);
+        SweepState state = sweepStates.computeIfAbsent(task.getTaskId(),
+                id -> new SweepState(createdMs + nextDelayMs(task.getTaskType(), 0, 0)));
+        if (nowMs < state.nextDueMs) {
+            return false;
+        }
+        state.attempt++;
+        state.nextDueMs = nowMs + nextDelayMs(task.getTaskType(), state.attempt, nowMs - createdMs);
+        return true;
+    }
+
+    public boolean isPastDeadline(Task task, long nowMs) {
+        return task.getCreatedAt() != null
+                && nowMs - toMillis(task.getCreatedAt(), nowMs) > profile(task.getTaskType()).deadlineMs;
+    }
+
+    public void forget(String taskId) {
+        sweepStates.remove(taskId);
+    }
+
+    // Learn typical durations from finished tasks; also drops sweep state of tasks we no longer see
+    @Scheduled(fixedDelayString = "${app.tasks.polling.history-refresh-ms:600000}")
+    public void refreshHistory() {
+        for (String taskType : profiles.keySet()) {
+            try {
+                List<Long> durations = new ArrayList<>();
+                for (Task task : taskRepository.findTop50ByTaskTypeAndStatusAndCompletedAtIsNotNullOrderByCompletedAtDesc(
+                        taskType, "SUCCESS")) {
+                    if (task.getCreatedAt() != null && durations.size() < historySize) {
+                        durations.add(Duration.between(task.getCreatedAt(), task.getCompletedAt()).toMillis());
+                    }
+                }
+                history.put(taskType, durations);
+            } catch (Exception e) {
+                logger.warn("Could not load task duration history for {}: {}", taskType, e.getMessage());
+            }
+        }
+        long staleBefore = System.currentTimeMillis() - Duration.ofDays(1).toMillis();
+        sweepStates.values().removeIf(state -> state.nextDueMs < staleBefore);
+    }
+
+    private Profile profile(String taskType) {
+        return taskType == null ? defaultProfile : profiles.getOrDefault(taskType, defaultProfile);
+    }
+
+    private static long toMillis(LocalDateTime time, long fallback) {
+        return time == null ? fallback : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Profile {
+        private final long firstIntervalMs;
+        private final long maxIntervalMs;
+        private final long deadlineMs;
+
+        private Profile(long firstIntervalMs, long maxIntervalMs, long deadlineMs) {
+            this.firstIntervalMs = firstIntervalMs;
+            this.maxIntervalMs = Math.max(firstIntervalMs, maxIntervalMs);
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    private static final class SweepState {
+        private volatile long nextDueMs;
+        private int attempt;
+
+        private SweepState(long nextDueMs) {
+            this.nextDueMs = nextDueMs;
+        }
+    }
+}
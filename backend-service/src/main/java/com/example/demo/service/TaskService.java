@@ -1,54 +1,96 @@
 package com.example.demo.service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import com.example.demo.client.ApiClient;
 import com.example.demo.dto.TaskResponseDto;
 import com.example.demo.dto.UploadResponseDto;
-import com.example.demo.dto.VideoDto;
-import com.example.demo.dto.VideoUriRequestDto;
-import com.example.demo.dto.VideoUriResponseDto;
 import com.example.demo.model.Task;
+import com.example.demo.model.TaskTypes;
 import com.example.demo.repository.TaskRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 @Service
 public class TaskService {
     
     private static final Logger logger = LoggerFactory.getLogger(TaskService.class);
     
     private final TaskRepository taskRepository;
-    private final ApiClient apiClient;
+    private final TaskStatusLookup statusLookup;
     private final CourseService courseService;
+    private final TaskCompletionEngine completionEngine;
+    private final CourseEventHub eventHub;
+    private final TaskLeaseManager leaseManager;
+    private final TaskPollingPolicy pollingPolicy;
+    private final int sweepMaxConcurrency;
+    private final Duration sweepCallTimeout;
+    private final Duration sweepDeadline;
+    private final int sweepPageSize;
     
     @Autowired
-    public TaskService(TaskRepository taskRepository, ApiClient apiClient, CourseService courseService) {
+    public TaskService(TaskRepository taskRepository, TaskStatusLookup statusLookup,
+                       CourseService courseService, TaskCompletionEngine completionEngine, CourseEventHub eventHub,
+                       TaskLeaseManager leaseManager, TaskPollingPolicy pollingPolicy,
+                       @Value("${app.tasks.sweep.max-concurrency:8}") int sweepMaxConcurrency,
+                       @Value("${app.tasks.sweep.per-call-timeout-ms:10000}") long sweepCallTimeoutMs,
+                       @Value("${app.tasks.sweep.deadline-ms:25000}") long sweepDeadlineMs,
+                       @Value("${app.tasks.sweep.page-size:100}") int sweepPageSize) {
         this.taskRepository = taskRepository;
-        this.apiClient = apiClient;
+        this.statusLookup = statusLookup;
         this.courseService = courseService;
+        this.completionEngine = completionEngine;
+        this.eventHub = eventHub;
+        this.leaseManager = leaseManager;
+        this.pollingPolicy = pollingPolicy;
+        this.sweepMaxConcurrency = sweepMaxConcurrency;
+        this.sweepCallTimeout = Duration.ofMillis(sweepCallTimeoutMs);
+        this.sweepDeadline = Duration.ofMillis(sweepDeadlineMs);
+        this.sweepPageSize = sweepPageSize;
     }
     
     public Task createTask(String taskId, String status, Long courseId) {
         Task task = new Task(taskId, status);
         courseService.getCourseById(courseId).ifPresent(task::setCourse);
-        return taskRepository.save(task);
+        return publishStatus(taskRepository.save(task));
     }
 
     public Task createTask(String taskId, String status, Long courseId, String taskType, String sourceFileId) {
         Task task = new Task(taskId, status, taskType, sourceFileId);
         courseService.getCourseById(courseId).ifPresent(task::setCourse);
-        return taskRepository.save(task);
+        return publishStatus(taskRepository.save(task));
     }
     
     public Task updateTaskStatus(String taskId, String status, String result) {
+        // Lease renewals bump the row version; re-read and retry if one slipped in between
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return doUpdateTaskStatus(taskId, status, result);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt >= 3) {
+                    throw e;
+                }
+                logger.debug("Concurrent update of task {}, retrying", taskId);
+            }
+        }
+    }
+
+    private Task doUpdateTaskStatus(String taskId, String status, String result) {
         Task task = taskRepository.findById(taskId)
                 .orElseThrow(() -> new RuntimeException("Task not found: " + taskId));
         task.setStatus(status);
@@ -58,60 +100,148 @@ public class TaskService {
             task.setCompletedAt(LocalDateTime.now());
         }
         
-        return taskRepository.save(task);
+        return publishStatus(taskRepository.save(task));
+    }
+
+    private Task publishStatus(Task task) {
+        if (task.getCourse() != null) {
+            eventHub.publishTaskStatus(task.getCourse().getId(), task.getTaskId(), task.getStatus(), task.getTaskType());
+        }
+        return task;
     }
 
     public List<Task> getTasksForCourse(com.example.demo.model.Course course) {
         return taskRepository.findByCourse(course);
     }
     
-    // Run every 30 seconds to check for pending tasks
-    @Scheduled(fixedDelay = 30000)
+    // Safety-net sweep over pending tasks; runs rarely when the Python worker pushes completions.
+    // With several instances each one only checks the tasks it holds a lease on.
+    @Scheduled(fixedDelayString = "${app.tasks.sweep.interval-ms:30000}",
+            initialDelayString = "${app.tasks.sweep.initial-delay-ms:0}")
     public void checkPendingTasks() {
         logger.info("Checking pending tasks...");
-        List<Task> pendingTasks = taskRepository.findByStatus("PENDING");
-        logger.info("Found {} pending tasks", pendingTasks.size());
-        
-        for (Task task : pendingTasks) {
-            try {
-                logger.info("Checking task status for: {}", task.getTaskId());
-                TaskResponseDto taskStatus = apiClient.getTaskStatus(task.getTaskId()).block();
-                
-                if (taskStatus == null) {
-                    logger.warn("Received null response for task: {}", task.getTaskId());
-                    continue;
-                }
-                
-                logger.info("Task {} status: {}", task.getTaskId(), taskStatus.getStatus());
-                
-                if (!"PENDING".equals(taskStatus.getStatus())) {
-                    // Convert result to string if it's not already
-                    String resultStr = taskStatus.getResult() != null ? 
-                        (taskStatus.getResult() instanceof String ? 
-                            (String) taskStatus.getResult() : 
-                            new ObjectMapper().writeValueAsString(taskStatus.getResult())) : 
-                        null;
-                        
-                    updateTaskStatus(task.getTaskId(), taskStatus.getStatus(), resultStr);
-                    
-                    // If task was successful and has a course associated with it, update the course
-                    if ("SUCCESS".equals(taskStatus.getStatus()) && task.getCourse() != null) {
-                        processCompletedTask(task, taskStatus);
+        AtomicInteger checked = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        // Oldest tasks first, a page at a time, with at most sweepMaxConcurrency status calls in
+        // flight. Whatever is not reached before the deadline is picked up by the next sweep.
+        pendingTasks()
+                .flatMap(task -> checkTask(task, checked, completed), sweepMaxConcurrency)
+                .take(sweepDeadline)
+                .then()
+                .block();
+
+        logger.info("Checked {} pending tasks, {} finished", checked.get(), completed.get());
+    }
+
+    private Flux<Task> pendingTasks() {
+        PageRequest page = PageRequest.ofSize(sweepPageSize);
+        // New claims are capped per sweep, not per page; later pages still renew this node's leases
+        AtomicInteger claimBudget = leaseManager.newClaimBudget();
+        return Mono.fromCallable(() -> taskRepository.findByStatusOrderByCreatedAtAscTaskIdAsc("PENDING", page))
+                .subscribeOn(Schedulers.boundedElastic())
+                .expand(tasks -> {
+                    if (tasks.size() < sweepPageSize) {
+                        return Mono.empty();
                     }
+                    Task last = tasks.get(tasks.size() - 1);
+                    return Mono.fromCallable(() -> taskRepository.findPageByStatusAfter(
+                            "PENDING", last.getCreatedAt(), last.getTaskId(), page))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .concatMap(tasks -> Mono.fromCallable(() -> leaseManager.claim(tasks, claimBudget))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMapIterable(tasks -> tasks)
+                // Per task type backoff: long-running tasks are not checked on every sweep
+                .filter(task -> pollingPolicy.isDueForSweep(task, System.currentTimeMillis()));
+    }
+
+    private Mono<Task> checkTask(Task task, AtomicInteger checked, AtomicInteger completed) {
+        if (pollingPolicy.isPastDeadline(task, System.currentTimeMillis())) {
+            return Mono.fromCallable(() -> {
+                logger.warn("Task {} ({}) exceeded its deadline, marking it FAILURE", task.getTaskId(), task.getTaskType());
+                updateTaskStatus(task.getTaskId(), "FAILURE", "{\"error\":\"Timed out waiting for task\"}");
+                pollingPolicy.forget(task.getTaskId());
+                completed.incrementAndGet();
+                return task;
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+        return statusLookup.getTaskStatus(task.getTaskId())
+                .timeout(sweepCallTimeout)
+                // Status updates and follow-ups use JPA and blocking calls, keep them off the HTTP threads
+                .publishOn(Schedulers.boundedElastic())
+                .map(taskStatus -> {
+                    checked.incrementAndGet();
+                    logger.debug("Task {} status: {}", task.getTaskId(), taskStatus.getStatus());
+                    try {
+                        applyTaskStatus(task, taskStatus);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    if (!"PENDING".equals(taskStatus.getStatus())) {
+                        completed.incrementAndGet();
+                    }
+                    return task;
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error checking task status for " + task.getTaskId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Handles a completion pushed by the Python worker. Updates the tracked task, runs the same
+     * follow-up as the sweep and wakes anybody waiting on the completion engine.
+     * Returns false if the task id is not tracked by this backend.
+     */
+    public boolean handleTaskCallback(String taskId, TaskResponseDto taskStatus) {
+        boolean tracked = false;
+        Task task = taskRepository.findById(taskId).orElse(null);
+        if (task != null) {
+            tracked = true;
+            if ("PENDING".equals(task.getStatus())) {
+                try {
+                    applyTaskStatus(task, taskStatus);
+                } catch (Exception e) {
+                    logger.error("Error applying callback for task " + taskId, e);
                 }
-            } catch (Exception e) {
-                logger.error("Error checking task status for " + task.getTaskId(), e);
             }
         }
+        if (TaskCompletionEngine.isTerminal(taskStatus)) {
+            statusLookup.record(taskStatus);
+            tracked |= completionEngine.complete(taskId, taskStatus);
+        }
+        return tracked;
+    }
+
+    private void applyTaskStatus(Task task, TaskResponseDto taskStatus) throws Exception {
+        if ("PENDING".equals(taskStatus.getStatus())) {
+            return;
+        }
+        pollingPolicy.forget(task.getTaskId());
+        // Convert result to string if it's not already
+        String resultStr = taskStatus.getResult() != null ? 
+            (taskStatus.getResult() instanceof String ? 
+                (String) taskStatus.getResult() : 
+                new ObjectMapper().writeValueAsString(taskStatus.getResult())) : 
+            null;
+            
+        updateTaskStatus(task.getTaskId(), taskStatus.getStatus(), resultStr);
+        
+        // If task was successful and has a course associated with it, update the course
+        if ("SUCCESS".equals(taskStatus.getStatus()) && task.getCourse() != null) {
+            processCompletedTask(task, taskStatus);
+        }
     }
     
     private void processCompletedTask(Task task, TaskResponseDto taskStatus) {
+        if (TaskTypes.VIDEO_UPLOAD.equals(task.getTaskType())) {
+            // The persisted chain in IngestService starts the URI request; starting one here would duplicate it
+            return;
+        }
         if (task.getResult() != null && task.getResult().contains("parseSummariseIngestTaskId")) {
             // This is a PDF/DOCX upload task, we need to check the parse task
             checkParseSummariseTask(task);
-        } else if (task.getResult() != null && task.getResult().contains("path")) {
-            // This is a video upload task, we need to initiate video URI retrieval
-            initiateVideoUriRequest(task);
         } else if (task.getResult() != null && task.getResult().contains("uri")) {
             // This is a video URI task that completed successfully
             updateCourseWithVideoUri(task);
@@ -131,12 +261,13 @@ public class TaskService {
                 if (!taskRepository.existsById(parseTaskId)) {
                     // Create a new task to track the parse task
                     Task parseTask = new Task(parseTaskId, "PENDING");
+                    parseTask.setTaskType(TaskTypes.PARSE_INGEST);
                     parseTask.setCourse(uploadTask.getCourse());
-                    taskRepository.save(parseTask);
+                    publishStatus(taskRepository.save(parseTask));
                     logger.info("Created new parse task to track: " + parseTaskId);
                 } else {
                     // We're already tracking it, check its status
-                    TaskResponseDto parseTaskStatus = apiClient.getTaskStatus(parseTaskId).block();
+                    TaskResponseDto parseTaskStatus = statusLookup.getTaskStatus(parseTaskId).block();
                     
                     if (parseTaskStatus != null && "SUCCESS".equals(parseTaskStatus.getStatus())) {
                         // Parse task completed successfully, update course with collection name
@@ -149,37 +280,6 @@ public class TaskService {
         }
     }
     
-    private void initiateVideoUriRequest(Task uploadTask) {
-    try {
-        // Extract the video path from the result
-        UploadResponseDto uploadResult = parseUploadResponse(uploadTask.getResult());
-        
-        if (uploadResult != null && uploadResult.getPath() != null) {
-            // Initiate video URI request
-            VideoUriRequestDto videoUriRequest = new VideoUriRequestDto();
-            VideoDto video = new VideoDto();
-            video.setType("FILE_VIDEO");
-            video.setPath(uploadResult.getPath());
-            videoUriRequest.setVideo(video);
-            videoUriRequest.setUriProvider("gemini_uri_provider");
-            // API key will be set by the ApiClient
-            
-            // Call the API to get video URI
-            VideoUriResponseDto videoUriResponse = apiClient.getVideoUri(videoUriRequest).block();
-            
-            if (videoUriResponse != null && videoUriResponse.getTaskId() != null) {
-                // Create task to track video URI request
-                Task videoUriTask = new Task(videoUriResponse.getTaskId(), "PENDING");
-                videoUriTask.setCourse(uploadTask.getCourse());
-                taskRepository.save(videoUriTask);
-                logger.info("Created video URI task: " + videoUriResponse.getTaskId());
-            }
-        }
-    } catch (Exception e) {
-        logger.error("Error initiating video URI request for: " + uploadTask.getTaskId(), e);
-    }
-}
-    
     private void updateCourseWithCollectionName(Long courseId, TaskResponseDto parseTaskStatus) {
         try {
             if (parseTaskStatus.getResult() != null) {
@@ -208,7 +308,7 @@ public class TaskService {
     
     private void updateCourseWithVideoUri(Task videoUriTask) {
         try {
-            TaskResponseDto taskStatus = apiClient.getTaskStatus(videoUriTask.getTaskId()).block();
+            TaskResponseDto taskStatus = statusLookup.getTaskStatus(videoUriTask.getTaskId()).block();
             
             if (taskStatus != null && taskStatus.getResult() != null) {
                 Object result = taskStatus.getResult();
@@ -0,0 +1,116 @@
+package com.example.demo.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.client.TaskStatusBatcher;
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.model.Task;
+import com.example.demo.repository.TaskRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Front door for task status reads. Finished tasks never change, so SUCCESS/FAILURE results are
+ * answered from a bounded in-memory cache or the {@code tasks} table; everything else goes to the
+ * Python service, with concurrent lookups of the same id sharing one in-flight call.
+ */
+@Service
+public class TaskStatusLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusLookup.class);
+
+    private final TaskStatusBatcher statusBatcher;
+    private final TaskRepository taskRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentHashMap<String, Mono<TaskResponseDto>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, TaskResponseDto> terminalCache;
+
+    public TaskStatusLookup(TaskStatusBatcher statusBatcher, TaskRepository taskRepository,
+                            @Value("${app.tasks.status-cache.max-entries:10000}") int maxEntries) {
+        this.statusBatcher = statusBatcher;
+        this.taskRepository = taskRepository;
+        // Access-ordered so the least recently read task drops out first
+        this.terminalCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TaskResponseDto> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Mono<TaskResponseDto> getTaskStatus(String taskId) {
+        return Mono.defer(() -> {
+            TaskResponseDto cached = cached(taskId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return Mono.fromCallable(() -> fromTaskTable(taskId))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .switchIfEmpty(Mono.defer(() -> fetchShared(taskId)));
+        });
+    }
+
+    /** Records a terminal status learned elsewhere (e.g. a worker callback). */
+    public void record(TaskResponseDto status) {
+        if (status != null && status.getTaskId() != null && TaskCompletionEngine.isTerminal(status)) {
+            synchronized (terminalCache) {
+                terminalCache.put(status.getTaskId(), status);
+            }
+        }
+    }
+
+    int cachedEntries() {
+        synchronized (terminalCache) {
+            return terminalCache.size();
+        }
+    }
+
+    private TaskResponseDto cached(String taskId) {
+        synchronized (terminalCache) {
+            return terminalCache.get(taskId);
+        }
+    }
+
+    private Mono<TaskResponseDto> fetchShared(String taskId) {
+        return inFlight.computeIfAbsent(taskId, id -> statusBatcher.getTaskStatus(id)
+                .doOnNext(this::record)
+                .doFinally(signal -> inFlight.remove(id))
+                .cache());
+    }
+
+    // Returns null unless the tracked task already finished
+    private TaskResponseDto fromTaskTable(String taskId) {
+        Task task = taskRepository.findById(taskId).orElse(null);
+        if (task == null || !("SUCCESS".equals(task.getStatus()) || "FAILURE".equals(task.getStatus()))) {
+            return null;
+        }
+        TaskResponseDto status = new TaskResponseDto();
+        status.setTaskId(taskId);
+        status.setStatus(task.getStatus());
+        status.setResult(parseResult(task.getResult()));
+        record(status);
+        return status;
+    }
+
+    private Object parseResult(String result) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(result, Object.class);
+        } catch (Exception e) {
+            // Stored as a plain string rather than JSON
+            logger.debug("Task result is not JSON, returning it as text");
+            return result;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Turns a raw upload body into a {@link DataBuffer} stream for {@code ApiClient.uploadFileStream}.
+ * Buffers are read from the request only when the outgoing connection asks for more, so the
+ * heap held per upload is a few {@code buffer-size} chunks regardless of the file size, and
+ * progress is published on the course event stream as bytes go out.
+ */
+@Service
+public class UploadStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadStreamService.class);
+
+    private final CourseEventHub eventHub;
+    private final int bufferSize;
+    private final long maxBytes;
+    private final long progressIntervalBytes;
+
+    public UploadStreamService(CourseEventHub eventHub,
+                               @Value("${app.upload.stream.buffer-size:16384}") int bufferSize,
+                               @Value("${app.upload.stream.max-bytes:104857600}") long maxBytes,
+                               @Value("${app.upload.stream.progress-interval-bytes:1048576}") long progressIntervalBytes) {
+        this.eventHub = eventHub;
+        this.bufferSize = bufferSize;
+        this.maxBytes = maxBytes;
+        this.progressIntervalBytes = progressIntervalBytes;
+    }
+
+    /**
+     * Streams the body in {@code buffer-size} chunks. Blocking reads run on the bounded elastic
+     * scheduler; the stream fails with 413 once more than {@code max-bytes} have been read. Each
+     * chunk is also fed to {@code digest} on its way through.
+     */
+    public Flux<DataBuffer> read(Long courseId, String uploadId, Callable<InputStream> body, long contentLength,
+                                 MessageDigest digest) {
+        if (contentLength > maxBytes) {
+            return Flux.error(tooLarge());
+        }
+        AtomicLong transferred = new AtomicLong();
+        AtomicLong nextReport = new AtomicLong(progressIntervalBytes);
+        eventHub.publishUploadProgress(courseId, uploadId, "UPLOADING", 0, contentLength);
+        return DataBufferUtils.readInputStream(body, DefaultDataBufferFactory.sharedInstance, bufferSize)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(buffer -> {
+                    long total = transferred.addAndGet(buffer.readableByteCount());
+                    if (total > maxBytes) {
+                        DataBufferUtils.release(buffer);
+                        throw tooLarge();
+                    }
+                    try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+                        chunks.forEachRemaining(digest::update);
+                    }
+                    if (total >= nextReport.get()) {
+                        nextReport.set(total + progressIntervalBytes);
+                        eventHub.publishUploadProgress(courseId, uploadId, "UPLOADING", total, contentLength);
+                    }
+                })
+                .doOnComplete(() -> {
+                    logger.info("Streamed upload {} for course {}: {} bytes", uploadId, courseId, transferred.get());
+                    eventHub.publishUploadProgress(courseId, uploadId, "UPLOADED", transferred.get(), contentLength);
+                })
+                .doOnError(error -> eventHub.publishUploadProgress(courseId, uploadId, "FAILED",
+                        transferred.get(), contentLength));
+    }
+
+    private ResponseStatusException tooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds " + maxBytes + " bytes");
+    }
+}
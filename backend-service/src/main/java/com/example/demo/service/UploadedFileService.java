@@ -1,5 +1,7 @@
 package com.example.demo.service;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,21 +9,62 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.model.BatchEntry;
 import com.example.demo.model.Course;
 import com.example.demo.model.UploadedFile;
+import com.example.demo.repository.BatchEntryRepository;
+import com.example.demo.repository.CourseRepository;
 import com.example.demo.repository.UploadedFileRepository;
 
 @Service
 public class UploadedFileService {
 
 	private final UploadedFileRepository repository;
+	private final CourseEventHub eventHub;
+	private final CourseRepository courseRepository;
+	private final BatchEntryRepository batchEntryRepository;
 
 	@Autowired
-	public UploadedFileService(UploadedFileRepository repository) {
+	public UploadedFileService(UploadedFileRepository repository, CourseEventHub eventHub,
+			CourseRepository courseRepository, BatchEntryRepository batchEntryRepository) {
 		this.repository = repository;
+		this.eventHub = eventHub;
+		this.courseRepository = courseRepository;
+		this.batchEntryRepository = batchEntryRepository;
 	}
 
-	public UploadedFile save(UploadedFile uf) { return repository.save(uf); }
+	public UploadedFile save(UploadedFile uf) {
+		UploadedFile saved = repository.save(uf);
+		if ("READY".equals(saved.getStatus())) {
+			materialsChanged(saved);
+		}
+		publishStatus(saved);
+		return saved;
+	}
+
+	// Early persist of uploaded file metadata with PENDING status; a failure here must not fail the upload
+	public void register(Course course, String type, UploadResponseDto response,
+			String collectionName, String processingTaskId) {
+		register(course, type, response, collectionName, processingTaskId, null);
+	}
+
+	public void register(Course course, String type, UploadResponseDto response,
+			String collectionName, String processingTaskId, String contentHash) {
+		try {
+			UploadedFile uf = new UploadedFile();
+			uf.setCourse(course);
+			uf.setType(type);
+			uf.setFilename(response.getFilename());
+			uf.setFileId(response.getFileId());
+			uf.setCollectionName(collectionName);
+			uf.setProcessingTaskId(processingTaskId);
+			uf.setContentHash(contentHash);
+			save(uf);
+		} catch (Exception e) {
+			System.err.println("Failed early save of " + type + " metadata: " + e.getMessage());
+		}
+	}
 
 	public List<UploadedFile> findByCourse(Course course) { return repository.findByCourse(course); }
 
@@ -29,13 +72,87 @@ public class UploadedFileService {
 
 	public Optional<UploadedFile> findById(String fileId) { return repository.findById(fileId); }
 
+	public List<UploadedFile> findByStageIn(Collection<String> stages) { return repository.findByStageIn(stages); }
+
+	public boolean claimIngest(String fileId, String node, LocalDateTime leaseUntil) {
+		return repository.claimIngest(fileId, node, leaseUntil, LocalDateTime.now()) > 0;
+	}
+
+	public void releaseIngest(String fileId, String node) {
+		repository.releaseIngest(fileId, node);
+	}
+
+	public int renewIngests(String node, Collection<String> stages, LocalDateTime leaseUntil) {
+		return repository.renewIngests(node, stages, leaseUntil);
+	}
+
+	public List<UploadedFile> findAllById(Collection<String> fileIds) { return repository.findAllById(fileIds); }
+
+	public List<BatchEntry> findBatch(Long courseId, String batchId) {
+		return batchEntryRepository.findByCourseIdAndBatchIdOrderByPosition(courseId, batchId);
+	}
+
+	public void saveBatch(List<BatchEntry> entries) { batchEntryRepository.saveAll(entries); }
+
+	public List<UploadedFile> findReadyByContentHash(String contentHash) { return repository.findByContentHashAndStatus(contentHash, "READY"); }
+
+	public void updateStatus(String fileId, String status) {
+		repository.findById(fileId).ifPresent(existing -> {
+			boolean searchable = "READY".equals(existing.getStatus()) || "READY".equals(status);
+			existing.setStatus(status);
+			repository.save(existing);
+			if (searchable) {
+				materialsChanged(existing);
+			}
+			publishStatus(existing);
+		});
+	}
+
+	public void updateProcessingTaskId(String fileId, String processingTaskId) {
+		repository.findById(fileId).ifPresent(existing -> {
+			existing.setProcessingTaskId(processingTaskId);
+			repository.save(existing);
+		});
+	}
+
+	// Moves a multi-stage file to its next stage; a null deadline keeps the current end-to-end deadline.
+	// Stage and task id go in the same save, so a resumed chain never pairs a stage with another stage's task
+	public void updateStage(String fileId, String stage, String processingTaskId,
+			LocalDateTime stageDeadline, LocalDateTime deadline) {
+		repository.findById(fileId).ifPresent(existing -> {
+			existing.setStage(stage);
+			existing.setProcessingTaskId(processingTaskId);
+			existing.setStageDeadline(stageDeadline);
+			if (deadline != null) {
+				existing.setDeadline(deadline);
+			}
+			repository.save(existing);
+		});
+	}
+
 	@Transactional
 	public void deleteByFileId(String fileId) {
+		Optional<UploadedFile> existing = repository.findById(fileId);
 		repository.deleteByFileId(fileId);
+		existing.ifPresent(this::materialsChanged);
 	}
 
 	@Transactional
 	public void deleteByCourseId(Long courseId) {
+		batchEntryRepository.deleteByCourseId(courseId);
 		repository.deleteByCourseId(courseId);
 	}
+
+	// A file entered or left what chat answers are retrieved from
+	private void materialsChanged(UploadedFile uf) {
+		if (uf.getCourse() != null) {
+			courseRepository.bumpMaterialsVersion(uf.getCourse().getId());
+		}
+	}
+
+	private void publishStatus(UploadedFile uf) {
+		if (uf.getCourse() != null && uf.getStatus() != null) {
+			eventHub.publishFileStatus(uf.getCourse().getId(), uf.getFileId(), uf.getStatus(), uf.getType());
+		}
+	}
 }
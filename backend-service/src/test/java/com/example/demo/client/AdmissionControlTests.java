@@ -0,0 +1,122 @@
+package com.example.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import com.example.demo.client.AdmissionControl.Operation;
+import com.example.demo.model.Course;
+import com.example.demo.model.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class AdmissionControlTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> admitted = new CopyOnWriteArrayList<>();
+    private final Map<String, Sinks.One<String>> running = new ConcurrentHashMap<>();
+
+    @Test
+    void waitingCoursesAreServedByWeight() {
+        // One slot; course 2 weighs twice as much as course 1
+        AdmissionControl admission = new AdmissionControl(true, 1, 10, 100, 100, 10_000, "2:2", registry);
+        Course first = course(1L, 1L);
+        Course second = course(2L, 2L);
+
+        call(admission, first, "hold");
+        for (String label : List.of("1a", "1b", "1c")) {
+            call(admission, first, label);
+        }
+        for (String label : List.of("2a", "2b", "2c", "2d")) {
+            call(admission, second, label);
+        }
+        assertThat(admission.queueDepth()).isEqualTo(7);
+
+        for (int i = 0; i < 8; i++) {
+            finish(admitted.get(i));
+        }
+        assertThat(admitted).containsExactly("hold", "2a", "2b", "2c", "1a", "2d", "1b", "1c");
+        assertThat(admission.activeCalls()).isZero();
+        assertThat(registry.get("admission.wait").tag("operation", "upload").timer().count()).isEqualTo(8);
+    }
+
+    @Test
+    void oneOwnerCannotTakeEverySlotOrTheWholeQueue() {
+        AdmissionControl admission = new AdmissionControl(true, 4, 1, 100, 1, 10_000, "", registry);
+        Course busy = course(1L, 1L);
+
+        call(admission, busy, "a1");
+        call(admission, busy, "a2");
+        AtomicReference<Throwable> refused = new AtomicReference<>();
+        admission.admit(Operation.UPLOAD, Mono.just("a3"))
+                .contextWrite(AdmissionControl.forCourse(busy))
+                .subscribe(value -> { }, refused::set);
+        call(admission, course(2L, 2L), "b1");
+
+        assertThat(admitted).containsExactly("a1", "b1");
+        assertThat(admission.queueDepth()).isEqualTo(1);
+        assertThat(refused.get()).isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+            assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            assertThat(Long.parseLong(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isPositive();
+        });
+        assertThat(registry.get("admission.rejected").tag("reason", "user_queue_full").counter().count()).isEqualTo(1);
+
+        finish("a1");
+        assertThat(admitted).containsExactly("a1", "b1", "a2");
+    }
+
+    @Test
+    void callsThatWaitTooLongAreRejectedAndLeaveTheQueue() {
+        AdmissionControl admission = new AdmissionControl(true, 1, 1, 100, 100, 50, "", registry);
+        Course course = course(1L, 1L);
+        call(admission, course, "hold");
+
+        assertThatThrownBy(() -> admission.admit(Operation.CHAT, Mono.just("late"))
+                        .contextWrite(AdmissionControl.forCourse(course))
+                        .block())
+                .isInstanceOf(AdmissionRejectedException.class);
+        assertThat(admission.queueDepth()).isZero();
+        assertThat(registry.get("admission.rejected").tag("reason", "timeout").counter().count()).isEqualTo(1);
+
+        // The slot is still accounted for and hands over normally afterwards
+        call(admission, course, "next");
+        finish("hold");
+        assertThat(admitted).containsExactly("hold", "next");
+    }
+
+    // Starts an upload that stays in flight until finish(label)
+    private void call(AdmissionControl admission, Course course, String label) {
+        Sinks.One<String> done = Sinks.one();
+        running.put(label, done);
+        admission.admit(Operation.UPLOAD, Mono.defer(() -> {
+                    admitted.add(label);
+                    return done.asMono();
+                }))
+                .contextWrite(AdmissionControl.forCourse(course))
+                .subscribe();
+    }
+
+    private void finish(String label) {
+        running.get(label).tryEmitValue(label);
+    }
+
+    private static Course course(Long courseId, Long ownerId) {
+        User owner = new User();
+        owner.setId(ownerId);
+        Course course = new Course();
+        course.setId(courseId);
+        course.setOwner(owner);
+        return course;
+    }
+}
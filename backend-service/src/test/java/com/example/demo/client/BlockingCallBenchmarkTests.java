@@ -0,0 +1,147 @@
+package com.example.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.example.demo.dto.ProcessAiRequestDto;
+import com.example.demo.dto.ProcessAiResponseDto;
+import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.support.PythonServiceStub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Platform vs virtual threads for the blocking {@link ApiClient} call pattern used by the
+ * controllers: 500 concurrent chat and upload requests, each blocking on the Python call and a
+ * status check. Run with {@code mvn -Pbenchmark test}; the virtual-thread run needs Java 21.
+ */
+@Tag("benchmark")
+class BlockingCallBenchmarkTests {
+
+    private static final int REQUESTS = 500;
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = 200;
+    private static final Duration PYTHON_LATENCY = Duration.ofMillis(200);
+
+    private static PythonServiceStub stub;
+    private static ApiClient apiClient;
+
+    @BeforeAll
+    static void startStub() {
+        stub = new PythonServiceStub();
+        stub.setLatency(PYTHON_LATENCY);
+        apiClient = new ApiClient(stub.baseUrl(), "test-key", "test-model", "test-provider",
+                new AdmissionControl(false, 1, 1, 1, 1, 0, "", new SimpleMeterRegistry()),
+                new ModelRateLimiter(false, 1, 1, "", 0, 4, 0, new SimpleMeterRegistry()),
+                new PythonEndpoints(new MockEnvironment()
+                        .withProperty("app.python.endpoints.default.max-connections", String.valueOf(REQUESTS))
+                        .withProperty("app.python.endpoints.default.pending-acquire-max", String.valueOf(REQUESTS)),
+                        new SimpleMeterRegistry()));
+        // Warm up connections and codecs so neither run pays for it
+        run("warm-up", Runnable::run, 4);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void platformThreads() {
+        ExecutorService pool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        try {
+            Result result = run("platform (" + PLATFORM_THREADS + " threads)", pool::execute, REQUESTS);
+            assertThat(result.completed).isEqualTo(REQUESTS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreads() {
+        Result result = run("virtual", new VirtualThreadTaskExecutor("bench-"), REQUESTS);
+        assertThat(result.completed).isEqualTo(REQUESTS);
+    }
+
+    private static Result run(String label, TaskExecutor executor, int requests) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            boolean chat = i % 2 == 0;
+            long submitted = System.nanoTime();
+            CompletableFuture<Void> call = new CompletableFuture<>();
+            calls.add(call);
+            executor.execute(() -> {
+                try {
+                    String taskId = chat ? chat() : upload();
+                    apiClient.getTaskStatus(taskId).block();
+                    latencies.add((System.nanoTime() - submitted) / 1_000_000);
+                    call.complete(null);
+                } catch (Throwable e) {
+                    call.completeExceptionally(e);
+                }
+            });
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        long wallMs = (System.nanoTime() - started) / 1_000_000;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        Result result = new Result(sorted.size());
+        if (!sorted.isEmpty()) {
+            System.out.printf("%s: %d requests in %d ms, p50 %d ms, p99 %d ms, peak JVM threads %d%n",
+                    label, requests, wallMs, sorted.get(sorted.size() / 2),
+                    sorted.get(Math.min(sorted.size() - 1, sorted.size() * 99 / 100)),
+                    threads.getPeakThreadCount());
+        }
+        return result;
+    }
+
+    // Same blocking shape as CourseController's chat endpoint
+    private static String chat() {
+        ProcessAiRequestDto request = new ProcessAiRequestDto();
+        request.setModelProvider("test-provider");
+        request.setModelName("test-model");
+        ProcessAiResponseDto response = apiClient.processAi(request).block();
+        return response.getTaskId();
+    }
+
+    // Same blocking shape as CourseController's upload-video endpoint
+    private static String upload() {
+        MockMultipartFile file = new MockMultipartFile("file", "lecture.mp4", "video/mp4", new byte[1024]);
+        UploadResponseDto response = apiClient.uploadVideo(file).block();
+        return response.getTaskId();
+    }
+
+    private static final class Result {
+        private final int completed;
+
+        private Result(int completed) {
+            this.completed = completed;
+        }
+    }
+}
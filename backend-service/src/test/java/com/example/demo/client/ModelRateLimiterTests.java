@@ -0,0 +1,73 @@
+package com.example.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class ModelRateLimiterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void requestsOverTheMinuteRateAreDelayedThenShed() {
+        // 60 requests per minute: one every second, at most one second of delay
+        ModelRateLimiter limiter = limiter(60, 1_000_000, "", 1000);
+
+        assertThat(limiter.limit("gemini", "gemini-2.0-flash", 59, 0, Mono.just("burst")).block()).isEqualTo("burst");
+        assertThat(limiter.limit("gemini", "gemini-2.0-flash", 1, 0, Mono.just("last")).block()).isEqualTo("last");
+        long started = System.nanoTime();
+        assertThat(limiter.limit("gemini", "gemini-2.0-flash", 1, 0, Mono.just("delayed")).block()).isEqualTo("delayed");
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(registry.get("ratelimit.delay").tag("model", "gemini:gemini-2.0-flash").timer()
+                .max(TimeUnit.MILLISECONDS)).isEqualTo(1000);
+
+        // A second of debt is already reserved, so the next one would wait two
+        assertThatThrownBy(() -> limiter.limit("gemini", "gemini-2.0-flash", 1, 0, Mono.just("shed")).block())
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2"));
+        assertThat(registry.get("ratelimit.shed").counter().count()).isEqualTo(1);
+
+        now.addAndGet(60_000);
+        assertThat(limiter.limit("gemini", "gemini-2.0-flash", 1, 0, Mono.just("refilled")).block()).isEqualTo("refilled");
+    }
+
+    @Test
+    void tokenEstimatesAreMeteredPerModel() {
+        // 6000 tokens per minute is 100 per second; the flash model has its own larger budget
+        ModelRateLimiter limiter = limiter(1000, 6000, "gemini:gemini-2.0-flash=1000/600000", 0);
+
+        assertThat(limiter.tokensForText(4000)).isEqualTo(1000);
+        limiter.limit("gemini", "gemini-1.5-pro", 1, 6000, Mono.just("big")).block();
+        assertThatThrownBy(() -> limiter.limit("gemini", "gemini-1.5-pro", 1, 100, Mono.just("next")).block())
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1)));
+        assertThat(limiter.limit("gemini", "gemini-2.0-flash", 1, 6000, Mono.just("other")).block()).isEqualTo("other");
+
+        now.addAndGet(1000);
+        assertThat(limiter.limit("gemini", "gemini-1.5-pro", 1, 100, Mono.just("next")).block()).isEqualTo("next");
+    }
+
+    @Test
+    void callsRefusedDownstreamGiveTheirShareBack() {
+        ModelRateLimiter limiter = limiter(1, 1_000_000, "", 0);
+
+        assertThatThrownBy(() -> limiter.limit("gemini", "gemini-2.0-flash", 1, 0,
+                        Mono.error(new AdmissionRejectedException("busy", Duration.ofSeconds(1)))).block())
+                .hasMessageContaining("busy");
+        assertThat(limiter.limit("gemini", "gemini-2.0-flash", 1, 0, Mono.just("retried")).block()).isEqualTo("retried");
+    }
+
+    private ModelRateLimiter limiter(long rpm, long tpm, String models, long maxDelayMs) {
+        return new ModelRateLimiter(true, rpm, tpm, models, maxDelayMs, 4, 0, registry, now::get);
+    }
+}
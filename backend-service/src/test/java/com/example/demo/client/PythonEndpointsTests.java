@@ -0,0 +1,134 @@
+package com.example.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.example.demo.dto.ProcessAiRequestDto;
+import com.example.demo.support.PythonServiceStub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class PythonEndpointsTests {
+
+    private final PythonServiceStub stub = new PythonServiceStub();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PythonEndpoints endpoints = new PythonEndpoints(new MockEnvironment()
+            .withProperty("app.python.endpoints.chat.response-timeout-ms", "300")
+            .withProperty("app.python.endpoints.chat.breaker.window-size", "4")
+            .withProperty("app.python.endpoints.chat.breaker.minimum-calls", "4")
+            .withProperty("app.python.endpoints.chat.breaker.open-ms", "500")
+            .withProperty("app.python.endpoints.chat.breaker.half-open-calls", "1")
+            .withProperty("app.python.endpoints.status.retry-backoff-ms", "10"), registry);
+    private final ApiClient apiClient = new ApiClient(stub.baseUrl(), "test-key", "gemini-2.0-flash", "gemini",
+            new AdmissionControl(false, 1, 1, 1, 1, 0, "", new SimpleMeterRegistry()),
+            new ModelRateLimiter(false, 1, 1, "", 0, 4, 0, new SimpleMeterRegistry()),
+            endpoints);
+
+    @AfterEach
+    void tearDown() {
+        endpoints.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void breakerOpensOnServerErrorsThenRecoversThroughHalfOpen() throws InterruptedException {
+        stub.failNext("/api/process-ai", 4, 500);
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> apiClient.processAi(chatRequest()).block())
+                    .isInstanceOf(WebClientResponseException.InternalServerError.class);
+        }
+        assertThat(endpoints.breakerState(PythonEndpoints.Group.CHAT)).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Fails fast without reaching Python; the status group is unaffected
+        assertThatThrownBy(() -> apiClient.processAi(chatRequest()).block())
+                .isInstanceOfSatisfying(EndpointUnavailableException.class,
+                        e -> assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1"));
+        assertThat(apiClient.getTaskStatus("task-1").block().getStatus()).isEqualTo("SUCCESS");
+        assertThat(registry.get("python.breaker.state").tag("endpoint", "chat").gauge().value()).isEqualTo(1);
+
+        Thread.sleep(600);
+        assertThat(apiClient.processAi(chatRequest()).block().getTaskId()).startsWith("chat-");
+        assertThat(endpoints.breakerState(PythonEndpoints.Group.CHAT)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(registry.get("python.breaker.transitions").tag("endpoint", "chat").tag("state", "half_open")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void statusReadsAreRetriedThroughTransientErrors() {
+        stub.failNext("/api/task-status", 2, 503);
+
+        assertThat(apiClient.getTaskStatus("task-1").block().getStatus()).isEqualTo("SUCCESS");
+        assertThat(stub.singleRequests()).isEqualTo(3);
+
+        // Client errors say nothing about the endpoint and are not retried
+        stub.failNext("/api/task-status", 1, 404);
+        assertThatThrownBy(() -> apiClient.getTaskStatus("task-2").block())
+                .isInstanceOf(WebClientResponseException.NotFound.class);
+        assertThat(stub.singleRequests()).isEqualTo(4);
+    }
+
+    @Test
+    void hungChatCallTimesOutWithoutHoldingUpStatusPolls() {
+        stub.hangNext("/api/process-ai", 1);
+        long started = System.nanoTime();
+        Mono<?> chat = apiClient.processAi(chatRequest()).cache();
+        chat.subscribe(response -> { }, error -> { });
+
+        assertThat(apiClient.getTaskStatus("task-1").block(Duration.ofSeconds(1)).getStatus()).isEqualTo("SUCCESS");
+        assertThatThrownBy(() -> chat.block(Duration.ofSeconds(5)))
+                .satisfies(error -> assertThat(PythonEndpoints.isFailure(error)).isTrue());
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void poolStateIsPublishedPerGroup() throws InterruptedException {
+        apiClient.getTaskStatus("task-1").block();
+        apiClient.getTaskStatus("task-2").block();
+        // Connections go back to the pool just after the response is read
+        Thread.sleep(100);
+
+        assertThat(registry.get("python.pool.acquire").tag("pool", "status").timer().count()).isEqualTo(2);
+        assertThat(registry.get("python.pool.active").tag("pool", "status").gauge().value()).isZero();
+        // Kept alive: the connections stay open and idle in the pool
+        double allocated = registry.get("python.pool.allocated").tag("pool", "status").gauge().value();
+        assertThat(allocated).isBetween(1.0, 2.0);
+        assertThat(registry.get("python.pool.idle").tag("pool", "status").gauge().value()).isEqualTo(allocated);
+        assertThat(registry.find("python.pool.acquire").tag("pool", "chat").timer().count()).isZero();
+    }
+
+    @Test
+    void h2cIsUsedWhenEnabledForAGroup() {
+        PythonEndpoints h2c = new PythonEndpoints(new MockEnvironment()
+                .withProperty("app.python.endpoints.status.h2c", "true"), new SimpleMeterRegistry());
+        ApiClient client = new ApiClient(stub.baseUrl(), "test-key", "gemini-2.0-flash", "gemini",
+                new AdmissionControl(false, 1, 1, 1, 1, 0, "", new SimpleMeterRegistry()),
+                new ModelRateLimiter(false, 1, 1, "", 0, 4, 0, new SimpleMeterRegistry()), h2c);
+        try {
+            client.getTaskStatus("task-1").block();
+            assertThat(client.getTaskStatus("task-2").block().getStatus()).isEqualTo("SUCCESS");
+            assertThat(stub.lastStatusProtocol()).isEqualTo("HTTP/2.0");
+
+            apiClient.getTaskStatus("task-3").block();
+            assertThat(stub.lastStatusProtocol()).isEqualTo("HTTP/1.1");
+        } finally {
+            h2c.shutdown();
+        }
+    }
+
+    private static ProcessAiRequestDto chatRequest() {
+        ProcessAiRequestDto request = new ProcessAiRequestDto();
+        request.setModelProvider("gemini");
+        request.setModelName("gemini-2.0-flash");
+        request.setSystemInstructionText("Answer briefly.");
+        return request;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.support.PythonServiceStub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+class TaskStatusBatcherTests {
+
+    private final PythonServiceStub stub = new PythonServiceStub();
+    private final PythonEndpoints endpoints = new PythonEndpoints(new MockEnvironment(), new SimpleMeterRegistry());
+    private final ApiClient apiClient = new ApiClient(stub.baseUrl(), "test-key", "gemini-2.0-flash", "gemini",
+            new AdmissionControl(false, 1, 1, 1, 1, 0, "", new SimpleMeterRegistry()),
+            new ModelRateLimiter(false, 1, 1, "", 0, 4, 0, new SimpleMeterRegistry()),
+            endpoints);
+    private final TaskStatusBatcher batcher = new TaskStatusBatcher(apiClient, true, 50, 20, 4);
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+        endpoints.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void coalescesConcurrentLookupsIntoBatches() {
+        stub.setState("task-7", "PENDING");
+        List<String> taskIds = IntStream.range(0, 200).mapToObj(i -> "task-" + i).collect(Collectors.toList());
+
+        List<TaskResponseDto> statuses = Flux.fromIterable(taskIds)
+                .flatMap(batcher::getTaskStatus, 200)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(statuses).hasSize(200);
+        assertThat(statuses).filteredOn(s -> "task-7".equals(s.getTaskId()))
+                .singleElement().extracting(TaskResponseDto::getStatus).isEqualTo("PENDING");
+        // A flush that caught a single lookup goes to the single status endpoint instead
+        assertThat(stub.batchSizes().stream().mapToInt(Integer::intValue).sum() + stub.singleRequests()).isEqualTo(200);
+        assertThat(stub.batchSizes()).allMatch(size -> size <= 50).hasSizeLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void bulkApiReturnsStatusesKeyedById() {
+        stub.setState("b", "FAILURE");
+
+        var statuses = apiClient.getTaskStatuses(List.of("a", "b")).block(Duration.ofSeconds(5));
+
+        assertThat(statuses).containsOnlyKeys("a", "b");
+        assertThat(statuses.get("b").getStatus()).isEqualTo("FAILURE");
+    }
+}
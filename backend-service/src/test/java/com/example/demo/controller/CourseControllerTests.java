@@ -0,0 +1,125 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.jayway.jsonpath.JsonPath;
+
+import com.example.demo.model.Course;
+import com.example.demo.model.User;
+import com.example.demo.repository.CourseRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.CustomUserDetailsService;
+import com.example.demo.security.JwtTokenUtil;
+import com.example.demo.support.PythonServiceStub;
+
+// The blocking handlers, with uploads asynchronous by default
+@SpringBootTest
+@AutoConfigureMockMvc
+class CourseControllerTests {
+
+    private static final PythonServiceStub stub = new PythonServiceStub();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.upload.async-default", () -> "true");
+        registry.add("api.base-url", stub::baseUrl);
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:blocking-controller;DB_CLOSE_DELAY=-1");
+        // HS512 needs a 512-bit key to sign test tokens
+        registry.add("jwt.secret", () -> "YmxvY2tpbmctY29udHJvbGxlci10ZXN0LXNlY3JldC1ibG9ja2luZy1jb250cm9sbGVyLXRlc3Qtc2VjcmV0ISE=");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Test
+    void uploadsReturnAJobHandleThatResolvesInTheBackground() throws Exception {
+        Course course = course("async-upload");
+        String token = token("async-upload");
+        byte[] content = "%PDF-1.4 week one slides".getBytes(StandardCharsets.ISO_8859_1);
+
+        // No ?async: app.upload.async-default answers with 202 before parse/summarise/ingest has finished
+        String accepted = mockMvc.perform(multipart("/api/courses/{id}/upload-pdf", course.getId())
+                        .file(new MockMultipartFile("file", "slides.pdf", "application/pdf", content))
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.courseId").value(course.getId()))
+                .andExpect(jsonPath("$.type").value("PDF"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.processingTaskId").value(Matchers.startsWith("parse-")))
+                .andReturn().getResponse().getContentAsString();
+        String fileId = JsonPath.read(accepted, "$.fileId");
+        String processingTaskId = JsonPath.read(accepted, "$.processingTaskId");
+        assertThat(JsonPath.<String>read(accepted, "$.jobId")).isEqualTo(fileId);
+        assertThat(context.getBeansOfType(ReactiveCourseController.class)).isEmpty();
+
+        mockMvc.perform(get("/api/courses/{id}/task-status/{taskId}", course.getId(), processingTaskId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCCESS"));
+
+        // The job's file turns READY once the background follow-up has applied the result
+        String files = "";
+        for (int attempt = 0; attempt < 100 && !files.contains("\"READY\""); attempt++) {
+            Thread.sleep(100);
+            files = mockMvc.perform(get("/api/courses/{id}/uploaded-files", course.getId())
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+        }
+        assertThat(JsonPath.<List<String>>read(files, "$[?(@.fileId == '" + fileId + "')].status"))
+                .containsExactly("READY");
+    }
+
+    private Course course(String username) {
+        User owner = userRepository.save(new User(username, "password", username + "@example.com"));
+        Course course = new Course();
+        course.setTitle("Course of " + username);
+        course.setOwner(owner);
+        return courseRepository.save(course);
+    }
+
+    private String token(String username) {
+        return jwtTokenUtil.generateToken(userDetailsService.loadUserByUsername(username));
+    }
+}
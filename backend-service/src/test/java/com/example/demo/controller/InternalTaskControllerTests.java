@@ -0,0 +1,73 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.model.Task;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.security.TaskCallbackVerifier;
+
+// Plays the Python worker: posts signed completion callbacks the way task_callback_service.py does
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "app.tasks.callback.enabled=true",
+        "app.tasks.callback.secret=test-callback-secret"
+})
+class InternalTaskControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskCallbackVerifier callbackVerifier;
+
+    @Test
+    void signedCallbackCompletesPendingTask() throws Exception {
+        taskRepository.save(new Task("callback-task-1", "PENDING"));
+        byte[] body = "{\"task_id\":\"callback-task-1\",\"status\":\"SUCCESS\",\"result\":{\"ok\":true}}"
+                .getBytes(StandardCharsets.UTF_8);
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+
+        mockMvc.perform(post("/internal/tasks/callback-task-1/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Callback-Timestamp", timestamp)
+                        .header("X-Callback-Signature", callbackVerifier.sign(timestamp, body))
+                        .content(body))
+                .andExpect(status().isAccepted());
+
+        Task task = taskRepository.findById("callback-task-1").orElseThrow();
+        assertThat(task.getStatus()).isEqualTo("SUCCESS");
+        assertThat(task.getCompletedAt()).isNotNull();
+    }
+
+    @Test
+    void rejectsBadSignature() throws Exception {
+        taskRepository.save(new Task("callback-task-2", "PENDING"));
+        byte[] body = "{\"status\":\"SUCCESS\"}".getBytes(StandardCharsets.UTF_8);
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+
+        mockMvc.perform(post("/internal/tasks/callback-task-2/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Callback-Timestamp", timestamp)
+                        .header("X-Callback-Signature", "deadbeef")
+                        .content(body))
+                .andExpect(status().isUnauthorized());
+
+        assertThat(taskRepository.findById("callback-task-2").orElseThrow().getStatus()).isEqualTo("PENDING");
+    }
+}
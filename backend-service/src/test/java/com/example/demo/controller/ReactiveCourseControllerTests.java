@@ -0,0 +1,359 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.jayway.jsonpath.JsonPath;
+
+import com.example.demo.model.Course;
+import com.example.demo.model.Message;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.model.User;
+import com.example.demo.repository.CourseRepository;
+import com.example.demo.repository.UploadedFileRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.CustomUserDetailsService;
+import com.example.demo.security.JwtTokenUtil;
+import com.example.demo.service.CourseService;
+import com.example.demo.service.MessageService;
+import com.example.demo.support.PythonServiceStub;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReactiveCourseControllerTests {
+
+    private static final PythonServiceStub stub = new PythonServiceStub();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.web.reactive.enabled", () -> "true");
+        registry.add("api.base-url", stub::baseUrl);
+        registry.add("app.upload.dir", ReactiveCourseControllerTests::uploadDir);
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:reactive-controller;DB_CLOSE_DELAY=-1");
+        // HS512 needs a 512-bit key to sign test tokens
+        registry.add("jwt.secret", () -> "cmVhY3RpdmUtY29udHJvbGxlci10ZXN0LXNlY3JldC1yZWFjdGl2ZS1jb250cm9sbGVyLXRlc3Qtc2VjcmV0ISE=");
+    }
+
+    private static String uploadDir() {
+        try {
+            return Files.createTempDirectory("chunked-uploads").toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UploadedFileRepository uploadedFileRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Test
+    void reactiveHandlersReplaceTheBlockingOnes() throws Exception {
+        Course course = course("reactive-chat");
+        String token = token("reactive-chat");
+
+        MvcResult pending = mockMvc.perform(post("/api/courses/{id}/chat", course.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"What is covered in week one?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Only this turn's messages come back (the stub's task result holds no reply), with the cursor of the last one
+        String turn = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages.length()").value(1))
+                .andExpect(jsonPath("$.messages[0].role").value("user"))
+                .andExpect(jsonPath("$.messages[0].content").value("What is covered in week one?"))
+                .andReturn().getResponse().getContentAsString();
+        Number cursor = JsonPath.read(turn, "$.cursor");
+        assertThat(cursor).isEqualTo(JsonPath.read(turn, "$.messages[0].id"));
+        assertThat(context.getBeansOfType(ReactiveCourseController.class)).hasSize(1);
+
+        mockMvc.perform(get("/api/courses/{id}/messages", course.getId())
+                        .param("after", "0")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(cursor.longValue()));
+        mockMvc.perform(get("/api/courses/{id}/messages", course.getId())
+                        .param("after", cursor.toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void chatRepliesAreStreamedThenStored() throws Exception {
+        Course course = course("streamed-chat");
+
+        MvcResult pending = mockMvc.perform(post("/api/courses/{id}/chat/stream", course.getId())
+                        .header("Authorization", "Bearer " + token("streamed-chat"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content("{\"content\":\"What is covered in week one?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        pending.getAsyncResult(10_000);
+
+        String body = pending.getResponse().getContentAsString();
+        assertThat(body).containsSubsequence(
+                "event:token", "\"text\":\"Week one \"",
+                "event:token", "\"text\":\"covers \"",
+                "event:token", "\"text\":\"the basics.\"",
+                "event:message", "\"role\":\"model\"", "\"content\":\"Week one covers the basics.\"");
+        assertThat(messageService.getMessagesByCourse(course.getId()))
+                .extracting(Message::getRole, Message::getContent)
+                .containsExactly(tuple("user", "What is covered in week one?"),
+                        tuple("model", "Week one covers the basics."));
+    }
+
+    @Test
+    void repeatedQuestionsAreAnsweredFromCacheUntilMaterialsChange() throws Exception {
+        Course course = course("cached-chat");
+        assertThat(streamChat(course, "What is covered in week one?")).contains("Week one covers the basics.");
+
+        stub.setStreamedTokens(List.of("Week one ", "covers ", "sets."));
+        try {
+            // A near duplicate is answered without asking the model
+            assertThat(streamChat(course, "what's covered in week one??")).contains("Week one covers the basics.");
+
+            courseService.setPdfCollectionName(course.getId(), "course_" + course.getId() + "_materials_v2");
+            assertThat(streamChat(course, "What is covered in week one?")).contains("Week one covers sets.");
+        } finally {
+            stub.setStreamedTokens(List.of("Week one ", "covers ", "the basics."));
+        }
+        assertThat(messageService.getMessagesByCourse(course.getId()))
+                .extracting(Message::getContent)
+                .containsExactly("What is covered in week one?", "Week one covers the basics.",
+                        "what's covered in week one??", "Week one covers the basics.",
+                        "What is covered in week one?", "Week one covers sets.");
+    }
+
+    @Test
+    void historyIsPagedByKeyset() throws Exception {
+        Course course = course("paged-history");
+        String token = token("paged-history");
+        // Saved within the same clock tick or not, ids break timestamp ties
+        for (int i = 1; i <= 5; i++) {
+            Message message = new Message(i % 2 == 1 ? "user" : "model", "turn " + i);
+            message.setCourse(course);
+            messageService.saveMessage(message);
+        }
+
+        String newest = mockMvc.perform(get("/api/courses/{id}/messages", course.getId())
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].content").value(Matchers.contains("turn 4", "turn 5")))
+                .andReturn().getResponse().getContentAsString();
+        Number oldestShown = JsonPath.read(newest, "$[0].id");
+
+        mockMvc.perform(get("/api/courses/{id}/messages", course.getId())
+                        .param("before", oldestShown.toString())
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].content").value(Matchers.contains("turn 2", "turn 3")))
+                .andExpect(jsonPath("$[0].courseId").value(course.getId()));
+        mockMvc.perform(get("/api/courses/{id}/messages", course.getId())
+                        .param("after", "0")
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].content").value(Matchers.contains("turn 1", "turn 2")));
+        mockMvc.perform(get("/api/courses/{id}/messages", course.getId())
+                        .param("before", oldestShown.toString())
+                        .param("after", "0")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void taskStatusIsProxiedWithoutBlocking() throws Exception {
+        Course course = course("reactive-status");
+        stub.setState("reactive-task-1", "PENDING");
+
+        MvcResult pending = mockMvc.perform(get("/api/courses/{id}/task-status/{taskId}", course.getId(), "reactive-task-1")
+                        .header("Authorization", "Bearer " + token("reactive-status")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void rawUploadBodiesAreStreamedThrough() throws Exception {
+        Course course = course("stream-upload");
+
+        // Not a reactive variant: served by the blocking controller with the body relayed in buffers
+        mockMvc.perform(post("/api/courses/{id}/upload-stream", course.getId())
+                        .header("Authorization", "Bearer " + token("stream-upload"))
+                        .param("type", "VIDEO")
+                        .param("filename", "lecture.mp4")
+                        .param("async", "true")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[100_000]))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("FILE_VIDEO"))
+                .andExpect(jsonPath("$.processingTaskId").exists());
+    }
+
+    @Test
+    void chunkedUploadsAreForwardedOnceComplete() throws Exception {
+        Course course = course("chunked-upload");
+        String token = token("chunked-upload");
+        byte[] content = "%PDF-1.4 lecture notes".getBytes(StandardCharsets.ISO_8859_1);
+
+        String opened = mockMvc.perform(post("/api/courses/{id}/uploads", course.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"PDF\",\"filename\":\"notes.pdf\",\"size\":" + content.length + "}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.offset").value(0))
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = JsonPath.read(opened, "$.uploadId");
+
+        mockMvc.perform(put("/api/courses/{id}/uploads/{uploadId}", course.getId(), uploadId)
+                        .header("Authorization", "Bearer " + token)
+                        .param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOfRange(content, 0, 8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offset").value(8));
+        mockMvc.perform(post("/api/courses/{id}/uploads/{uploadId}/complete", course.getId(), uploadId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/courses/{id}/uploads/{uploadId}", course.getId(), uploadId)
+                        .header("Authorization", "Bearer " + token)
+                        .param("offset", "8")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOfRange(content, 8, content.length)))
+                .andExpect(jsonPath("$.offset").value(content.length));
+
+        mockMvc.perform(post("/api/courses/{id}/uploads/{uploadId}/complete", course.getId(), uploadId)
+                        .header("Authorization", "Bearer " + token)
+                        .param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("PDF"));
+        assertThat(stub.lastUpload())
+                .contains("name=\"collection_name\"")
+                .contains("filename=\"notes.pdf\"\r\nContent-Type: application/pdf\r\n\r\n%PDF-1.4 lecture notes\r\n--");
+        mockMvc.perform(get("/api/courses/{id}/uploads/{uploadId}", course.getId(), uploadId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void reuploadOfAReadyFileSkipsIngest() throws Exception {
+        Course course = course("dedup-upload");
+        byte[] content = "%PDF-1.4 same notes".getBytes(StandardCharsets.ISO_8859_1);
+        UploadedFile existing = new UploadedFile();
+        existing.setFileId("dedup-file");
+        existing.setFilename("notes.pdf");
+        existing.setType("PDF");
+        existing.setStatus("READY");
+        existing.setCourse(course);
+        existing.setCollectionName(courseService.resolveMaterialsCollection(course));
+        existing.setContentHash(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)));
+        uploadedFileRepository.save(existing);
+        int uploads = stub.uploads();
+
+        MvcResult pending = mockMvc.perform(multipart("/api/courses/{id}/upload-pdf", course.getId())
+                        .file(new MockMultipartFile("file", "notes-again.pdf", "application/pdf", content))
+                        .param("async", "true")
+                        .header("Authorization", "Bearer " + token("dedup-upload")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileId").value("dedup-file"))
+                .andExpect(jsonPath("$.status").value("READY"));
+        assertThat(stub.uploads()).isEqualTo(uploads);
+    }
+
+    private String streamChat(Course course, String question) throws Exception {
+        MvcResult pending = mockMvc.perform(post("/api/courses/{id}/chat/stream", course.getId())
+                        .header("Authorization", "Bearer " + token(course.getOwner().getUsername()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content("{\"content\":\"" + question + "\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        pending.getAsyncResult(10_000);
+        return pending.getResponse().getContentAsString();
+    }
+
+    private Course course(String username) {
+        User owner = userRepository.save(new User(username, "password", username + "@example.com"));
+        Course course = new Course();
+        course.setTitle("Course of " + username);
+        course.setOwner(owner);
+        return courseRepository.save(course);
+    }
+
+    private String token(String username) {
+        return jwtTokenUtil.generateToken(userDetailsService.loadUserByUsername(username));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.model.Course;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AnswerCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AnswerCache cache = new AnswerCache(true, 0.8, 200, 1000, 60, registry);
+
+    @Test
+    void servesNormalisedAndNearDuplicateQuestionsOnly() {
+        Course course = course(1L, 0);
+        cache.put(course, "What is on the final exam?", "Chapters 1 to 6.");
+        cache.put(course, "Define entropy", "A measure of disorder.");
+
+        assertThat(cache.find(course, "  what is on the FINAL exam ")).isEqualTo("Chapters 1 to 6.");
+        assertThat(cache.find(course, "Hi! What's on the final exam, please?")).isEqualTo("Chapters 1 to 6.");
+        assertThat(cache.find(course, "define entropy?")).isEqualTo("A measure of disorder.");
+        assertThat(cache.find(course, "Define enthalpy")).isNull();
+        assertThat(cache.find(course, "When is the final exam?")).isNull();
+        // Another course has its own answers
+        assertThat(cache.find(course(2L, 0), "What is on the final exam?")).isNull();
+
+        assertThat(registry.get("answer.cache.lookups").tag("result", "hit").counter().count()).isEqualTo(3);
+        assertThat(registry.get("answer.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+        assertThat(registry.get("answer.cache.entries").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void numbersMustMatchAndFollowUpsAreNotCached() {
+        Course course = course(1L, 0);
+        cache.put(course, "What is covered in week 3?", "Sorting.");
+        cache.put(course, "Can you explain it again?", "Sure.");
+
+        assertThat(cache.find(course, "What is covered in week 4?")).isNull();
+        assertThat(cache.find(course, "what is covered in week 3")).isEqualTo("Sorting.");
+        assertThat(cache.find(course, "Can you explain it again?")).isNull();
+        // Follow-ups are not lookups at all
+        assertThat(registry.get("answer.cache.lookups").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void newMaterialsVersionInvalidatesTheCourse() {
+        cache.put(course(1L, 3), "What is on the exam?", "Chapters 1 to 6.");
+
+        assertThat(cache.find(course(1L, 3), "What is on the exam?")).isEqualTo("Chapters 1 to 6.");
+        assertThat(cache.find(course(1L, 4), "What is on the exam?")).isNull();
+        // An answer based on the old materials that finishes late is not stored
+        cache.put(course(1L, 3), "What is on the exam?", "Chapters 1 to 6.");
+        assertThat(cache.find(course(1L, 4), "What is on the exam?")).isNull();
+    }
+
+    @Test
+    void minHashEstimatesTrigramJaccard() {
+        String text = "what topics are covered in the second lecture on graph algorithms";
+        assertThat(AnswerCache.similarity(AnswerCache.signature(text), AnswerCache.signature(text))).isEqualTo(1.0);
+        assertThat(AnswerCache.similarity(AnswerCache.signature(text),
+                AnswerCache.signature("what topics are covered in the second lecture about graph algorithms")))
+                .isGreaterThan(0.7);
+        assertThat(AnswerCache.similarity(AnswerCache.signature(text),
+                AnswerCache.signature("how do i submit the homework"))).isLessThan(0.2);
+    }
+
+    private static Course course(Long id, long materialsVersion) {
+        Course course = new Course();
+        course.setId(id);
+        ReflectionTestUtils.setField(course, "materialsVersion", materialsVersion);
+        return course;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.client.ApiClient;
+import com.example.demo.dto.BatchUploadDto;
+import com.example.demo.dto.UploadResponseDto;
+import com.example.demo.dto.UploadedFileDto;
+import com.example.demo.model.BatchEntry;
+import com.example.demo.model.Course;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.repository.FlashCardRepository;
+
+import reactor.core.publisher.Mono;
+
+class BatchUploadServiceTests {
+
+    private final ApiClient apiClient = mock(ApiClient.class);
+    private final CourseService courseService = mock(CourseService.class);
+    private final TaskService taskService = mock(TaskService.class);
+    private final UploadedFileService uploadedFileService = mock(UploadedFileService.class);
+    private final IngestService ingestService = mock(IngestService.class);
+    private final MaterialDedupService dedupService =
+            new MaterialDedupService(uploadedFileService, mock(FlashCardRepository.class), courseService);
+    private final BatchUploadService service = new BatchUploadService(apiClient, courseService, taskService,
+            uploadedFileService, ingestService, dedupService, 2, 10);
+    // Backs the mocked service's batch entries and file rows
+    private final List<BatchEntry> members = new ArrayList<>();
+    private final Map<String, UploadedFile> rows = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void backBatchStorage() {
+        doAnswer(invocation -> members.addAll(invocation.getArgument(0)))
+                .when(uploadedFileService).saveBatch(any());
+        when(uploadedFileService.findBatch(eq(1L), anyString())).thenAnswer(invocation -> members.stream()
+                .filter(member -> member.getBatchId().equals(invocation.getArgument(1)))
+                .collect(Collectors.toList()));
+        when(uploadedFileService.findAllById(any())).thenAnswer(invocation -> ((Collection<String>) invocation
+                .getArgument(0)).stream().map(rows::get).filter(Objects::nonNull).collect(Collectors.toList()));
+        when(uploadedFileService.save(any())).thenAnswer(invocation -> {
+            UploadedFile saved = invocation.getArgument(0);
+            rows.put(saved.getFileId(), saved);
+            return saved;
+        });
+    }
+
+    @Test
+    void sendsAtMostParallelismFilesAtOnceAndKeepsRequestOrder() {
+        Course course = course();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(apiClient.uploadDocument(any(), eq("course_1_materials"), anyBoolean())).thenAnswer(invocation -> {
+            MultipartFile file = invocation.getArgument(0);
+            if (file.getOriginalFilename().startsWith("broken")) {
+                return Mono.error(new IllegalStateException("Python is down"));
+            }
+            return Mono.delay(Duration.ofMillis(50))
+                    .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .doOnTerminate(inFlight::decrementAndGet)
+                    .map(tick -> response(file.getOriginalFilename()));
+        });
+
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            files.add(pdf("notes-" + i + ".pdf", "content " + i));
+        }
+        files.add(pdf("broken.pdf", "broken"));
+
+        BatchUploadDto batch = service.dispatch(course, files);
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(batch.getFiles()).extracting(UploadedFileDto::getFilename)
+                .containsExactly("notes-0.pdf", "notes-1.pdf", "notes-2.pdf", "notes-3.pdf", "notes-4.pdf", "broken.pdf");
+        assertThat(batch.getStatus()).isEqualTo("PENDING");
+        assertThat(batch.getPending()).isEqualTo(5);
+        assertThat(batch.getFailed()).isEqualTo(1);
+        verify(ingestService).finishDocumentIngestAsync(1L, "notes-3.pdf-id", "notes-3.pdf-parse");
+        assertThat(members).extracting(BatchEntry::getFileId).startsWith("notes-0.pdf-id", "notes-1.pdf-id",
+                "notes-2.pdf-id", "notes-3.pdf-id", "notes-4.pdf-id");
+
+        // The failed upload has a row in the batch, so the aggregate cannot turn READY later
+        ArgumentCaptor<UploadedFile> failed = ArgumentCaptor.forClass(UploadedFile.class);
+        verify(uploadedFileService).save(failed.capture());
+        assertThat(failed.getValue().getFilename()).isEqualTo("broken.pdf");
+        assertThat(failed.getValue().getStatus()).isEqualTo("FAILED");
+        assertThat(members.get(5).getFileId()).isEqualTo(failed.getValue().getFileId());
+        // Once the others are ingested the batch is PARTIAL, not READY
+        for (int i = 0; i < 5; i++) {
+            rows.put("notes-" + i + ".pdf-id", row("notes-" + i + ".pdf-id", "READY"));
+        }
+        assertThat(service.status(1L, batch.getBatchId()).getStatus()).isEqualTo("PARTIAL");
+    }
+
+    @Test
+    void alreadyIngestedFileIsReportedByEveryBatchThatIncludedIt() {
+        Course course = course();
+        UploadedFile readyCopy = row("ready-1", "READY");
+        readyCopy.setCollectionName("course_1_materials");
+        rows.put("ready-1", readyCopy);
+        when(uploadedFileService.findReadyByContentHash(anyString())).thenReturn(List.of(readyCopy));
+
+        BatchUploadDto first = service.dispatch(course, List.of(pdf("notes.pdf", "same bytes")));
+        BatchUploadDto second = service.dispatch(course,
+                List.of(pdf("notes.pdf", "same bytes"), pdf("notes-copy.pdf", "same bytes")));
+
+        verify(apiClient, never()).uploadDocument(any(), anyString(), anyBoolean());
+        BatchUploadDto firstStatus = service.status(1L, first.getBatchId());
+        assertThat(firstStatus.getStatus()).isEqualTo("READY");
+        assertThat(firstStatus.getFiles()).extracting(UploadedFileDto::getFileId).containsExactly("ready-1");
+        BatchUploadDto secondStatus = service.status(1L, second.getBatchId());
+        assertThat(secondStatus.getStatus()).isEqualTo("READY");
+        assertThat(secondStatus.getTotal()).isEqualTo(2);
+        assertThat(secondStatus.getFiles()).extracting(UploadedFileDto::getFileId).containsExactly("ready-1", "ready-1");
+    }
+
+    @Test
+    void aggregateStatusFollowsTheFileRows() {
+        List.of(row("f1", "READY"), row("f2", "FAILED"), row("f3", "READY"), row("f4", "READY"))
+                .forEach(file -> rows.put(file.getFileId(), file));
+        members.addAll(List.of(new BatchEntry("b1", 1L, 0, "f1", "a.pdf"), new BatchEntry("b1", 1L, 1, "f2", "b.pdf"),
+                new BatchEntry("b2", 1L, 0, "f3", "c.pdf"), new BatchEntry("b2", 1L, 1, "f4", "d.pdf")));
+
+        assertThat(service.status(1L, "b1").getStatus()).isEqualTo("PARTIAL");
+        assertThat(service.status(1L, "b2").getStatus()).isEqualTo("READY");
+
+        assertThatThrownBy(() -> service.status(1L, "missing")).isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void unsupportedFilesRejectTheWholeBatchUpfront() {
+        assertThatThrownBy(() -> service.dispatch(course(),
+                        List.of(pdf("notes.pdf", "a"), pdf("lecture.mp4", "b"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("lecture.mp4");
+        verify(apiClient, never()).uploadDocument(any(), anyString(), anyBoolean());
+    }
+
+    private Course course() {
+        Course course = new Course();
+        course.setId(1L);
+        when(courseService.resolveMaterialsCollection(course)).thenReturn("course_1_materials");
+        when(courseService.getCourseById(1L)).thenReturn(Optional.of(course));
+        return course;
+    }
+
+    private static MockMultipartFile pdf(String filename, String content) {
+        return new MockMultipartFile("files", filename, "application/pdf", content.getBytes());
+    }
+
+    private static UploadResponseDto response(String filename) {
+        UploadResponseDto response = new UploadResponseDto();
+        response.setFilename(filename);
+        response.setFileId(filename + "-id");
+        response.setTaskId(filename + "-task");
+        response.setParseSummariseIngestTaskId(filename + "-parse");
+        return response;
+    }
+
+    private static UploadedFile row(String fileId, String status) {
+        UploadedFile file = new UploadedFile();
+        file.setFileId(fileId);
+        file.setStatus(status);
+        return file;
+    }
+}
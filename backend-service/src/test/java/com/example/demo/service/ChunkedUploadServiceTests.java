@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.dto.UploadSessionDto;
+import com.example.demo.model.UploadSession;
+import com.example.demo.repository.UploadSessionRepository;
+
+class ChunkedUploadServiceTests {
+
+    private final UploadSessionRepository repository = mock(UploadSessionRepository.class);
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void resumesFromTheBytesThatReachedTheDisk() throws IOException {
+        ChunkedUploadService service = service();
+        byte[] content = new byte[10_000];
+        Arrays.fill(content, (byte) 7);
+        UploadSession session = open(service, content.length);
+
+        service.writeChunk(session, 0, new ByteArrayInputStream(content, 0, 4096));
+        // The connection drops 1000 bytes into the second chunk
+        assertThatThrownBy(() -> service.writeChunk(session, 4096, dropsAfter(content, 4096, 1000)))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(service.status(session).getOffset()).isEqualTo(5096);
+
+        // Retrying the lost chunk from its old offset is refused with the offset to resume from
+        assertThatThrownBy(() -> service.writeChunk(session, 4096, new ByteArrayInputStream(content)))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                    assertThat(e.getReason()).contains("5096");
+                });
+        assertThatThrownBy(() -> service.completedFile(session)).isInstanceOf(ResponseStatusException.class);
+
+        service.writeChunk(session, 5096, new ByteArrayInputStream(content, 5096, 4096));
+        UploadSessionDto done = service.writeChunk(session, 9192, new ByteArrayInputStream(content, 9192, 808));
+        assertThat(done.getOffset()).isEqualTo(content.length);
+        assertThat(Files.readAllBytes(service.completedFile(session))).isEqualTo(content);
+        // Hashed as the chunks arrived, including the bytes of the dropped one
+        MessageDigest digest = MaterialDedupService.newDigest();
+        digest.update(content);
+        assertThat(service.contentHash(session)).contains(MaterialDedupService.hex(digest));
+        // After a restart the running digest is gone and the caller hashes the staged file
+        assertThat(service().contentHash(session)).isEmpty();
+
+        service.discard(session);
+        assertThat(uploadDir).isEmptyDirectory();
+    }
+
+    @Test
+    void chunksAreCappedAtTheChunkLimitAndTheDeclaredSize() {
+        ChunkedUploadService service = service();
+        UploadSession session = open(service, 6000);
+
+        assertThatThrownBy(() -> service.writeChunk(session, 0, new ByteArrayInputStream(new byte[5000])))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+        assertThatThrownBy(() -> service.open(1L, "PDF", "too-big.pdf", 1 << 20))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    private ChunkedUploadService service() {
+        when(repository.save(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        return new ChunkedUploadService(repository, uploadDir.toString(), 100_000, 4096, 60_000);
+    }
+
+    private UploadSession open(ChunkedUploadService service, long size) {
+        UploadSessionDto dto = service.open(1L, "VIDEO", "lecture.mp4", size);
+        UploadSession session = new UploadSession();
+        session.setUploadId(dto.getUploadId());
+        session.setCourseId(1L);
+        session.setType("VIDEO");
+        session.setFilename("lecture.mp4");
+        session.setTotalSize(size);
+        return session;
+    }
+
+    // Delivers count bytes from offset, then fails like a reset connection
+    private static InputStream dropsAfter(byte[] content, int offset, int count) {
+        return new InputStream() {
+            private int position = offset;
+
+            @Override
+            public int read() throws IOException {
+                if (position == offset + count) {
+                    throw new IOException("Connection reset");
+                }
+                return content[position++];
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.example.demo.client.ApiClient;
+import com.example.demo.client.ModelRateLimiter;
+import com.example.demo.dto.ChatStreamEventDto;
+import com.example.demo.dto.ProcessAiRequestDto;
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Course;
+import com.example.demo.model.Message;
+import com.example.demo.repository.ConversationSummaryRepository;
+import com.example.demo.repository.CourseRepository;
+import com.example.demo.repository.MessageRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+class ConversationWindowServiceTests {
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationSummaryRepository summaryRepository = mock(ConversationSummaryRepository.class);
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final ApiClient apiClient = mock(ApiClient.class);
+    // Four characters per token: every test message is 10 tokens
+    private final ConversationWindowService service = new ConversationWindowService(messageRepository,
+            summaryRepository, courseRepository, apiClient,
+            new ModelRateLimiter(false, 1, 1, "", 0, 4, 0, new SimpleMeterRegistry()),
+            "gemini", "gemini-2.0-flash", 35, 50, true, 20);
+
+    @Test
+    void sendsTheNewestTurnsWithinBudgetAndFoldsTheRestInTheBackground() {
+        Course course = course();
+        List<Message> messages = messages(8);
+        stubMessages(course, messages, 0);
+        when(summaryRepository.findById(1L)).thenReturn(Optional.empty());
+        when(summaryRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(apiClient.streamAi(any())).thenReturn(Flux.just(event("token", "Asked about"), event("done", "Asked about week 1.")));
+
+        ConversationWindowService.Window window = service.select(course);
+
+        // 6, 7 and 8 fit in 35 tokens; 6 is a model turn, so the window opens at 7
+        assertThat(window.getMessages()).extracting(Message::getId).containsExactly(7L, 8L);
+        assertThat(window.getTokens()).isEqualTo(20);
+        assertThat(window.getSummary()).isNull();
+
+        // The last 20 tokens stay verbatim, everything before them is summarised
+        ArgumentCaptor<ConversationSummary> saved = ArgumentCaptor.forClass(ConversationSummary.class);
+        verify(summaryRepository, timeout(2000)).save(saved.capture());
+        assertThat(saved.getValue().getCourseId()).isEqualTo(1L);
+        assertThat(saved.getValue().getThroughMessageId()).isEqualTo(6L);
+        assertThat(saved.getValue().getContent()).isEqualTo("Asked about week 1.");
+
+        ArgumentCaptor<ProcessAiRequestDto> request = ArgumentCaptor.forClass(ProcessAiRequestDto.class);
+        verify(apiClient).streamAi(request.capture());
+        String prompt = request.getValue().getConversationHistory().getMessages().get(0).getContent();
+        assertThat(prompt).contains("user: message 1 ").contains("model: message 6 ").doesNotContain("message 7");
+    }
+
+    @Test
+    void summarisedTurnsAreLeftOutAndNoRefreshIsNeededWhileTheRestFits() {
+        Course course = course();
+        stubMessages(course, messages(8), 6);
+        ConversationSummary summary = new ConversationSummary();
+        summary.setCourseId(1L);
+        summary.setContent("Asked about week 1.");
+        summary.setThroughMessageId(6L);
+        when(summaryRepository.findById(1L)).thenReturn(Optional.of(summary));
+
+        ConversationWindowService.Window window = service.select(course);
+
+        assertThat(window.getMessages()).extracting(Message::getId).containsExactly(7L, 8L);
+        assertThat(window.getSummary()).isEqualTo("Asked about week 1.");
+        verify(apiClient, never()).streamAi(any());
+    }
+
+    private Course course() {
+        Course course = new Course();
+        course.setId(1L);
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
+        return course;
+    }
+
+    private void stubMessages(Course course, List<Message> messages, long summarisedThrough) {
+        List<Message> newestFirst = new ArrayList<>(messages);
+        Collections.reverse(newestFirst);
+        when(messageRepository.findByCourseOrderByIdDesc(eq(course), any())).thenReturn(newestFirst);
+        when(messageRepository.findByCourseAndIdGreaterThanOrderByIdAsc(eq(course), anyLong(), any()))
+                .thenReturn(messages.subList((int) summarisedThrough, messages.size()));
+    }
+
+    // Odd ids are user turns, even ids model turns; each content is 40 characters
+    private static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Message message = new Message(i % 2 == 1 ? "user" : "model", String.format("%-40s", "message " + i));
+            message.setId((long) i);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static ChatStreamEventDto event(String name, String text) {
+        ChatStreamEventDto event = new ChatStreamEventDto();
+        event.setEvent(name);
+        event.setText(text);
+        return event;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+import com.example.demo.dto.CourseEventDto;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+class CourseEventHubTests {
+
+    private final CourseEventHub hub = new CourseEventHub(2);
+
+    @Test
+    void fansOutToSubscribersOfTheCourse() {
+        List<CourseEventDto> first = new CopyOnWriteArrayList<>();
+        List<CourseEventDto> second = new CopyOnWriteArrayList<>();
+        List<CourseEventDto> otherCourse = new CopyOnWriteArrayList<>();
+        Disposable a = hub.subscribe(1L).subscribe(first::add);
+        Disposable b = hub.subscribe(1L).subscribe(second::add);
+        Disposable c = hub.subscribe(2L).subscribe(otherCourse::add);
+
+        hub.publishTaskStatus(1L, "t1", "SUCCESS", "FLASH_CARDS");
+        hub.publishFileStatus(1L, "f1", "READY", "PDF");
+
+        assertThat(first).extracting(CourseEventDto::getId).containsExactly("t1", "f1");
+        assertThat(second).extracting(CourseEventDto::getType).containsExactly("task", "file");
+        assertThat(otherCourse).isEmpty();
+
+        a.dispose();
+        b.dispose();
+        c.dispose();
+        assertThat(hub.subscriberCount(1L)).isZero();
+    }
+
+    @Test
+    void slowSubscriberIsDroppedOnceItsBufferIsFull() {
+        BaseSubscriber<CourseEventDto> stalled = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // Never requests anything
+            }
+        };
+        hub.subscribe(3L).subscribe(stalled);
+
+        hub.publishFileStatus(3L, "f1", "PENDING", "PDF");
+        hub.publishFileStatus(3L, "f1", "READY", "PDF");
+        assertThat(hub.subscriberCount(3L)).isEqualTo(1);
+
+        hub.publishFileStatus(3L, "f2", "PENDING", "PDF");
+        assertThat(hub.subscriberCount(3L)).isZero();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import com.example.demo.client.ApiClient;
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.dto.VideoUriResponseDto;
+import com.example.demo.model.Course;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.model.UploadedFile;
+
+import reactor.core.publisher.Mono;
+
+class IngestServiceVideoTests {
+
+    private final ApiClient apiClient = mock(ApiClient.class);
+    private final UploadedFileService uploadedFileService = mock(UploadedFileService.class);
+    private final TaskCompletionEngine completionEngine = mock(TaskCompletionEngine.class);
+    private final TaskLeaseManager leaseManager = mock(TaskLeaseManager.class);
+
+    @Test
+    void persistsEachStageBeforeWaitingOnIt() {
+        UploadedFile file = file(null, null);
+        CompletableFuture<TaskResponseDto> uriTask = new CompletableFuture<>();
+        when(completionEngine.await(eq("upload-1"), eq(TaskTypes.VIDEO_UPLOAD), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(status("upload-1", "SUCCESS", Map.of("path", "/videos/a.mp4"))));
+        when(completionEngine.await(eq("uri-1"), eq(TaskTypes.VIDEO_URI), any(Duration.class))).thenReturn(uriTask);
+        VideoUriResponseDto uriResponse = new VideoUriResponseDto();
+        uriResponse.setTaskId("uri-1");
+        when(apiClient.getVideoUri(any())).thenReturn(Mono.just(uriResponse));
+
+        CompletableFuture<Void> chain = service().finishVideoIngestAsync(1L, "file-1", "upload-1");
+
+        // Parked on the URI stage: no thread is waiting, and the stage is on the row
+        assertThat(chain).isNotDone();
+        assertThat(file.getStage()).isEqualTo(TaskTypes.VIDEO_URI);
+        assertThat(file.getProcessingTaskId()).isEqualTo("uri-1");
+        assertThat(file.getStageDeadline()).isBefore(file.getDeadline());
+    }
+
+    @Test
+    void resumesAtThePersistedStage() {
+        UploadedFile file = file(TaskTypes.FLASH_CARDS, "cards-1");
+        when(uploadedFileService.findByStageIn(any())).thenReturn(List.of(file));
+        when(completionEngine.await(eq("cards-1"), eq(TaskTypes.FLASH_CARDS), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(status("cards-1", "SUCCESS", Map.of("flash_cards", List.of()))));
+
+        service().resumeVideoIngests();
+
+        verify(apiClient, never()).getVideoUri(any());
+        assertThat(file.getStage()).isEqualTo(IngestService.STAGE_DONE);
+    }
+
+    @Test
+    void leavesChainsClaimedByAnotherNodeAlone() {
+        UploadedFile file = file(TaskTypes.FLASH_CARDS, "cards-1");
+        when(uploadedFileService.findByStageIn(any())).thenReturn(List.of(file));
+        when(uploadedFileService.claimIngest(eq("file-1"), eq("node-a"), any())).thenReturn(false);
+
+        service().resumeVideoIngests();
+
+        verify(completionEngine, never()).await(anyString(), anyString(), any(Duration.class));
+        assertThat(file.getStage()).isEqualTo(TaskTypes.FLASH_CARDS);
+    }
+
+    @Test
+    void releasesTheLeaseWhenTheExecutorRejectsTheResume() {
+        UploadedFile file = file(TaskTypes.FLASH_CARDS, "cards-1");
+        when(uploadedFileService.findByStageIn(any())).thenReturn(List.of(file));
+
+        service(task -> {
+            throw new TaskRejectedException("Executor is shutting down");
+        }).resumeVideoIngests();
+
+        verify(uploadedFileService).releaseIngest("file-1", "node-a");
+        verify(completionEngine, never()).await(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void failsWithoutWaitingOncePastTheDeadline() {
+        UploadedFile file = file(TaskTypes.VIDEO_URI, "uri-1");
+        file.setDeadline(LocalDateTime.now().minusMinutes(1));
+        when(uploadedFileService.findByStageIn(any())).thenReturn(List.of(file));
+
+        service().resumeVideoIngests();
+
+        verify(completionEngine, never()).await(anyString(), anyString(), any(Duration.class));
+        verify(uploadedFileService).updateStatus("file-1", "FAILED");
+        assertThat(file.getStage()).isEqualTo(IngestService.STAGE_FAILED);
+    }
+
+    private IngestService service() {
+        return service(Runnable::run);
+    }
+
+    private IngestService service(TaskExecutor executor) {
+        when(leaseManager.getNodeId()).thenReturn("node-a");
+        when(leaseManager.getLeaseDuration()).thenReturn(Duration.ofSeconds(90));
+        return new IngestService(apiClient, mock(CourseService.class), uploadedFileService,
+                mock(CourseQuestionService.class), mock(MaterialDedupService.class), completionEngine, leaseManager,
+                executor, 60_000, 60_000, 60_000, 600_000);
+    }
+
+    // Backs the mocked service with a single row so stage transitions are observable
+    private UploadedFile file(String stage, String taskId) {
+        Course course = new Course();
+        course.setId(1L);
+        UploadedFile file = new UploadedFile();
+        file.setFileId("file-1");
+        file.setCourse(course);
+        file.setStage(stage);
+        file.setProcessingTaskId(taskId);
+        file.setStageDeadline(LocalDateTime.now().plusMinutes(1));
+        file.setDeadline(LocalDateTime.now().plusMinutes(10));
+        when(uploadedFileService.findById("file-1")).thenReturn(Optional.of(file));
+        when(uploadedFileService.claimIngest(eq("file-1"), eq("node-a"), any())).thenReturn(true);
+        doAnswer(inv -> {
+            file.setStage(inv.getArgument(1));
+            file.setProcessingTaskId(inv.getArgument(2));
+            file.setStageDeadline(inv.getArgument(3));
+            if (inv.getArgument(4) != null) {
+                file.setDeadline(inv.getArgument(4));
+            }
+            return null;
+        }).when(uploadedFileService).updateStage(eq("file-1"), anyString(), any(), any(), any());
+        return file;
+    }
+
+    private static TaskResponseDto status(String taskId, String status, Object result) {
+        TaskResponseDto dto = new TaskResponseDto();
+        dto.setTaskId(taskId);
+        dto.setStatus(status);
+        dto.setResult(result);
+        return dto;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.example.demo.model.FlashCard;
+import com.example.demo.model.UploadedFile;
+import com.example.demo.repository.FlashCardRepository;
+
+class MaterialDedupServiceTests {
+
+    // sha256("abc")
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    private final UploadedFileService uploadedFileService = mock(UploadedFileService.class);
+    private final FlashCardRepository flashCardRepository = mock(FlashCardRepository.class);
+    private final CourseService courseService = mock(CourseService.class);
+    private final MaterialDedupService service =
+            new MaterialDedupService(uploadedFileService, flashCardRepository, courseService);
+
+    @Test
+    void hashesTheUploadedBytes() {
+        assertThat(service.sha256(new MockMultipartFile("file", "notes.pdf", "application/pdf", "abc".getBytes())))
+                .isEqualTo(ABC_SHA256);
+    }
+
+    @Test
+    void onlyAReadyFileInTheSameCollectionShortCircuits() {
+        when(uploadedFileService.findReadyByContentHash(ABC_SHA256))
+                .thenReturn(List.of(file("f1", "course_1_materials"), file("f2", "course_2_materials")));
+
+        assertThat(service.findReadyCopy(ABC_SHA256, "course_2_materials")).get()
+                .extracting(UploadedFile::getFileId).isEqualTo("f2");
+        assertThat(service.findReadyCopy(ABC_SHA256, "course_3_materials")).isEmpty();
+    }
+
+    @Test
+    void flashCardsOfAnEarlierUploadAreCopiedOntoTheNewFile() {
+        UploadedFile source = file("f1", "course_1_materials");
+        UploadedFile target = file("f2", "course_2_materials");
+        when(uploadedFileService.findReadyByContentHash(ABC_SHA256)).thenReturn(List.of(source, target));
+        when(flashCardRepository.findByUploadedFileFileId("f1"))
+                .thenReturn(List.of(new FlashCard("Q1", "A1"), new FlashCard("Q2", "A2")));
+
+        assertThat(service.reuseFlashCards(2L, target)).isEqualTo(2);
+
+        ArgumentCaptor<FlashCard> copies = ArgumentCaptor.forClass(FlashCard.class);
+        verify(courseService, times(2)).addFlashCard(eq(2L), copies.capture());
+        assertThat(copies.getAllValues()).extracting(FlashCard::getQuestion).containsExactly("Q1", "Q2");
+        assertThat(copies.getAllValues()).allSatisfy(card -> assertThat(card.getUploadedFile()).isSameAs(target));
+    }
+
+    @Test
+    void nothingIsCopiedWithoutAnEarlierUpload() {
+        UploadedFile target = file("f2", "course_2_materials");
+        when(uploadedFileService.findReadyByContentHash(ABC_SHA256)).thenReturn(List.of(target));
+
+        assertThat(service.reuseFlashCards(2L, target)).isZero();
+        verify(courseService, never()).addFlashCard(any(), any());
+    }
+
+    private static UploadedFile file(String fileId, String collectionName) {
+        UploadedFile file = new UploadedFile();
+        file.setFileId(fileId);
+        file.setCollectionName(collectionName);
+        file.setStatus("READY");
+        file.setContentHash(ABC_SHA256);
+        return file;
+    }
+}
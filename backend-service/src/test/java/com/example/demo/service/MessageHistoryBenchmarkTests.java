@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.demo.model.Course;
+import com.example.demo.model.User;
+import com.example.demo.repository.CourseRepository;
+import com.example.demo.repository.MessageView;
+import com.example.demo.repository.UserRepository;
+
+/**
+ * History page fetches against a 100k-message course and a 1k-message one: with keyset paging
+ * over idx_messages_course_timestamp_id a page costs the same at any depth and any history size.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class MessageHistoryBenchmarkTests {
+
+    private static final int LARGE = 100_000;
+    private static final int SMALL = 1_000;
+    private static final int PAGE = 50;
+    private static final int ROUNDS = 200;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:message-history-benchmark;DB_CLOSE_DELAY=-1");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Test
+    void pageFetchTimeDoesNotGrowWithHistory() {
+        Course large = courseWithMessages("large-history", LARGE);
+        Course small = courseWithMessages("small-history", SMALL);
+
+        long largeMiddle = middleId(large, LARGE);
+        long smallMiddle = middleId(small, SMALL);
+
+        for (Course course : List.of(large, small)) {
+            long middle = course == large ? largeMiddle : smallMiddle;
+            // Warm-up: plan cache, JIT
+            for (int i = 0; i < ROUNDS; i++) {
+                messageService.getHistoryPage(course.getId(), middle, null, PAGE);
+            }
+        }
+
+        double[] largeMicros = {
+                median(() -> messageService.getHistoryPage(large.getId(), null, null, PAGE)),
+                median(() -> messageService.getHistoryPage(large.getId(), largeMiddle, null, PAGE)),
+                median(() -> messageService.getHistoryPage(large.getId(), null, largeMiddle, PAGE))
+        };
+        double[] smallMicros = {
+                median(() -> messageService.getHistoryPage(small.getId(), null, null, PAGE)),
+                median(() -> messageService.getHistoryPage(small.getId(), smallMiddle, null, PAGE)),
+                median(() -> messageService.getHistoryPage(small.getId(), null, smallMiddle, PAGE))
+        };
+        System.out.printf("History page of %d (newest, before middle, after middle), median us:%n", PAGE);
+        System.out.printf("  %,7d messages: %s%n", LARGE, Arrays.toString(largeMicros));
+        System.out.printf("  %,7d messages: %s%n", SMALL, Arrays.toString(smallMicros));
+
+        // 100x the history; a scan or sort over it would be two orders of magnitude slower
+        for (int i = 0; i < largeMicros.length; i++) {
+            assertThat(largeMicros[i]).isLessThan(smallMicros[i] * 3 + 500);
+        }
+
+        String plan = jdbcTemplate.queryForObject("explain select id from messages where course_id = " + large.getId()
+                + " and \"TIMESTAMP\" >= timestamp '2026-01-01 12:00:00' order by \"TIMESTAMP\", id fetch first 50 rows only",
+                String.class);
+        assertThat(plan).containsIgnoringCase("idx_messages_course_timestamp_id");
+    }
+
+    private Course courseWithMessages(String username, int count) {
+        User owner = userRepository.save(new User(username, "password", username + "@example.com"));
+        Course course = new Course();
+        course.setTitle("Course of " + username);
+        course.setOwner(owner);
+        course = courseRepository.save(course);
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] { i % 2 == 0 ? "user" : "model", "Message " + i + " of a long course conversation",
+                    Timestamp.valueOf(start.plusSeconds(i)), course.getId() });
+            if (rows.size() == 10_000 || i == count - 1) {
+                jdbcTemplate.batchUpdate("insert into messages (role, content, \"TIMESTAMP\", course_id) values (?, ?, ?, ?)",
+                        rows);
+                rows.clear();
+            }
+        }
+        return course;
+    }
+
+    private long middleId(Course course, int count) {
+        return jdbcTemplate.queryForObject("select id from messages where course_id = ? order by \"TIMESTAMP\", id"
+                + " offset ? rows fetch first 1 row only", Long.class, course.getId(), count / 2);
+    }
+
+    private static double median(Supplier<List<MessageView>> fetch) {
+        long[] micros = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long started = System.nanoTime();
+            assertThat(fetch.get()).hasSize(PAGE);
+            micros[i] = (System.nanoTime() - started) / 1_000;
+        }
+        Arrays.sort(micros);
+        return micros[ROUNDS / 2];
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.repository.TaskRepository;
+
+import reactor.core.publisher.Mono;
+
+class TaskCompletionEngineTests {
+
+    private final TaskStatusLookup statusLookup = mock(TaskStatusLookup.class);
+    private final TaskPollingPolicy pollingPolicy =
+            new TaskPollingPolicy(mock(TaskRepository.class), 20, 20, 5_000, 1.0, 0.0, 50);
+    private final TaskCompletionEngine engine =
+            new TaskCompletionEngine(statusLookup, pollingPolicy, 1, 1_000, false, 60_000);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void completesWhenTaskReachesTerminalState() throws Exception {
+        when(statusLookup.getTaskStatus("t1")).thenReturn(
+                Mono.just(status("t1", "PENDING")),
+                Mono.just(status("t1", "PENDING")),
+                Mono.just(status("t1", "SUCCESS")));
+
+        TaskResponseDto result = engine.await("t1").get(2, TimeUnit.SECONDS);
+
+        assertThat(result.getStatus()).isEqualTo("SUCCESS");
+        assertThat(engine.outstanding()).isZero();
+    }
+
+    @Test
+    void concurrentAwaitsShareOnePollSchedule() throws Exception {
+        when(statusLookup.getTaskStatus("t2")).thenReturn(Mono.just(status("t2", "FAILURE")));
+
+        CompletableFuture<TaskResponseDto> first = engine.await("t2");
+        CompletableFuture<TaskResponseDto> second = engine.await("t2");
+
+        assertThat(first.get(2, TimeUnit.SECONDS).getStatus()).isEqualTo("FAILURE");
+        assertThat(second.get(2, TimeUnit.SECONDS).getStatus()).isEqualTo("FAILURE");
+        verify(statusLookup, times(1)).getTaskStatus("t2");
+    }
+
+    @Test
+    void externalCompletionWinsOverPolling() throws Exception {
+        when(statusLookup.getTaskStatus("t3")).thenReturn(Mono.just(status("t3", "PENDING")));
+
+        CompletableFuture<TaskResponseDto> future = engine.await("t3");
+        assertThat(engine.complete("t3", status("t3", "SUCCESS"))).isTrue();
+
+        assertThat(future.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    void failsWithTimeoutAfterDeadline() {
+        when(statusLookup.getTaskStatus("t4")).thenReturn(Mono.just(status("t4", "PENDING")));
+
+        CompletableFuture<TaskResponseDto> future = engine.await("t4", Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> future.get(2, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(engine.waitFor("t4", Duration.ofMillis(50))).isNull();
+    }
+
+    @Test
+    void failsInsteadOfThrowingOnceTheSchedulerIsShutDown() {
+        engine.shutdown();
+
+        CompletableFuture<TaskResponseDto> future = engine.await("t5");
+
+        assertThatThrownBy(() -> future.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(engine.outstanding()).isZero();
+    }
+
+    private static TaskResponseDto status(String taskId, String state) {
+        TaskResponseDto dto = new TaskResponseDto();
+        dto.setTaskId(taskId);
+        dto.setStatus(state);
+        return dto;
+    }
+}
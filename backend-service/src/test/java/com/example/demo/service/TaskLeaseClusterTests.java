@@ -0,0 +1,127 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.model.Task;
+import com.example.demo.repository.TaskRepository;
+
+// Two backend instances against one shared in-memory H2 database
+class TaskLeaseClusterTests {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = start("node-a");
+        nodeB = start("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void eachPendingTaskIsOwnedByOneNodeAndRebalancesAfterLeaseExpiry() throws Exception {
+        TaskRepository repository = nodeA.getBean(TaskRepository.class);
+        TaskLeaseManager leasesA = nodeA.getBean(TaskLeaseManager.class);
+        TaskLeaseManager leasesB = nodeB.getBean(TaskLeaseManager.class);
+
+        // Racing sweeps: neither node takes more than 25 new tasks, and no task is owned twice
+        List<String> raced = save(repository, "race-", 40);
+        CompletableFuture<List<Task>> claimA = CompletableFuture.supplyAsync(() -> leasesA.claim(page(repository, raced)));
+        CompletableFuture<List<Task>> claimB = CompletableFuture.supplyAsync(() -> leasesB.claim(page(repository, raced)));
+        Set<String> racedByA = ids(claimA.get());
+        Set<String> racedByB = ids(claimB.get());
+        assertThat(racedByA.size()).isLessThanOrEqualTo(25);
+        assertThat(racedByB.size()).isLessThanOrEqualTo(25);
+        Set<String> both = new HashSet<>(racedByA);
+        both.retainAll(racedByB);
+        assertThat(both).isEmpty();
+
+        // The node that sweeps first no longer takes the whole backlog; each sweep reloads the page
+        List<String> taskIds = save(repository, "lease-", 40);
+        Set<String> ownedByA = ids(leasesA.claim(page(repository, taskIds)));
+        Set<String> ownedByB = ids(leasesB.claim(page(repository, taskIds)));
+        assertThat(ownedByA).hasSize(25);
+        assertThat(ownedByB).hasSize(15).doesNotContainAnyElementsOf(ownedByA);
+
+        // Renewing keeps ownership while the lease is live
+        assertThat(ids(leasesA.claim(page(repository, taskIds)))).isEqualTo(ownedByA);
+        assertThat(ids(leasesB.claim(page(repository, taskIds)))).isEqualTo(ownedByB);
+
+        // Node A stops renewing (crashed); once its leases expire B takes over everything
+        Thread.sleep(2_500);
+        assertThat(ids(leasesB.claim(page(repository, taskIds)))).hasSize(40);
+    }
+
+    @Test
+    void newClaimsAreCappedPerSweepAcrossPages() {
+        TaskRepository repository = nodeA.getBean(TaskRepository.class);
+        TaskLeaseManager leasesA = nodeA.getBean(TaskLeaseManager.class);
+        TaskLeaseManager leasesB = nodeB.getBean(TaskLeaseManager.class);
+        List<String> taskIds = save(repository, "paged-", 60);
+
+        // One sweep over three pages of 20 shares a single budget of 25
+        assertThat(sweep(leasesA, repository, taskIds)).hasSize(25);
+        // The next sweep renews those and takes 25 more; the last 10 are left for node B
+        Set<String> ownedByA = sweep(leasesA, repository, taskIds);
+        assertThat(ownedByA).hasSize(50);
+        assertThat(sweep(leasesB, repository, taskIds)).hasSize(10).doesNotContainAnyElementsOf(ownedByA);
+    }
+
+    // Claims page by page the way TaskService.checkPendingTasks does
+    private static Set<String> sweep(TaskLeaseManager leases, TaskRepository repository, List<String> taskIds) {
+        AtomicInteger budget = leases.newClaimBudget();
+        Set<String> owned = new HashSet<>();
+        for (int from = 0; from < taskIds.size(); from += 20) {
+            owned.addAll(ids(leases.claim(page(repository, taskIds.subList(from, from + 20)), budget)));
+        }
+        return owned;
+    }
+
+    private static List<String> save(TaskRepository repository, String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> repository.save(new Task(prefix + i, "PENDING")).getTaskId())
+                .collect(Collectors.toList());
+    }
+
+    // What a sweep sees: the current rows
+    private static List<Task> page(TaskRepository repository, List<String> taskIds) {
+        return repository.findAllById(taskIds);
+    }
+
+    private static Set<String> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getTaskId).collect(Collectors.toSet());
+    }
+
+    // Command line arguments: default properties would lose to the test application.properties, leaving
+    // both nodes on the shared test database where other cached contexts sweep (and claim) tasks too
+    private static ConfigurableApplicationContext start(String nodeId) {
+        return new SpringApplicationBuilder(DemoApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:lease-cluster;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--app.tasks.sweep.initial-delay-ms=3600000",
+                "--app.tasks.lease.node-id=" + nodeId,
+                "--app.tasks.lease.duration-ms=2000",
+                "--app.tasks.lease.max-new-claims=25");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.Task;
+import com.example.demo.model.TaskTypes;
+import com.example.demo.repository.TaskRepository;
+
+class TaskPollingPolicyTests {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TaskPollingPolicy policy = new TaskPollingPolicy(taskRepository, 5_000, 60_000, 3_600_000, 2.0, 0.0, 50);
+
+    @Test
+    void backsOffExponentiallyUpToTheTypeCap() {
+        assertThat(policy.nextDelayMs(TaskTypes.CHAT, 0, 0)).isEqualTo(500);
+        assertThat(policy.nextDelayMs(TaskTypes.CHAT, 1, 0)).isEqualTo(1_000);
+        assertThat(policy.nextDelayMs(TaskTypes.CHAT, 10, 0)).isEqualTo(5_000);
+        assertThat(policy.nextDelayMs(null, 0, 0)).isEqualTo(5_000);
+    }
+
+    @Test
+    void learnedDurationDefersEarlyChecks() {
+        LocalDateTime end = LocalDateTime.now();
+        when(taskRepository.findTop50ByTaskTypeAndStatusAndCompletedAtIsNotNullOrderByCompletedAtDesc(anyString(), eq("SUCCESS")))
+                .thenReturn(List.of());
+        when(taskRepository.findTop50ByTaskTypeAndStatusAndCompletedAtIsNotNullOrderByCompletedAtDesc(TaskTypes.VIDEO_URI, "SUCCESS"))
+                .thenReturn(List.of(finished(end.minusMinutes(10), end), finished(end.minusMinutes(12), end),
+                        finished(end.minusMinutes(11), end)));
+        policy.refreshHistory();
+
+        assertThat(policy.expectedDurationMs(TaskTypes.VIDEO_URI)).isEqualTo(11 * 60_000L);
+        // First check shortly before the typical finish instead of every 10 s from the start
+        assertThat(policy.nextDelayMs(TaskTypes.VIDEO_URI, 0, 0)).isEqualTo((long) (11 * 60_000L * 0.8));
+        // Past the expected duration it falls back to the normal backoff
+        assertThat(policy.nextDelayMs(TaskTypes.VIDEO_URI, 1, 11 * 60_000L)).isEqualTo(20_000);
+    }
+
+    @Test
+    void jitterStaysWithinBounds() {
+        TaskPollingPolicy jittered = new TaskPollingPolicy(taskRepository, 1_000, 60_000, 3_600_000, 1.0, 0.2, 50);
+        for (int i = 0; i < 100; i++) {
+            assertThat(jittered.nextDelayMs(null, 0, 0)).isBetween(800L, 1_200L);
+        }
+    }
+
+    @Test
+    void sweepSkipsTasksThatAreNotDueYet() {
+        policy.observe(TaskTypes.PARSE_INGEST, 120_000);
+        Task task = new Task("p1", "PENDING", TaskTypes.PARSE_INGEST, null);
+        task.setCreatedAt(LocalDateTime.now());
+        long now = System.currentTimeMillis();
+
+        assertThat(policy.isDueForSweep(task, now)).isFalse();
+        assertThat(policy.isDueForSweep(task, now + 100_000)).isTrue();
+        assertThat(policy.isDueForSweep(task, now + 100_001)).isFalse();
+    }
+
+    private static Task finished(LocalDateTime createdAt, LocalDateTime completedAt) {
+        Task task = new Task("t-" + createdAt, "SUCCESS", TaskTypes.VIDEO_URI, null);
+        task.setCreatedAt(createdAt);
+        task.setCompletedAt(completedAt);
+        return task;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.model.Task;
+import com.example.demo.repository.TaskRepository;
+
+import reactor.core.publisher.Mono;
+
+class TaskServiceSweepTests {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TaskStatusLookup statusLookup = mock(TaskStatusLookup.class);
+    private final TaskLeaseManager leaseManager = mock(TaskLeaseManager.class);
+
+    @Test
+    void pagesOldestFirstWithBoundedConcurrency() {
+        List<Task> firstPage = List.of(task("a", 1), task("b", 2), task("c", 3));
+        List<Task> secondPage = List.of(task("d", 4), task("e", 5));
+        when(taskRepository.findByStatusOrderByCreatedAtAscTaskIdAsc(eq("PENDING"), any(Pageable.class)))
+                .thenReturn(firstPage);
+        when(taskRepository.findPageByStatusAfter(eq("PENDING"), eq(firstPage.get(2).getCreatedAt()), eq("c"),
+                any(Pageable.class))).thenReturn(secondPage);
+        when(taskRepository.findById(anyString())).thenAnswer(inv -> Optional.of(new Task(inv.getArgument(0), "PENDING")));
+        when(taskRepository.save(any(Task.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ConcurrentLinkedQueue<String> started = new ConcurrentLinkedQueue<>();
+        when(statusLookup.getTaskStatus(anyString())).thenAnswer(inv -> {
+            String taskId = inv.getArgument(0);
+            return Mono.defer(() -> {
+                        started.add(taskId);
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        return Mono.delay(Duration.ofMillis(50)).thenReturn(status(taskId, "FAILURE"));
+                    })
+                    .doOnTerminate(inFlight::decrementAndGet);
+        });
+
+        service(2, 5_000).checkPendingTasks();
+
+        assertThat(started).containsExactly("a", "b", "c", "d", "e");
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void sweepStopsAtDeadline() {
+        when(taskRepository.findByStatusOrderByCreatedAtAscTaskIdAsc(eq("PENDING"), any(Pageable.class)))
+                .thenReturn(List.of(task("slow", 1)));
+        when(statusLookup.getTaskStatus("slow")).thenReturn(Mono.never());
+
+        long start = System.currentTimeMillis();
+        service(4, 200).checkPendingTasks();
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(2_000);
+    }
+
+    private TaskService service(int maxConcurrency, long deadlineMs) {
+        // Single node: owns everything it is offered
+        when(leaseManager.claim(any(), any())).thenAnswer(inv -> inv.getArgument(0));
+        return new TaskService(taskRepository, statusLookup, mock(CourseService.class),
+                mock(TaskCompletionEngine.class), mock(CourseEventHub.class), leaseManager,
+                new TaskPollingPolicy(taskRepository, 0, 0, 86_400_000, 1.0, 0.0, 50), maxConcurrency, 10_000, deadlineMs, 3);
+    }
+
+    private static Task task(String taskId, int order) {
+        Task task = new Task(taskId, "PENDING");
+        task.setCreatedAt(LocalDateTime.now().minusMinutes(60 - order));
+        return task;
+    }
+
+    private static TaskResponseDto status(String taskId, String state) {
+        TaskResponseDto dto = new TaskResponseDto();
+        dto.setTaskId(taskId);
+        dto.setStatus(state);
+        return dto;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.client.TaskStatusBatcher;
+import com.example.demo.dto.TaskResponseDto;
+import com.example.demo.model.Task;
+import com.example.demo.repository.TaskRepository;
+
+import reactor.core.publisher.Mono;
+
+class TaskStatusLookupTests {
+
+    private final TaskStatusBatcher statusBatcher = mock(TaskStatusBatcher.class);
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TaskStatusLookup lookup = new TaskStatusLookup(statusBatcher, taskRepository, 2);
+
+    @Test
+    void concurrentLookupsShareOneUpstreamCall() {
+        when(taskRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(statusBatcher.getTaskStatus("t1"))
+                .thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(status("t1", "PENDING")));
+
+        Mono<TaskResponseDto> first = lookup.getTaskStatus("t1");
+        Mono<TaskResponseDto> second = lookup.getTaskStatus("t1");
+        var both = Mono.zip(first, second).block(Duration.ofSeconds(5));
+
+        assertThat(both.getT1().getStatus()).isEqualTo("PENDING");
+        assertThat(both.getT2().getStatus()).isEqualTo("PENDING");
+        verify(statusBatcher, times(1)).getTaskStatus("t1");
+    }
+
+    @Test
+    void terminalResultsAreServedFromCache() {
+        when(taskRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(statusBatcher.getTaskStatus("t2")).thenReturn(Mono.just(status("t2", "SUCCESS")));
+
+        lookup.getTaskStatus("t2").block();
+        TaskResponseDto again = lookup.getTaskStatus("t2").block();
+
+        assertThat(again.getStatus()).isEqualTo("SUCCESS");
+        verify(statusBatcher, times(1)).getTaskStatus("t2");
+    }
+
+    @Test
+    void finishedTasksAreReadThroughFromTaskTable() {
+        Task task = new Task("t3", "FAILURE");
+        task.setResult("{\"error\":\"boom\"}");
+        when(taskRepository.findById("t3")).thenReturn(Optional.of(task));
+
+        TaskResponseDto status = lookup.getTaskStatus("t3").block();
+
+        assertThat(status.getStatus()).isEqualTo("FAILURE");
+        assertThat(status.getResult()).isInstanceOf(Map.class);
+        verify(statusBatcher, never()).getTaskStatus("t3");
+    }
+
+    @Test
+    void cacheIsBounded() {
+        lookup.record(status("a", "SUCCESS"));
+        lookup.record(status("b", "SUCCESS"));
+        lookup.record(status("c", "FAILURE"));
+        lookup.record(status("d", "PENDING"));
+
+        assertThat(lookup.cachedEntries()).isEqualTo(2);
+    }
+
+    private static TaskResponseDto status(String taskId, String state) {
+        TaskResponseDto dto = new TaskResponseDto();
+        dto.setTaskId(taskId);
+        dto.setStatus(state);
+        return dto;
+    }
+}
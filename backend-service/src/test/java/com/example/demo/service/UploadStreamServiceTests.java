@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.dto.CourseEventDto;
+
+import reactor.core.Disposable;
+
+class UploadStreamServiceTests {
+
+    private final CourseEventHub hub = new CourseEventHub(64);
+
+    @Test
+    void readsInFixedSizeBuffersAndReportsProgress() {
+        UploadStreamService service = new UploadStreamService(hub, 1024, 1 << 20, 4096);
+        List<CourseEventDto> events = new CopyOnWriteArrayList<>();
+        Disposable subscription = hub.subscribe(1L).subscribe(events::add);
+
+        byte[] body = new byte[10_000];
+        MessageDigest digest = MaterialDedupService.newDigest();
+        List<Integer> sizes = service.read(1L, "u1", () -> new ByteArrayInputStream(body), body.length, digest)
+                .map(buffer -> {
+                    int size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return size;
+                })
+                .collectList()
+                .block();
+
+        assertThat(sizes).hasSize(10).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(1024));
+        assertThat(sizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(body.length);
+        assertThat(events).extracting(CourseEventDto::getStatus)
+                .containsExactly("UPLOADING", "UPLOADING", "UPLOADING", "UPLOADED");
+        assertThat(events.get(events.size() - 1).getDetail()).isEqualTo("10000/10000");
+        assertThat(MaterialDedupService.hex(digest))
+                .isEqualTo(HexFormat.of().formatHex(MaterialDedupService.newDigest().digest(body)));
+        subscription.dispose();
+    }
+
+    @Test
+    void bodiesOverTheLimitFailWith413() {
+        UploadStreamService service = new UploadStreamService(hub, 1024, 4096, 1 << 20);
+        List<CourseEventDto> events = new CopyOnWriteArrayList<>();
+        Disposable subscription = hub.subscribe(2L).subscribe(events::add);
+
+        // Chunked requests report no length, so the limit is enforced while reading
+        byte[] body = new byte[8192];
+        assertThatThrownBy(() -> service.read(2L, "u2", () -> new ByteArrayInputStream(body), -1,
+                                MaterialDedupService.newDigest())
+                        .doOnNext(DataBufferUtils::release)
+                        .blockLast())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+        assertThat(events).extracting(CourseEventDto::getStatus).endsWith("FAILED");
+
+        assertThatThrownBy(() -> service.read(2L, "u3", () -> new ByteArrayInputStream(body), body.length,
+                                MaterialDedupService.newDigest())
+                        .map(DataBuffer::readableByteCount)
+                        .blockLast())
+                .isInstanceOf(ResponseStatusException.class);
+        subscription.dispose();
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.demo.support;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * Minimal local stand-in for the Python service's task status, chat (polled and streamed) and upload APIs. Runs on a
+ * random port and records how it was called so tests can assert on round trips. Faults can be
+ * injected per route: the next calls answer with an error status or never answer at all.
+ */
+public class PythonServiceStub implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private final AtomicInteger taskCounter = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile List<String> streamedTokens = List.of("Week one ", "covers ", "the basics.");
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger uploads = new AtomicInteger();
+    private final AtomicReference<String> lastUpload = new AtomicReference<>();
+    private final Map<String, Fault> faults = new ConcurrentHashMap<>();
+    private final AtomicReference<String> lastStatusProtocol = new AtomicReference<>();
+    private final DisposableServer server;
+
+    public PythonServiceStub() {
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                // Plain HTTP/1.1, or h2c for clients that ask to upgrade
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(routes -> routes
+                        .get("/api/task-status/{taskId}", (request, response) -> {
+                            singleRequests.incrementAndGet();
+                            lastStatusProtocol.set(request.version().text());
+                            return faulted("/api/task-status", response, () -> response
+                                    .header("Content-Type", "application/json")
+                                    .sendString(Mono.just(statusJson(request.param("taskId")))));
+                        })
+                        .post("/api/task-statuses", (request, response) -> faulted("/api/task-statuses", response,
+                                () -> response.header("Content-Type", "application/json")
+                                        .sendString(request.receive().aggregate().asString().map(this::batchJson))))
+                        .post("/api/process-ai", (request, response) -> faulted("/api/process-ai", response,
+                                () -> response.header("Content-Type", "application/json")
+                                        .sendString(request.receive().aggregate().then(delayed("{\"task_id\":\"chat-"
+                                                + taskCounter.incrementAndGet() + "\",\"status\":\"PENDING\"}")))))
+                        .post("/api/process-ai/stream", (request, response) -> faulted("/api/process-ai/stream",
+                                response, () -> response.header("Content-Type", "text/event-stream")
+                                        .sendString(request.receive().aggregate().thenMany(streamedReply()))))
+                        .post("/api/upload/", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(request.receive().aggregate().asString(StandardCharsets.ISO_8859_1)
+                                        .doOnNext(body -> {
+                                            uploads.incrementAndGet();
+                                            lastUpload.set(body);
+                                        })
+                                        .then(delayed(uploadJson(taskCounter.incrementAndGet()))))))
+                .bindNow();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    // Tasks default to SUCCESS unless given another state here
+    public void setState(String taskId, String state) {
+        states.put(taskId, state);
+    }
+
+    // Simulated processing time of the chat and upload endpoints
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    // The next {@code count} calls to the route answer with {@code status} and an empty body
+    public void failNext(String route, int count, int status) {
+        faults.put(route, new Fault(count, status));
+    }
+
+    // The next {@code count} calls to the route are accepted but never answered
+    public void hangNext(String route, int count) {
+        faults.put(route, new Fault(count, 0));
+    }
+
+    // Text fragments /api/process-ai/stream sends, one per latency period, before the "done" event
+    public void setStreamedTokens(List<String> tokens) {
+        this.streamedTokens = tokens;
+    }
+
+    public int singleRequests() {
+        return singleRequests.get();
+    }
+
+    // HTTP version of the latest single task status request, e.g. "HTTP/1.1" or "HTTP/2.0"
+    public String lastStatusProtocol() {
+        return lastStatusProtocol.get();
+    }
+
+    public List<Integer> batchSizes() {
+        return batchSizes;
+    }
+
+    public int uploads() {
+        return uploads.get();
+    }
+
+    // Raw multipart body of the latest /api/upload/ call, one char per byte
+    public String lastUpload() {
+        return lastUpload.get();
+    }
+
+    private Publisher<Void> faulted(String route, HttpServerResponse response, Supplier<Publisher<Void>> normal) {
+        Fault fault = faults.get(route);
+        if (fault == null || fault.remaining.getAndDecrement() <= 0) {
+            return normal.get();
+        }
+        if (fault.status == 0) {
+            return Mono.never();
+        }
+        return response.status(fault.status).send();
+    }
+
+    private Flux<String> streamedReply() {
+        List<String> tokens = streamedTokens;
+        Flux<String> events = Flux.fromIterable(tokens)
+                .map(token -> "event: token\ndata: " + textJson(token) + "\n\n");
+        if (!latency.isZero()) {
+            events = events.delayElements(latency);
+        }
+        return events.concatWithValues("event: done\ndata: " + textJson(String.join("", tokens)) + "\n\n");
+    }
+
+    private String textJson(String text) {
+        return objectMapper.createObjectNode().put("text", text).toString();
+    }
+
+    private String statusJson(String taskId) {
+        // Parse/summarise/ingest results carry the (here empty) generated flash cards
+        String result = taskId.startsWith("parse-") ? "{\"flash_cards\":[]}" : "null";
+        return "{\"task_id\":\"" + taskId + "\",\"status\":\"" + states.getOrDefault(taskId, "SUCCESS")
+                + "\",\"result\":" + result + "}";
+    }
+
+    // Documents get a parse/summarise/ingest follow-up task, as from the real service
+    private static String uploadJson(int n) {
+        return "{\"task_id\":\"upload-" + n + "\",\"file_id\":\"file-" + n
+                + "\",\"parse_summarise_ingest_task_id\":\"parse-" + n + "\"}";
+    }
+
+    private Mono<String> delayed(String json) {
+        return latency.isZero() ? Mono.just(json) : Mono.delay(latency).thenReturn(json);
+    }
+
+    private String batchJson(String body) {
+        try {
+            JsonNode ids = objectMapper.readTree(body).path("task_ids");
+            batchSizes.add(ids.size());
+            StringBuilder json = new StringBuilder("{\"tasks\":[");
+            for (int i = 0; i < ids.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(statusJson(ids.get(i).asText()));
+            }
+            return json.append("]}").toString();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static final class Fault {
+        private final AtomicInteger remaining;
+        private final int status;
+
+        private Fault(int count, int status) {
+            this.remaining = new AtomicInteger(count);
+            this.status = status;
+        }
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
@@ -52,8 +52,12 @@ const ChatInterface = () => {
     setError('');
     
     try {
+      // The response carries only this turn's messages; anything newer than what we hold is appended
       const response = await sendMessage(id, newMessage);
-      setMessages(response.data);
+      setMessages(prev => {
+        const lastId = prev.length ? prev[prev.length - 1].id : 0;
+        return [...prev, ...response.data.messages.filter(m => m.id > lastId)];
+      });
       setNewMessage('');
     } catch (err) {
       setError('Failed to send message');
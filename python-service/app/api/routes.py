@@ -1,9 +1,11 @@
 from fastapi import FastAPI, APIRouter, UploadFile, Form, HTTPException, Response
+from fastapi.responses import StreamingResponse
 from pydantic import ValidationError
 from celery.result import AsyncResult
 from app.models.request import AIRequest
 from app.models.video import Video
 from app.services.flash_card_service import create_flash_cards_service, evaluate_flash_card_answer
+from app.services.provider_service import stream_ai_response
 from celery_worker import (
     process_ai_request_task,
     upload_file_task,
@@ -16,7 +18,7 @@ from celery_worker import (
     export_moodle_quiz
     )  
 import uuid
-from app.models.request import UriRequest
+from app.models.request import UriRequest, TaskStatusBatchRequest
 from app.models.enums import UriProvider, FileTypeFastAPI
 # from app.utils.upload_video_dependency_util import video_json_dependency
 from typing import Optional
@@ -33,14 +35,44 @@ async def process_ai_request(request: AIRequest):
     task = process_ai_request_task.apply_async(args=[request.model_dump()])  # Call apply_async here
     return {"task_id": task.id, "status": "PENDING"}
 
+@router.post("/process-ai/stream")
+def stream_ai_request(request: AIRequest):
+    """API endpoint streaming the reply as server-sent events while the model generates it:
+    "token" events carry text fragments, then one "done" event carries the whole reply,
+    or an "error" event says why it stopped"""
+    def events():
+        reply = []
+        try:
+            for text in stream_ai_response(request):
+                reply.append(text)
+                yield _sse("token", {"text": text})
+            yield _sse("done", {"text": "".join(reply)})
+        except Exception as e:
+            yield _sse("error", {"text": str(e)})
+
+    return StreamingResponse(events(), media_type="text/event-stream",
+                             headers={"Cache-Control": "no-cache", "X-Accel-Buffering": "no"})
+
+def _sse(event: str, data: dict) -> str:
+    return f"event: {event}\ndata: {json.dumps(data)}\n\n"
+
 @router.get("/task-status/{task_id}")
 async def get_task_status(task_id: str):
     """Check the status of a Celery task"""
     task_result = AsyncResult(task_id)  # Directly check status without a Celery task
     return {"task_id": task_id, "status": task_result.status, "result": task_result.result}
 
+@router.post("/task-statuses")
+async def get_task_statuses(request: TaskStatusBatchRequest):
+    """Check the status of several Celery tasks in one round trip"""
+    tasks = []
+    for task_id in dict.fromkeys(request.task_ids):
+        task_result = AsyncResult(task_id)
+        tasks.append({"task_id": task_id, "status": task_result.status, "result": task_result.result})
+    return {"tasks": tasks}
+
 @router.post("/upload/")
-async def upload_file(video: Optional[str] = Form(None), file: Optional[UploadFile] = None, api_key: Optional[str] = None, collection_name: Optional[str] = Form(None)):
+async def upload_file(video: Optional[str] = Form(None), file: Optional[UploadFile] = None, api_key: Optional[str] = None, collection_name: Optional[str] = Form(None), generate_flash_cards: bool = Form(True)):
     """
     Endpoint to handle file uploads
     
@@ -50,6 +82,8 @@ async def upload_file(video: Optional[str] = Form(None), file: Optional[UploadFi
 
         file (UploadFile): Uploaded file object
 
+        generate_flash_cards (bool): Set to false for a re-upload whose flash cards the caller already has; the file is still parsed and ingested.
+
         video (Optional[Video]): Video object SPECIFICALLY WILL ONLY BE USED TO GENERATE FLASH CARDS!! SO ONLY EITHER UPLOAD FILE OR ADD VIDEO, NOT BOTH!
         In SwaggerUI at localhost:8000/docs, this will be shown as a string upload, but add a valid Video object in JSON format.
         Example:
@@ -85,7 +119,7 @@ async def upload_file(video: Optional[str] = Form(None), file: Optional[UploadFi
             or (file.content_type == FileTypeFastAPI.POWERPOINT and file.filename.lower().endswith(".pptx"))):
             # If a course-level collection_name is provided, ingest into that; else default to file_id
             target_collection = collection_name if collection_name else file_id
-            parse_summarise_ingest_task = parse_summarize_ingest_pdf_task.apply_async(args=[file_id, file.filename, file_content, api_key, file.content_type, target_collection])
+            parse_summarise_ingest_task = parse_summarize_ingest_pdf_task.apply_async(args=[file_id, file.filename, file_content, api_key, file.content_type, target_collection, generate_flash_cards])
             return_obj["parse_summarise_ingest_task_id"] = parse_summarise_ingest_task.id
         
         return return_obj
@@ -48,6 +48,10 @@ class Settings(BaseSettings):
     QDRANT_HOST: str = os.environ.get("QDRANT_HOST", "localhost")
     QDRANT_PORT: int = os.environ.get("QDRANT_PORT", 6333)
     
+    # Completion callback to the backend; "{task_id}" is substituted, empty disables it
+    TASK_CALLBACK_URL: str = os.environ.get("TASK_CALLBACK_URL", "")
+    TASK_CALLBACK_SECRET: str = os.environ.get("TASK_CALLBACK_SECRET", "")
+
     # History settings
     MAX_HISTORY_LENGTH: int = 10
     
@@ -1,5 +1,5 @@
 from pydantic import BaseModel, Field
-from typing import Optional
+from typing import List, Optional
 from app.models.enums import ModelProvider, UriProvider
 from app.models.video import Video
 from app.models.conversation import ConversationHistory
@@ -26,3 +26,8 @@ class UriRequest(BaseModel):
     video: Video = None
     uri_provider: UriProvider = None
     api_key:str = Field(default= None, description="API key if needed with an URI provider (needed with Gemini).", example="123456")
+
+
+class TaskStatusBatchRequest(BaseModel):
+    """Schema for looking up several Celery task states in one call"""
+    task_ids: List[str] = Field(default_factory=list, example=["3f1c...", "9a2b..."])
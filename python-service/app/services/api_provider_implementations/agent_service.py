@@ -2,11 +2,13 @@ from app.agents.graphs.conversation_graph import ConversationGraph
 from app.models.request import AIRequest
 from app.models.conversation import Message
 from langchain_google_genai import ChatGoogleGenerativeAI
+from langchain_core.messages import AIMessageChunk
 from app.utils.conversation_util import convert_conversation_to_agent_format
 from langchain_google_genai.embeddings import GoogleGenerativeAIEmbeddings
 from qdrant_client import QdrantClient
 from app.core.config_settings import get_settings
 import os
+from typing import Iterator
 
 settings = get_settings()
 
@@ -15,6 +17,34 @@ class AgentService:
     @staticmethod
     def process_agent(request: AIRequest):
         """Handles the agent process based on the selected model provider."""
+        graph_obj = AgentService._build_graph(request)
+
+        conversation_list = convert_conversation_to_agent_format(request)
+        
+        # Execute the graph with the provided request data
+        response = graph_obj.graph.invoke(conversation_list)
+        ai_response = response['messages'][-1].content
+
+        new_message = Message(role="model", content=ai_response)
+        updated_history = request.conversation_history.messages + [new_message]
+        
+        return {"conversation_history": [msg.model_dump() for msg in updated_history]}
+
+    @staticmethod
+    def stream_agent(request: AIRequest) -> Iterator[str]:
+        """Runs the same graph as process_agent, yielding the reply's text as the model generates it.
+        Tool calls and tool results are not yielded; only text from the llm node is."""
+        graph_obj = AgentService._build_graph(request)
+        conversation_list = convert_conversation_to_agent_format(request)
+
+        for chunk, metadata in graph_obj.graph.stream(conversation_list, stream_mode="messages"):
+            if metadata.get("langgraph_node") != "llm" or not isinstance(chunk, AIMessageChunk):
+                continue
+            if isinstance(chunk.content, str) and chunk.content:
+                yield chunk.content
+
+    @staticmethod
+    def _build_graph(request: AIRequest) -> ConversationGraph:
         # Create a conversation graph
         api_key = request.api_key if request.api_key else os.environ.get("GEMINI_API_KEY")
 
@@ -32,14 +62,4 @@ class AgentService:
             pdf_collection_name=request.pdf_collection_name,
             video=request.video,
         )
-
-        conversation_list = convert_conversation_to_agent_format(request)
-        
-        # Execute the graph with the provided request data
-        response = graph_obj.graph.invoke(conversation_list)
-        ai_response = response['messages'][-1].content
-
-        new_message = Message(role="model", content=ai_response)
-        updated_history = request.conversation_history.messages + [new_message]
-        
-        return {"conversation_history": [msg.model_dump() for msg in updated_history]}
\ No newline at end of file
+        return graph_obj
\ No newline at end of file
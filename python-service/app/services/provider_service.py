@@ -15,6 +15,18 @@ def get_ai_response(request_data: AIRequest):
 
     return service.process_agent(request_data)
 
+def stream_ai_response(request_data: AIRequest):
+    """Streams the reply's text fragments for the selected model provider as they are generated."""
+
+    model_type = request_data.model_provider
+
+    if model_type == ModelProvider.GEMINI.value:
+        service = AgentService()
+    else:
+        raise ValueError(f"Unsupported model type: {model_type}")
+
+    return service.stream_agent(request_data)
+
 def upload_file_to_gemini(request: UriRequest):
     """Uploads a file to Gemini based on the URI provider."""
     
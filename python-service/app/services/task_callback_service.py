@@ -0,0 +1,44 @@
+import hashlib
+import hmac
+import json
+import logging
+import time
+import urllib.request
+from typing import Any
+
+from app.core.config_settings import get_settings
+
+settings = get_settings()
+logger = logging.getLogger(__name__)
+
+
+def sign_payload(secret: str, timestamp: str, body: bytes) -> str:
+    """Hex HMAC-SHA256 over "<timestamp>.<body>", matching TaskCallbackVerifier on the backend."""
+    message = timestamp.encode("utf-8") + b"." + body
+    return hmac.new(secret.encode("utf-8"), message, hashlib.sha256).hexdigest()
+
+
+def notify_task_completion(task_id: str, status: str, result: Any = None) -> bool:
+    """Push a finished task to the backend so it does not have to poll for it.
+    Failures are only logged; the backend still polls as a safety net."""
+    if not settings.TASK_CALLBACK_URL or not settings.TASK_CALLBACK_SECRET:
+        return False
+
+    body = json.dumps({"task_id": task_id, "status": status, "result": result}, default=str).encode("utf-8")
+    timestamp = str(int(time.time()))
+    request = urllib.request.Request(
+        settings.TASK_CALLBACK_URL.format(task_id=task_id),
+        data=body,
+        method="POST",
+        headers={
+            "Content-Type": "application/json",
+            "X-Callback-Timestamp": timestamp,
+            "X-Callback-Signature": sign_payload(settings.TASK_CALLBACK_SECRET, timestamp, body),
+        },
+    )
+    try:
+        with urllib.request.urlopen(request, timeout=5) as response:
+            return 200 <= response.status < 300
+    except Exception as e:
+        logger.warning("Task callback for %s failed: %s", task_id, e)
+        return False
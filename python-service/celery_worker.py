@@ -19,9 +19,19 @@ from app.utils.time_util import convert_seconds_to_minutes
 import time
 from typing import Optional
 from app.services.moodle_service import MoodleService
+from app.services.task_callback_service import notify_task_completion
+from celery.signals import task_postrun
 
 settings = get_settings()
 
+@task_postrun.connect
+def push_task_completion(task_id=None, task=None, retval=None, state=None, **kwargs):
+    """Notify the backend as soon as a task finishes instead of waiting for its next poll"""
+    if state not in ("SUCCESS", "FAILURE"):
+        return
+    result = retval if state == "SUCCESS" else str(retval)
+    notify_task_completion(task_id, state, result)
+
 @celery_app.task(name="process_ai_request")
 def process_ai_request_task(request_data: dict):
     """Celery task to process AI requests asynchronously"""
@@ -71,7 +81,8 @@ def parse_summarize_ingest_pdf_task(file_id: str,
                                     file_content: bytes,
                                     api_key: Optional[str] = None,
                                     file_type: Optional[str] = None,
-                                    target_collection_name: Optional[str] = None):
+                                    target_collection_name: Optional[str] = None,
+                                    generate_flash_cards: bool = True):
     """
     Task to parse, summarize and ingest PDF files.
     
@@ -125,6 +136,8 @@ def parse_summarize_ingest_pdf_task(file_id: str,
                                         file_id=file_id,
                                         file_name=file_name,
                                         )
+    if not generate_flash_cards:
+        return {"qdrant_collection_name": collection_name, "flash_cards": []}
     flash_cards = create_flash_cards_service(collection_name=collection_name, api_key=api_key)
     return {"qdrant_collection_name": collection_name, "flash_cards": flash_cards.to_json_serializable() if isinstance(flash_cards, FlashCardList) else flash_cards}
 